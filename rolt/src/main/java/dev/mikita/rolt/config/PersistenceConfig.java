@@ -1,5 +1,9 @@
 package dev.mikita.rolt.config;
 
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import org.eclipse.persistence.sequencing.Sequence;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaBaseConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
@@ -10,6 +14,7 @@ import org.springframework.orm.jpa.vendor.AbstractJpaVendorAdapter;
 import org.springframework.orm.jpa.vendor.EclipseLinkJpaVendorAdapter;
 import org.springframework.transaction.jta.JtaTransactionManager;
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -47,6 +52,30 @@ public class PersistenceConfig extends JpaBaseConfiguration {
         final Map<String, Object> props = new HashMap<>();
         props.put("eclipselink.weaving", "static");
         props.put("eclipselink.ddl-generation", environment.getRequiredProperty("eclipselink.ddl-generation"));
+        props.put("eclipselink.jdbc.batch-writing", environment.getProperty("eclipselink.jdbc.batch-writing", "JDBC"));
+        props.put("eclipselink.jdbc.batch-writing.size", environment.getProperty("eclipselink.jdbc.batch-writing.size", "100"));
+        props.put("eclipselink.session.customizer", pooledSequences(
+                environment.getProperty("rolt.persistence.id-allocation-size", Integer.class, 50)));
         return props;
     }
+
+    /**
+     * Replaces the sequences declared by entities with pooled ones reserving the given number of identifiers
+     * per round trip.
+     *
+     * @param allocationSize the allocation size
+     * @return the session customizer
+     */
+    static SessionCustomizer pooledSequences(int allocationSize) {
+        return session -> {
+            final DatasourcePlatform platform = (DatasourcePlatform) session.getDatasourcePlatform();
+            for (Object declared : new ArrayList<>(platform.getSequences().values())) {
+                if (declared instanceof NativeSequence) {
+                    final Sequence sequence = (Sequence) declared;
+                    platform.addSequence(new PooledSequence(
+                            sequence.getName(), allocationSize, sequence.getInitialValue()));
+                }
+            }
+        };
+    }
 }
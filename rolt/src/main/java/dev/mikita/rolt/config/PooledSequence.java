@@ -0,0 +1,89 @@
+package dev.mikita.rolt.config;
+
+import org.eclipse.persistence.exceptions.DatabaseException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.sequencing.NativeSequence;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Database sequence handing out identifiers from preallocated blocks without locking.
+ * <p>
+ * The database sequence is incremented by the preallocation size, so a single {@code nextval} reserves a whole
+ * block. Threads take identifiers from the current block with a single atomic increment. A thread finding the
+ * block exhausted fetches the next one and publishes it; when several threads race to do so, the losers keep
+ * the first identifier of their block and drop the rest, leaving a gap as any database sequence may.
+ */
+public class PooledSequence extends NativeSequence {
+    private final AtomicReference<Block> block = new AtomicReference<>(Block.EXHAUSTED);
+
+    /**
+     * Instantiates a new Pooled sequence.
+     *
+     * @param name         the name of the database sequence
+     * @param size         the number of identifiers reserved by one round trip
+     * @param initialValue the initial value
+     */
+    public PooledSequence(String name, int size, int initialValue) {
+        super(name, size, initialValue, false);
+    }
+
+    /**
+     * Identifiers are preallocated by this sequence rather than by the sequencing manager, which would hand them
+     * out from a queue of boxed values refilled under a lock.
+     *
+     * @return false
+     */
+    @Override
+    public boolean shouldUsePreallocation() {
+        return false;
+    }
+
+    @Override
+    public Object getGeneratedValue(Accessor accessor, AbstractSession writeSession, String seqName) {
+        final Block current = block.get();
+        final long value = current.next.getAndIncrement();
+        if (value <= current.last) {
+            return value;
+        }
+
+        final Block next = allocate(accessor, writeSession, seqName);
+        final long first = next.next.getAndIncrement();
+        block.compareAndSet(current, next);
+        return first;
+    }
+
+    @Override
+    public void onDisconnect() {
+        block.set(Block.EXHAUSTED);
+        super.onDisconnect();
+    }
+
+    private Block allocate(Accessor accessor, AbstractSession writeSession, String seqName) {
+        final int size = getPreallocationSize();
+        final Number value = updateAndSelectSequence(accessor, writeSession, seqName, size);
+        if (value == null) {
+            throw DatabaseException.errorPreallocatingSequenceNumbers();
+        }
+
+        // Mirrors how the sequencing manager turns a sequence value into a block, see StandardSequence.createVector
+        final long first = ((DatasourcePlatform) getDatasourcePlatform()).getDefaultSeqenceAtNextValue()
+                ? value.longValue()
+                : value.longValue() - size + 1;
+        return new Block(first, first + size - 1);
+    }
+
+    private static final class Block {
+        private static final Block EXHAUSTED = new Block(1, 0);
+
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dev.mikita.rolt.config;
 
+import dev.mikita.rolt.security.jwt.JwtAuthenticationFilter;
+import dev.mikita.rolt.security.jwt.JwtTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -12,6 +14,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 /**
  * The type Security config.
@@ -22,15 +26,23 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 @EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)// Allow methods to be secured using annotation
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
     private final AuthenticationProvider authenticationProvider;
+    private final JwtTokenService jwtTokenService;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
 
     /**
      * Instantiates a new Security config.
      *
-     * @param authenticationProvider the authentication provider
+     * @param authenticationProvider   the authentication provider
+     * @param jwtTokenService          the jwt token service
+     * @param authenticationEntryPoint the authentication entry point
      */
     @Autowired
-    public SecurityConfig(AuthenticationProvider authenticationProvider) {
+    public SecurityConfig(AuthenticationProvider authenticationProvider,
+                          JwtTokenService jwtTokenService,
+                          AuthenticationEntryPoint authenticationEntryPoint) {
         this.authenticationProvider = authenticationProvider;
+        this.jwtTokenService = jwtTokenService;
+        this.authenticationEntryPoint = authenticationEntryPoint;
     }
 
     @Override
@@ -49,7 +61,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http.sessionManagement()
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             .and().csrf().disable()
-            .authorizeRequests().anyRequest().permitAll()
-            .and().httpBasic();
+            .authorizeRequests()
+            .antMatchers("/actuator/health").permitAll()
+            .antMatchers("/actuator/**").hasRole("ADMIN")
+            .anyRequest().permitAll()
+            .and().exceptionHandling().authenticationEntryPoint(authenticationEntryPoint)
+            .and().httpBasic().authenticationEntryPoint(authenticationEntryPoint)
+            .and().addFilterBefore(new JwtAuthenticationFilter(jwtTokenService), BasicAuthenticationFilter.class);
     }
 }
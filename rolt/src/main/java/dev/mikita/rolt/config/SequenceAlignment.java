@@ -0,0 +1,101 @@
+package dev.mikita.rolt.config;
+
+import dev.mikita.rolt.exception.PersistenceException;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.queries.ValueReadQuery;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Aligns the database sequences of pooled identifiers with the tables and the allocation size.
+ * <p>
+ * A sequence must be incremented by the allocation size, since {@link PooledSequence} takes every value as the end
+ * of a block of that size. The increment is not changed here, nodes still running with the previous size would take
+ * overlapping blocks, so the application refuses to start when they differ. The increment is changed by hand, raising
+ * it is safe while older nodes run, lowering it needs all of them stopped. A sequence created for a table already
+ * holding rows is moved past its highest id. This runs once all beans are created, before the web server accepts
+ * requests.
+ */
+@Component
+public class SequenceAlignment implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(SequenceAlignment.class);
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Instantiates a new Sequence alignment.
+     *
+     * @param emf the entity manager factory
+     */
+    @Autowired
+    public SequenceAlignment(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Statements are executed by the session itself, each in its own transaction
+        final Session session = emf.unwrap(JpaEntityManagerFactory.class).getServerSession();
+        final DatasourcePlatform platform = (DatasourcePlatform) session.getDatasourcePlatform();
+        final Set<String> aligned = new HashSet<>();
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            // Subclasses share the sequence and the ids of the root table
+            if (!descriptor.usesSequenceNumbers() || descriptor.isChildDescriptor()) {
+                continue;
+            }
+            final Sequence sequence = platform.getSequence(descriptor.getSequenceNumberName());
+            if (sequence instanceof PooledSequence && aligned.add(sequence.getName())) {
+                align(session, platform, (PooledSequence) sequence,
+                        descriptor.getTableName(), descriptor.getSequenceNumberField().getName());
+            }
+        }
+    }
+
+    private static void align(Session session, DatasourcePlatform platform, PooledSequence sequence,
+                              String table, String id) {
+        final String name = sequence.getQualified(sequence.getName());
+        final int size = sequence.getPreallocationSize();
+        final Number increment;
+        try {
+            // The increment was fixed when the sequence was created, the allocation size may have changed since
+            increment = (Number) session.executeQuery(new ValueReadQuery(
+                    "SELECT CAST(increment AS BIGINT) FROM information_schema.sequences"
+                            + " WHERE LOWER(sequence_name) = LOWER('" + sequence.getName() + "')"
+                            + " AND LOWER(sequence_schema) = LOWER(CURRENT_SCHEMA)"));
+        } catch (RuntimeException e) {
+            throw new PersistenceException("Sequence " + name + " cannot be aligned with " + table + ".", e);
+        }
+        if (increment != null && increment.longValue() != size) {
+            throw new PersistenceException("Sequence " + name + " is incremented by " + increment
+                    + ", not by the allocation size " + size + ".");
+        }
+
+        try {
+            final Number max = (Number) session.executeQuery(new ValueReadQuery("SELECT MAX(" + id + ") FROM " + table));
+            if (max == null) {
+                return;
+            }
+            // Takes a block, as the pooled sequence would, to see where the next one starts
+            final Number value = (Number) session.executeQuery(platform.buildSelectQueryForSequenceObject(name, size));
+            final boolean atNextValue = platform.getDefaultSeqenceAtNextValue();
+            final long first = atNextValue ? value.longValue() : value.longValue() - size + 1;
+            if (first <= max.longValue()) {
+                final long restart = atNextValue ? max.longValue() + 1 : max.longValue() + size;
+                session.executeNonSelectingSQL("ALTER SEQUENCE " + name + " RESTART WITH " + restart);
+                LOG.info("Moved sequence {} past the highest id {} of {}.", name, max, table);
+            }
+        } catch (RuntimeException e) {
+            throw new PersistenceException("Sequence " + name + " cannot be aligned with " + table + ".", e);
+        }
+    }
+}
@@ -1,13 +1,53 @@
 package dev.mikita.rolt.dao;
 
 import dev.mikita.rolt.exception.PersistenceException;
+import dev.mikita.rolt.exception.ValidationException;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.jpa.querydef.CompoundExpressionImpl;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaCache;
+import org.eclipse.persistence.jpa.JpaCriteriaBuilder;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.CursoredStream;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Session;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.Collection;
-import java.util.List;
-import java.util.Objects;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * The type Base dao.
@@ -15,12 +55,32 @@ import java.util.Objects;
  * @param <T> the type parameter
  */
 public abstract class BaseDao<T> implements GenericDao<T> {
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
     /**
      * The Em.
      */
     @PersistenceContext
     protected EntityManager em;
     private final Class<T> type;
+    private final Projection<T, T> entity;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private QueryPlanCache planCache;
+
+    @Value("${rolt.listing.approximate-count-threshold:100000}")
+    private long approximateCountThreshold;
+
+    @Value("${rolt.persistence.bulk-chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private volatile Boolean postgreSQL;
 
     /**
      * Instantiates a new Base dao.
@@ -30,6 +90,7 @@ public abstract class BaseDao<T> implements GenericDao<T> {
         Type t = getClass().getGenericSuperclass();
         ParameterizedType pt = (ParameterizedType) t;
         type = (Class) pt.getActualTypeArguments()[0];
+        entity = Projection.entity(type);
     }
 
     /**
@@ -45,13 +106,75 @@ public abstract class BaseDao<T> implements GenericDao<T> {
 
     /**
      * Finds all.
+     * <p>
+     * In a read-only transaction the entities are shared with the cache and must not be modified.
      * @return found entity
      */
     @Override
-    @SuppressWarnings("unchecked")
     public List<T> findAll() {
         try {
-            return em.createQuery("Select t from " + type.getSimpleName() + " t").getResultList();
+            return readOnly(em.createQuery("Select t from " + type.getSimpleName() + " t", type), entity).getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Passes all entities to the action through a database cursor.
+     * @param action Action receiving the entities
+     * @return number of entities
+     */
+    @Override
+    public long forEach(Consumer<? super T> action) {
+        return forEach(em.createQuery("Select t from " + type.getSimpleName() + " t", type), action);
+    }
+
+    /**
+     * Passes the results of the query to the action through a database cursor.
+     * <p>
+     * The driver fetches {@code rolt.persistence.bulk-chunk-size} rows per round trip, and the entities read so far are
+     * released from the cursor and the persistence context after each chunk. In a read-write transaction the
+     * persistence context is flushed before it is cleared, so pending changes are written rather than lost.
+     * @param query  Query selecting entities
+     * @param action Action receiving the entities
+     * @return number of entities
+     */
+    protected long forEach(TypedQuery<T> query, Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        final CursoredStream cursor;
+        try {
+            cursor = (CursoredStream) readOnly(query, entity)
+                    .setHint(QueryHints.CURSOR, HintValues.TRUE)
+                    .setHint(QueryHints.CURSOR_PAGE_SIZE, bulkChunkSize)
+                    .setHint(QueryHints.JDBC_FETCH_SIZE, bulkChunkSize)
+                    .unwrap(JpaQuery.class).getResultCursor();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+
+        long count = 0;
+        try {
+            List<Object> chunk;
+            while (!(chunk = nextChunk(cursor)).isEmpty()) {
+                for (Object result : chunk) {
+                    action.accept(type.cast(result));
+                }
+                count += chunk.size();
+                cursor.releasePrevious();
+                if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    flush();
+                }
+                em.clear();
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    private List<Object> nextChunk(CursoredStream cursor) {
+        try {
+            return cursor.next(bulkChunkSize);
         } catch (RuntimeException e) {
             throw new PersistenceException(e);
         }
@@ -89,6 +212,32 @@ public abstract class BaseDao<T> implements GenericDao<T> {
         }
     }
 
+    /**
+     * Persists entities in chunks.
+     * @param entities Entities to persist
+     * @return Number of persisted entities
+     */
+    @Override
+    public long persistInChunks(Iterable<? extends T> entities) {
+        Objects.requireNonNull(entities);
+
+        long count = 0;
+        try {
+            for (T entity : entities) {
+                em.persist(entity);
+                if (++count % bulkChunkSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+        return count;
+    }
+
     /**
      * Updates entity.
      * @param entity Entity to update
@@ -118,14 +267,523 @@ public abstract class BaseDao<T> implements GenericDao<T> {
         }
     }
 
+    /**
+     * Flushes pending changes.
+     */
+    @Override
+    public void flush() {
+        try {
+            em.flush();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
     /**
      * Checks if entity exists.
+     * <p>
+     * Answered by the shared cache or by a query reading only the identifier, the entity is not loaded.
      * @param id Entity identifier
-     * @return
+     * @return true if the entity exists
      */
     @Override
     public boolean exists(Integer id) {
-        return em.find(type, id) != null;
+        return findType(id) != null;
     }
-}
 
+    /**
+     * Gets a reference to an existing entity without loading it.
+     * @param id Entity identifier
+     * @return reference or null, if the entity does not exist
+     */
+    @Override
+    public T getReference(Integer id) {
+        final Class<? extends T> concrete = findType(id);
+        try {
+            return concrete == null ? null : em.getReference(concrete, id);
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Finds the concrete type of an entity from the shared cache or with a query reading only keys.
+     * <p>
+     * A reference to an abstract type cannot be instantiated, so its subtype is read from the discriminator.
+     */
+    private Class<? extends T> findType(Integer id) {
+        Objects.requireNonNull(id);
+        try {
+            final Object cached = em.getEntityManagerFactory().getCache().unwrap(JpaCache.class).getObject(type, id);
+            if (type.isInstance(cached)) {
+                return cached.getClass().asSubclass(type);
+            }
+
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+            final CriteriaQuery<Object> query = cb.createQuery();
+            final Root<T> root = query.from(type);
+            final Path<Integer> idPath = root.get(em.getMetamodel().entity(type).getId(Integer.class));
+            query.select(Modifier.isAbstract(type.getModifiers()) ? root.type() : idPath).where(cb.equal(idPath, id));
+
+            final List<Object> result = em.createQuery(query).setMaxResults(1).getResultList();
+            if (result.isEmpty()) {
+                return null;
+            }
+            return result.get(0) instanceof Class ? ((Class<?>) result.get(0)).asSubclass(type) : type;
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Finds a page of entities by offset.
+     *
+     * @param pageable    the pageable
+     * @param restriction the restriction
+     * @param countMode   how the total is counted
+     * @return the page
+     */
+    protected CountedPage<T> findPage(Pageable pageable, Restriction<T> restriction, CountMode countMode) {
+        return findPage(pageable, restriction, countMode, entity);
+    }
+
+    /**
+     * Finds a page of projected rows by offset.
+     *
+     * @param <D>         the row type
+     * @param pageable    the pageable
+     * @param restriction the restriction
+     * @param countMode   how the total is counted
+     * @param projection  the projection of the rows
+     * @return the page
+     */
+    protected <D> CountedPage<D> findPage(Pageable pageable,
+                                          Restriction<T> restriction,
+                                          CountMode countMode,
+                                          Projection<T, D> projection) {
+        Objects.requireNonNull(pageable);
+        Objects.requireNonNull(restriction);
+        Objects.requireNonNull(countMode);
+        Objects.requireNonNull(projection);
+
+        final int size = pageable.getPageSize();
+        switch (countMode) {
+            case QUERY:
+                return new CountedPage<>(findRows(pageable, restriction, size, projection), pageable, count(restriction), true);
+            case WINDOW:
+                return findPageWithWindowCount(pageable, restriction, projection);
+            case APPROXIMATE:
+                final Long estimate = estimateCount(restriction);
+                if (estimate != null && estimate >= approximateCountThreshold) {
+                    return new CountedPage<>(findRows(pageable, restriction, size, projection), pageable, estimate, false);
+                }
+                // Small listings are counted exactly
+            case CACHED:
+            default:
+                final Long total = countCache.get(type, restriction.getParameters());
+                if (total != null) {
+                    return new CountedPage<>(findRows(pageable, restriction, size, projection), pageable, total, true);
+                }
+                final CountedPage<D> page = findPageWithWindowCount(pageable, restriction, projection);
+                countCache.put(type, restriction.getParameters(), page.getTotalElements());
+                return page;
+        }
+    }
+
+    /**
+     * Finds a slice of entities by offset without counting them.
+     * <p>
+     * One row more than the page size is fetched to tell whether there is a next slice.
+     *
+     * @param pageable    the pageable
+     * @param restriction the restriction
+     * @return the slice
+     */
+    protected Slice<T> findSlice(Pageable pageable, Restriction<T> restriction) {
+        return findSlice(pageable, restriction, entity);
+    }
+
+    /**
+     * Finds a slice of projected rows by offset without counting them.
+     *
+     * @param <D>         the row type
+     * @param pageable    the pageable
+     * @param restriction the restriction
+     * @param projection  the projection of the rows
+     * @return the slice
+     */
+    protected <D> Slice<D> findSlice(Pageable pageable, Restriction<T> restriction, Projection<T, D> projection) {
+        Objects.requireNonNull(pageable);
+        Objects.requireNonNull(restriction);
+        Objects.requireNonNull(projection);
+
+        final int size = pageable.getPageSize();
+        final List<D> rows = findRows(pageable, restriction, size + 1, projection);
+
+        final boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? new ArrayList<>(rows.subList(0, size)) : rows, pageable, hasNext);
+    }
+
+    /**
+     * Finds a page of entities by keyset.
+     * <p>
+     * Rows are ordered by the sort of the pageable and by id, and the page starts right after (or, for backward
+     * cursors, ends right before) the row the cursor points to. The database seeks to that row through the index
+     * instead of skipping all preceding rows, so every page costs the same. The offset of the pageable is ignored,
+     * sort properties must be non-null attributes of the entity.
+     *
+     * @param pageable    the pageable providing the size and the sort
+     * @param cursor      the cursor, null for the first page
+     * @param restriction the restriction
+     * @return the page
+     * @throws ValidationException if a sort property may be null
+     */
+    protected CursorPage<T> findCursorPage(Pageable pageable, Cursor cursor, Restriction<T> restriction) {
+        return findCursorPage(pageable, cursor, restriction, entity);
+    }
+
+    /**
+     * Finds a page of projected rows by keyset.
+     *
+     * @param <D>         the row type
+     * @param pageable    the pageable providing the size and the sort
+     * @param cursor      the cursor, null for the first page
+     * @param restriction the restriction
+     * @param projection  the projection of the rows, must expose the sort properties
+     * @return the page
+     */
+    protected <D> CursorPage<D> findCursorPage(Pageable pageable,
+                                               Cursor cursor,
+                                               Restriction<T> restriction,
+                                               Projection<T, D> projection) {
+        Objects.requireNonNull(pageable);
+        Objects.requireNonNull(restriction);
+        Objects.requireNonNull(projection);
+
+        final List<Sort.Order> orders = keysetOrders(pageable.getSort());
+        final String sort = orders.stream().map(o -> o.getProperty() + ":" + o.getDirection())
+                .collect(Collectors.joining(";"));
+        if (cursor != null && (!cursor.getSort().equals(sort) || cursor.getValues().size() != orders.size())) {
+            throw new ValidationException("The cursor does not belong to this listing.");
+        }
+        final List<Object> values = cursor == null ? null : parseCursor(orders, cursor);
+        final boolean forward = cursor == null || cursor.isForward();
+        final int size = pageable.getPageSize();
+
+        final List<D> rows;
+        try {
+            final Map<String, Object> parameters = new HashMap<>(restriction.getParameters());
+            if (values != null) {
+                for (int i = 0; i < values.size(); i++) {
+                    parameters.put("cursor" + i, values.get(i));
+                }
+            }
+
+            final QueryPlanCache.Key key = QueryPlanCache.key(type, "keyset", restriction,
+                    projection.getName(), sort, forward, values != null);
+            rows = planCache.execute(em, key, true, cb -> {
+                final CriteriaQuery<D> cq = cb.createQuery(projection.getType());
+                final Root<T> root = cq.from(type);
+                final List<Predicate> predicates = new ArrayList<>(restriction.toPredicates(cb, root));
+                if (values != null) {
+                    predicates.add(seekPredicate(cb, root, orders, forward, values));
+                }
+                return cq.select(projection.select(cb, root))
+                        .where(predicates.toArray(new Predicate[0]))
+                        .orderBy(orders.stream()
+                                .map(o -> o.isAscending() == forward
+                                        ? cb.asc(root.get(o.getProperty()))
+                                        : cb.desc(root.get(o.getProperty())))
+                                .collect(Collectors.toList()));
+            }, query -> {
+                // One extra row tells whether there is another page in the direction of the cursor
+                return bind(readOnly(query, projection), parameters).setMaxResults(size + 1).getResultList();
+            });
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+
+        final boolean more = rows.size() > size;
+        final List<D> content = new ArrayList<>(more ? rows.subList(0, size) : rows);
+        if (content.isEmpty()) {
+            return new CursorPage<>(content, null, null);
+        }
+        if (!forward) {
+            Collections.reverse(content);
+        }
+
+        final boolean hasNext = !forward || more;
+        final boolean hasPrevious = forward ? cursor != null : more;
+        return new CursorPage<>(content,
+                hasNext ? cursorOf(true, sort, orders, content.get(content.size() - 1)) : null,
+                hasPrevious ? cursorOf(false, sort, orders, content.get(0)) : null);
+    }
+
+    /**
+     * Counts entities.
+     *
+     * @param restriction the restriction
+     * @return the count
+     */
+    protected long count(Restriction<T> restriction) {
+        Objects.requireNonNull(restriction);
+
+        try {
+            return planCache.execute(em, QueryPlanCache.key(type, "count", restriction), false, cb -> {
+                final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+                final Root<T> root = cq.from(type);
+                return cq.select(cb.count(root)).where(restriction.toPredicates(cb, root).toArray(new Predicate[0]));
+            }, query -> bind(query, restriction.getParameters()).getSingleResult());
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Finds the ids of the entities.
+     *
+     * @param restriction the restriction
+     * @return the ids
+     */
+    protected List<Integer> findIds(Restriction<T> restriction) {
+        Objects.requireNonNull(restriction);
+
+        final String id = em.getMetamodel().entity(type).getId(Integer.class).getName();
+        try {
+            return planCache.execute(em, QueryPlanCache.key(type, "ids", restriction), false, cb -> {
+                final CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
+                final Root<T> root = cq.from(type);
+                return cq.select(root.get(id)).where(restriction.toPredicates(cb, root).toArray(new Predicate[0]));
+            }, query -> bind(query, restriction.getParameters()).getResultList());
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private <D> List<D> findRows(Pageable pageable, Restriction<T> restriction, int limit, Projection<T, D> projection) {
+        final Sort sort = pageable.getSort();
+        final QueryPlanCache.Key key = QueryPlanCache.key(type, "rows", restriction, projection.getName(), sort.toString());
+        try {
+            return planCache.execute(em, key, true, cb -> {
+                final CriteriaQuery<D> cq = cb.createQuery(projection.getType());
+                final Root<T> root = cq.from(type);
+                return cq.select(projection.select(cb, root))
+                        .where(restriction.toPredicates(cb, root).toArray(new Predicate[0]))
+                        .orderBy(QueryUtils.toOrders(sort, root, cb));
+            }, query -> bind(readOnly(query, projection), restriction.getParameters())
+                    .setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(limit)
+                    .getResultList());
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private <D> CountedPage<D> findPageWithWindowCount(Pageable pageable,
+                                                       Restriction<T> restriction,
+                                                       Projection<T, D> projection) {
+        final List<Object[]> rows;
+        try {
+            final QueryPlanCache.Key key = QueryPlanCache.key(type, "window", restriction,
+                    projection.getName(), pageable.getSort().toString());
+            rows = planCache.execute(em, key, true, cb -> {
+                final CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+                final Root<T> root = cq.from(type);
+                final List<Selection<?>> selections = new ArrayList<>(projection.columns(root));
+                selections.add(windowCount(cb));
+                return cq.multiselect(selections)
+                        .where(restriction.toPredicates(cb, root).toArray(new Predicate[0]))
+                        .orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+            }, query -> bind(readOnly(query, projection), restriction.getParameters())
+                    .setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize())
+                    .getResultList());
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+
+        final List<D> content = rows.stream().map(projection::fromColumns).collect(Collectors.toList());
+        // The window is evaluated before the limit, so every row carries the total of the whole listing.
+        // A page past the last row has no row to carry it.
+        final long total = !rows.isEmpty()
+                ? ((Number) rows.get(0)[rows.get(0).length - 1]).longValue()
+                : pageable.getOffset() == 0 ? 0 : count(restriction);
+        return new CountedPage<>(content, pageable, total, true);
+    }
+
+    private static Expression<Long> windowCount(CriteriaBuilder cb) {
+        // JPQL has no window functions, the expression is passed to the database as it is
+        return ((JpaCriteriaBuilder) cb).fromExpression(
+                new ExpressionBuilder().sql("COUNT(*) OVER()", Collections.emptyList()), Long.class);
+    }
+
+    /**
+     * Creates a predicate from an SQL condition JPQL cannot express, e.g. a database specific operator.
+     * <p>
+     * The arguments are printed in place of the question marks in order, the first one must be a path.
+     *
+     * @param cb        the criteria builder
+     * @param sql       the condition
+     * @param arguments the arguments
+     * @return the predicate
+     */
+    protected Predicate sqlPredicate(CriteriaBuilder cb, String sql, Expression<?>... arguments) {
+        final JpaCriteriaBuilder builder = (JpaCriteriaBuilder) cb;
+        final List<org.eclipse.persistence.expressions.Expression> rest = Arrays.stream(arguments).skip(1)
+                .map(builder::toExpression)
+                .collect(Collectors.toList());
+        // The arguments are kept with the predicate, so the query finds its root and parameters through them
+        return new CompoundExpressionImpl(em.getMetamodel(),
+                builder.toExpression(arguments[0]).sql(sql, rest), Arrays.asList(arguments));
+    }
+
+    private Long estimateCount(Restriction<T> restriction) {
+        if (!isPostgreSQL()) {
+            return null;
+        }
+
+        try {
+            final Session session = em.unwrap(JpaEntityManager.class).getActiveSession();
+            final CriteriaBuilder cb = em.getCriteriaBuilder();
+
+            final CriteriaQuery<T> cq = cb.createQuery(type);
+            final Root<T> root = cq.from(type);
+            cq.select(root).where(restriction.toPredicates(cb, root).toArray(new Predicate[0]));
+
+            // The planner estimates the rows of the listing without executing it
+            final String sql = toSql(em.createQuery(cq), restriction.getParameters(), session);
+            final Object plan = em.createNativeQuery("EXPLAIN (FORMAT JSON) " + sql)
+                    .getSingleResult();
+            final Matcher matcher = PLAN_ROWS.matcher(String.valueOf(plan));
+            return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Checks if the database is PostgreSQL.
+     *
+     * @return bool
+     */
+    protected boolean isPostgreSQL() {
+        // The product is read from the connection, the configured platform may differ in tests
+        if (postgreSQL == null) {
+            try {
+                postgreSQL = "PostgreSQL".equals(
+                        JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            } catch (MetaDataAccessException e) {
+                throw new PersistenceException(e);
+            }
+        }
+        return postgreSQL;
+    }
+
+    private static String toSql(TypedQuery<?> query, Map<String, ?> parameters, Session session) {
+        final DatabaseQuery databaseQuery = query.unwrap(JpaQuery.class).getDatabaseQuery();
+        final List<Object> arguments = databaseQuery.getArguments().stream()
+                .map(parameters::get)
+                .collect(Collectors.toList());
+        final AbstractRecord row = databaseQuery.rowFromArguments(arguments, (AbstractSession) session);
+        databaseQuery.prepareCall(session, row);
+        // Values are printed as literals through the platform, which escapes them
+        return databaseQuery.getTranslatedSQLString(session, row);
+    }
+
+    private List<Sort.Order> keysetOrders(Sort sort) {
+        final String id = em.getMetamodel().entity(type).getId(Integer.class).getName();
+        final List<Sort.Order> orders = new ArrayList<>();
+        sort.forEach(orders::add);
+        // The id makes the order total, so no row is skipped or repeated between pages
+        if (orders.stream().noneMatch(o -> o.getProperty().equals(id))) {
+            orders.add(Sort.Order.asc(id));
+        }
+
+        // A null has no place in the seek predicate, so the sort is rejected before any page is read
+        final ClassDescriptor descriptor = em.getEntityManagerFactory().unwrap(JpaEntityManagerFactory.class)
+                .getServerSession().getDescriptor(type);
+        for (Sort.Order order : orders) {
+            final DatabaseMapping mapping = descriptor.getMappingForAttributeName(order.getProperty());
+            if (mapping == null || !mapping.isDirectToFieldMapping()
+                    || (mapping.getField().isNullable() && !descriptor.getPrimaryKeyFields().contains(mapping.getField()))) {
+                throw new ValidationException("Cannot page by cursor over " + order.getProperty()
+                        + ", it must be a non-null attribute.");
+            }
+        }
+        return orders;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekPredicate(CriteriaBuilder cb,
+                                    Root<T> root,
+                                    List<Sort.Order> orders,
+                                    boolean forward,
+                                    List<Object> values) {
+        // (k1 > v1) OR (k1 = v1 AND ((k2 > v2) OR (k2 = v2 AND ...)))
+        Predicate predicate = null;
+        for (int i = orders.size() - 1; i >= 0; i--) {
+            final Sort.Order order = orders.get(i);
+            final Path path = root.get(order.getProperty());
+            final String name = "cursor" + i;
+            final ParameterExpression parameter = cb.parameter(path.getJavaType(), name);
+
+            final Predicate beyond = order.isAscending() == forward
+                    ? cb.greaterThan(path, parameter)
+                    : cb.lessThan(path, parameter);
+            predicate = predicate == null ? beyond : cb.or(beyond, cb.and(cb.equal(path, parameter), predicate));
+        }
+        return predicate;
+    }
+
+    private List<Object> parseCursor(List<Sort.Order> orders, Cursor cursor) {
+        final EntityType<T> entityType = em.getMetamodel().entity(type);
+        final List<Object> values = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            final Class<?> javaType = entityType.getAttribute(orders.get(i).getProperty()).getJavaType();
+            final String value = cursor.getValues().get(i);
+            try {
+                if (javaType == LocalDate.class) {
+                    values.add(LocalDate.parse(value));
+                } else if (javaType == LocalDateTime.class) {
+                    values.add(LocalDateTime.parse(value));
+                } else {
+                    values.add(DefaultConversionService.getSharedInstance().convert(value, javaType));
+                }
+            } catch (RuntimeException e) {
+                throw new ValidationException("Invalid cursor.");
+            }
+        }
+        return values;
+    }
+
+    private static String cursorOf(boolean forward, String sort, List<Sort.Order> orders, Object entity) {
+        final PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(entity);
+        final List<String> values = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            final Object value = accessor.getPropertyValue(order.getProperty());
+            if (value == null) {
+                throw new ValidationException("Cannot page by cursor over empty values of " + order.getProperty() + ".");
+            }
+            values.add(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+        }
+        return new Cursor(forward, sort, values).encode();
+    }
+
+    /**
+     * Marks a query selecting entities read-only when the surrounding transaction is read-only.
+     * <p>
+     * Read-only entities are returned as they are in the shared cache, they are neither registered in the persistence
+     * context nor copied for change detection. They must not be modified.
+     */
+    private static <X> TypedQuery<X> readOnly(TypedQuery<X> query, Projection<?, ?> projection) {
+        if (projection.selectsEntities() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            query.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+        }
+        return query;
+    }
+
+    private static <X> TypedQuery<X> bind(TypedQuery<X> query, Map<String, ?> parameters) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
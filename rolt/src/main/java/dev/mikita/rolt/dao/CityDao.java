@@ -2,22 +2,21 @@ package dev.mikita.rolt.dao;
 
 import dev.mikita.rolt.entity.City;
 import dev.mikita.rolt.entity.City_;
-import dev.mikita.rolt.exception.PersistenceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
-import java.util.List;
-import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * The type City dao.
  */
 @Repository
 public class CityDao extends BaseDao<City> {
+    private static final ListingFilters<City, String> FILTERS = ListingFilters.<City, String>builder()
+            .filter("name", String.class, Function.identity(),
+                    (cb, city, name) -> cb.equal(city.get(City_.name), name))
+            .build();
+
     /**
      * Find all page.
      *
@@ -25,64 +24,42 @@ public class CityDao extends BaseDao<City> {
      * @param name     the name
      * @return the page
      */
-    public Page<City> findAll(Pageable pageable, String name) {
-        Objects.requireNonNull(pageable);
-
-        try {
-            List<City> result = ((TypedQuery<City>) createFindAllQuery(pageable, name, false)).getResultList();
-            Long count = ((TypedQuery<Long>) createFindAllQuery(pageable, name, true)).getSingleResult();
-
-            return new PageImpl<>(result, pageable, count);
-        } catch (RuntimeException e) {
-            throw new PersistenceException(e);
-        }
+    public CountedPage<City> findAll(Pageable pageable, String name) {
+        return findAll(pageable, name, CountMode.QUERY);
     }
 
     /**
-     * Creates a findAll query.
-     * @param pageable pageable
-     * @param name name
-     * @param count count
-     * @return query
+     * Find all page.
+     *
+     * @param pageable  the pageable
+     * @param name      the name
+     * @param countMode how the total is counted
+     * @return the page
      */
-    private TypedQuery<?> createFindAllQuery(Pageable pageable, String name, boolean count) {
-        Objects.requireNonNull(pageable);
-
-        // Main Query
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery cq;
-        if (count) {
-            cq = cb.createQuery(Long.class);
-        } else {
-            cq = cb.createQuery(City.class);
-        }
-        Root<City> city = cq.from(City.class);
-
-        ParameterExpression<String> cityName = null;
-        if (name != null) {
-            cityName = cb.parameter(String.class);
-            Predicate equalsName = cb.equal(city.get(City_.name), cityName);
-            cq.where(cb.and(equalsName));
-        }
-
-        TypedQuery<City> query;
-
-        if (count) {
-            cq.select(cb.count(city));
-            query = em.createQuery(cq);
-        } else {
-            cq.orderBy(QueryUtils.toOrders(pageable.getSort(), city, cb));
-            cq.select(city);
-
-            query = em.createQuery(cq)
-                    .setMaxResults(pageable.getPageSize())
-                    .setFirstResult((int) pageable.getOffset());
-        }
+    public CountedPage<City> findAll(Pageable pageable, String name, CountMode countMode) {
+        return findPage(pageable, FILTERS.restrict(name), countMode);
+    }
 
-        if (cityName != null) {
-            query.setParameter(cityName, name);
-        }
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param name     the name
+     * @return the slice
+     */
+    public Slice<City> findSlice(Pageable pageable, String name) {
+        return findSlice(pageable, FILTERS.restrict(name));
+    }
 
-        return query;
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param name     the name
+     * @return the cursor page
+     */
+    public CursorPage<City> findAll(Pageable pageable, Cursor cursor, String name) {
+        return findCursorPage(pageable, cursor, FILTERS.restrict(name));
     }
 }
@@ -1,13 +1,9 @@
 package dev.mikita.rolt.dao;
 
-import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.entity.Consumer;
 import dev.mikita.rolt.exception.PersistenceException;
 import org.springframework.stereotype.Repository;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * The type Consumer dao.
@@ -15,38 +11,45 @@ import java.util.Objects;
 @Repository
 public class ConsumerDao extends BaseDao<Consumer> {
     /**
-     * Gets rating.
+     * Find the lowest and the highest consumer id.
      *
-     * @param consumer the consumer
-     * @return the rating
+     * @return the lowest and the highest id, or null if there is no consumer
      */
-    public Double getRating(Consumer consumer) {
-        Objects.requireNonNull(consumer);
-
+    public Integer[] findIdRange() {
         try {
-            CriteriaBuilder cb = em.getCriteriaBuilder();
-            CriteriaQuery<Double> cq = cb.createQuery(Double.class);
-            Root<Review> reviewRoot = cq.from(Review.class);
-
-            List<Predicate> predicates = new ArrayList<>();
-
-            ParameterExpression<Consumer> reviewed = cb.parameter(Consumer.class);
-
-            Predicate tenantOrOwner = cb.or(
-                    cb.equal(reviewRoot.get(Review_.contract).get(Contract_.tenant), reviewed),
-                    cb.equal(reviewRoot.get(Review_.contract).get(Contract_.property).get(Property_.owner), reviewed));
-            Predicate notEqualPredicate = cb.notEqual(reviewRoot.get(Review_.author), reviewed);
-
-            predicates.add(tenantOrOwner);
-            predicates.add(notEqualPredicate);
+            final Object[] row = em.createNamedQuery("Consumer.findIdRange", Object[].class).getSingleResult();
+            return row[0] == null ? null : new Integer[]{(Integer) row[0], (Integer) row[1]};
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
 
-            cq.where(cb.and(predicates.toArray(new Predicate[0])));
-            Expression<Double> avgRating = cb.avg(reviewRoot.get(Review_.rating));
-            cq.select(avgRating);
-            TypedQuery<Double> query = em.createQuery(cq);
-            query.setParameter(reviewed, consumer);
+    /**
+     * Count the consumers without a rating.
+     *
+     * @return the number of consumers without a rating
+     */
+    public long countWithoutRating() {
+        try {
+            return em.createNamedQuery("Consumer.countWithoutRating", Long.class).getSingleResult();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
 
-            return query.getSingleResult();
+    /**
+     * Find the ids of the consumers in a range.
+     *
+     * @param first the first id of the range
+     * @param last  the last id of the range
+     * @return the ids
+     */
+    public List<Integer> findIds(int first, int last) {
+        try {
+            return em.createNamedQuery("Consumer.findIdsBetween", Integer.class)
+                    .setParameter("first", first)
+                    .setParameter("last", last)
+                    .getResultList();
         } catch (RuntimeException e) {
             throw new PersistenceException(e);
         }
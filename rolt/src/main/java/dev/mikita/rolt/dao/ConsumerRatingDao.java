@@ -0,0 +1,76 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.entity.ConsumerRating;
+import dev.mikita.rolt.exception.PersistenceException;
+import org.springframework.stereotype.Repository;
+import javax.persistence.Query;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * The type Consumer rating dao.
+ */
+@Repository
+public class ConsumerRatingDao extends BaseDao<ConsumerRating> {
+    /**
+     * The columns of a rating without reviews, inserted before the first reviews of a consumer without a rating.
+     */
+    private static final String INSERT_EMPTY = "INSERT INTO rolt_consumer_rating"
+            + " (consumer_id, rating_sum, rating_count, rating_1, rating_2, rating_3, rating_4, rating_5)";
+
+    /**
+     * Adds reviews to the rating of a consumer with a single statement.
+     * <p>
+     * The counts are added in the database, so concurrent changes of the same rating are not lost. A consumer
+     * without a rating first gets one without reviews, so the counts are always added to a complete rating.
+     *
+     * @param delta the numbers of reviews to add per rating, negative to remove them
+     */
+    public void add(ConsumerRating delta) {
+        Objects.requireNonNull(delta);
+        try {
+            final Query query = em.createNamedQuery("ConsumerRating.add")
+                    .setParameter("consumerId", delta.getConsumerId())
+                    .setParameter("sum", delta.getSum())
+                    .setParameter("count", delta.getCount());
+            for (int rating = ConsumerRating.MIN_RATING; rating <= ConsumerRating.MAX_RATING; rating++) {
+                query.setParameter("rating" + rating, delta.getCount(rating));
+            }
+            if (query.executeUpdate() == 0) {
+                insertEmpty(delta.getConsumerId());
+                query.executeUpdate();
+            }
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Replaces the ratings of a range of consumers.
+     *
+     * @param first   the first consumer id of the range
+     * @param last    the last consumer id of the range
+     * @param ratings the new ratings of the consumers in the range
+     */
+    public void replaceRange(int first, int last, Collection<ConsumerRating> ratings) {
+        Objects.requireNonNull(ratings);
+        try {
+            em.createNamedQuery("ConsumerRating.removeRange")
+                    .setParameter("first", first)
+                    .setParameter("last", last)
+                    .executeUpdate();
+            ratings.forEach(em::persist);
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private void insertEmpty(Integer consumerId) {
+        // A concurrent insert waits for the first one and then does nothing, the update follows on the same row
+        final String sql = isPostgreSQL()
+                ? INSERT_EMPTY + " VALUES (?1, 0, 0, 0, 0, 0, 0, 0) ON CONFLICT (consumer_id) DO NOTHING"
+                : INSERT_EMPTY + " SELECT ?1, 0, 0, 0, 0, 0, 0, 0 WHERE NOT EXISTS"
+                        + " (SELECT 1 FROM rolt_consumer_rating WHERE consumer_id = ?1)";
+        em.createNativeQuery(sql).setParameter(1, consumerId).executeUpdate();
+    }
+}
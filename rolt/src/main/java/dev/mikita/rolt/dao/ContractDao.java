@@ -1,14 +1,22 @@
 package dev.mikita.rolt.dao;
 
+import dev.mikita.rolt.dto.contract.ResponsePublicContractDto;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.exception.PersistenceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.Root;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -17,28 +25,158 @@ import java.util.*;
  */
 @Repository
 public class ContractDao extends BaseDao<Contract> {
+    private static final Logger LOG = LoggerFactory.getLogger(ContractDao.class);
+
+    /**
+     * The period of a contract as a PostgreSQL range including both dates, the expression the range index is built on.
+     */
+    private static final String PERIOD = "daterange(?, ?, '[]')";
+
+    /**
+     * Creates the range index and the exclusion constraint on PostgreSQL. Ranges are not mapped, so the schema
+     * generated from the entities stays portable.
+     */
+    private static final List<String> PERIOD_SCHEMA = List.of(
+            "CREATE EXTENSION IF NOT EXISTS btree_gist",
+            "CREATE INDEX IF NOT EXISTS rolt_contract_period_idx ON rolt_contract"
+                    + " USING gist (daterange(start_date, end_date, '[]'))",
+            "DO $$ BEGIN"
+                    + " IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'rolt_contract_period_excl') THEN"
+                    + " ALTER TABLE rolt_contract ADD CONSTRAINT rolt_contract_period_excl EXCLUDE USING gist"
+                    + " (property_id WITH =, daterange(start_date, end_date, '[]') WITH &&);"
+                    + " END IF; END $$");
+
+    /**
+     * The first key of advisory locks of properties, keeping them apart from other advisory locks of the database.
+     */
+    private static final int PROPERTY_LOCKS = 0x726f6c74;
+
+    private static final ListingFilters<Contract, ContractFilter> FILTERS = partyFilters()
+            .filter("fromDate", LocalDate.class, ContractFilter::getFromDate,
+                    (cb, contract, fromDate) -> cb.greaterThanOrEqualTo(contract.get(Contract_.startDate), fromDate))
+            .filter("toDate", LocalDate.class, ContractFilter::getToDate,
+                    (cb, contract, toDate) -> cb.lessThanOrEqualTo(contract.get(Contract_.endDate), toDate))
+            .build();
+
+    // The dates are compared by range containment, which the range index serves
+    private final ListingFilters<Contract, ContractFilter> rangeFilters = partyFilters()
+            .filter("fromDate", LocalDate.class, ContractFilter::getFromDate,
+                    (cb, contract, fromDate) -> sqlPredicate(cb, PERIOD + " <@ daterange(?, NULL, '[]')",
+                            contract.get(Contract_.startDate), contract.get(Contract_.endDate), fromDate))
+            .filter("toDate", LocalDate.class, ContractFilter::getToDate,
+                    (cb, contract, toDate) -> sqlPredicate(cb, PERIOD + " <@ daterange(NULL, ?, '[]')",
+                            contract.get(Contract_.startDate), contract.get(Contract_.endDate), toDate))
+            .build();
+
+    private static final Projection<Contract, Contract> ENTITY = Projection.entity(Contract.class, contract -> {
+        final Fetch<Contract, Property> property = contract.fetch(Contract_.property);
+        property.fetch(Property_.owner);
+        property.fetch(Property_.city);
+        contract.fetch(Contract_.tenant);
+    });
+
+    private static final Projection<Contract, ResponsePublicContractDto> PUBLIC = Projection.construct(
+            ResponsePublicContractDto.class, contract -> List.of(
+                    contract.get(Contract_.id),
+                    contract.get(Contract_.createdOn),
+                    contract.get(Contract_.startDate),
+                    contract.get(Contract_.endDate),
+                    contract.get(Contract_.property).get(Property_.id),
+                    contract.get(Contract_.tenant).get(Tenant_.id)));
+
     /**
      * Find all page.
      *
      * @param pageable the pageable
-     * @param filters  the filters
+     * @param filter   the filter
      * @return the page
      */
-    public Page<Contract> findAll(Pageable pageable, Map<String, Object> filters) {
-        Objects.requireNonNull(pageable);
+    public CountedPage<Contract> findAll(Pageable pageable, ContractFilter filter) {
+        return findAll(pageable, filter, CountMode.QUERY);
+    }
 
-        try {
-            List<Contract> result = ((TypedQuery<Contract>) createFindAllQuery(pageable, filters, false)).getResultList();
-            Long count = ((TypedQuery<Long>) createFindAllQuery(pageable, filters, true)).getSingleResult();
+    /**
+     * Find all page.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<Contract> findAll(Pageable pageable, ContractFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, filters().restrict(filter), countMode, ENTITY);
+    }
 
-            return new PageImpl<>(result, pageable, count);
-        } catch (RuntimeException e) {
-            throw new PersistenceException(e);
-        }
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<Contract> findSlice(Pageable pageable, ContractFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, filters().restrict(filter), ENTITY);
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<Contract> findAll(Pageable pageable, Cursor cursor, ContractFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, filters().restrict(filter), ENTITY);
+    }
+
+    /**
+     * Find all public page.
+     * <p>
+     * Rows are selected straight into response dtos and are not managed.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<ResponsePublicContractDto> findAllPublic(Pageable pageable, ContractFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, filters().restrict(filter), countMode, PUBLIC);
+    }
+
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<ResponsePublicContractDto> findSlicePublic(Pageable pageable, ContractFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, filters().restrict(filter), PUBLIC);
+    }
+
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<ResponsePublicContractDto> findAllPublic(Pageable pageable, Cursor cursor, ContractFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, filters().restrict(filter), PUBLIC);
     }
 
     /**
      * Find intersections by date range list.
+     * <p>
+     * On PostgreSQL the periods are tested for overlap by the range operator served by the exclusion constraint.
      *
      * @param property the property
      * @param start    the start
@@ -50,8 +188,10 @@ public class ContractDao extends BaseDao<Contract> {
         Objects.requireNonNull(start);
         Objects.requireNonNull(end);
         try {
-            return em.createNamedQuery("Contract.findIntersectionsByDateRange", Contract.class)
-                    .setParameter("property", property)
+            final TypedQuery<Contract> query = isPostgreSQL()
+                    ? createOverlapQuery()
+                    : em.createNamedQuery("Contract.findIntersectionsByDateRange", Contract.class);
+            return query.setParameter("property", property)
                     .setParameter("start", start)
                     .setParameter("end", end)
                     .getResultList();
@@ -61,98 +201,130 @@ public class ContractDao extends BaseDao<Contract> {
     }
 
     /**
-     * Creates a findAll query.
-     * @param pageable pageable
-     * @param filters filters
-     * @param count count
-     * @return query
+     * Locks the contracts of a property until the end of the transaction.
+     * <p>
+     * On PostgreSQL a transaction level advisory lock keyed by the property id is taken, so the contracts are
+     * locked across all nodes sharing the database. No rows are locked and other properties are not blocked.
+     * Other databases are not locked.
+     *
+     * @param propertyId the property id
      */
-    private TypedQuery<?> createFindAllQuery(Pageable pageable, Map<String, Object> filters, boolean count) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
-
-        // Main Query
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery cq;
-        if (count) {
-            cq = cb.createQuery(Long.class);
-        } else {
-            cq = cb.createQuery(Contract.class);
-        }
-        Root<Contract> contract = cq.from(Contract.class);
-
-        // Filters
-        List<Predicate> predicates = new ArrayList<>();
-
-        ParameterExpression<Landlord> landlord = null;
-        if (filters.containsKey("landlordId")) {
-            landlord = cb.parameter(Landlord.class);
-            predicates.add(cb.equal(contract.get(Contract_.property).get(Property_.owner), landlord));
+    public void lockProperty(Integer propertyId) {
+        Objects.requireNonNull(propertyId);
+        if (!isPostgreSQL()) {
+            return;
         }
-
-        ParameterExpression<Tenant> tenant = null;
-        if (filters.containsKey("tenantId")) {
-            tenant = cb.parameter(Tenant.class);
-            predicates.add(cb.equal(contract.get(Contract_.tenant), tenant));
-        }
-
-        ParameterExpression<Property> property = null;
-        if (filters.containsKey("propertyId")) {
-            property = cb.parameter(Property.class);
-            predicates.add(cb.equal(contract.get(Contract_.property), property));
-        }
-
-        ParameterExpression<LocalDate> fromDate = null;
-        if (filters.containsKey("fromDate")) {
-            fromDate = cb.parameter(LocalDate.class);
-            predicates.add(cb.greaterThanOrEqualTo(contract.get(Contract_.startDate), fromDate));
-        }
-
-        ParameterExpression<LocalDate> toDate = null;
-        if (filters.containsKey("toDate")) {
-            toDate = cb.parameter(LocalDate.class);
-            predicates.add(cb.lessThanOrEqualTo(contract.get(Contract_.endDate), toDate));
+        try {
+            em.createNativeQuery("SELECT pg_advisory_xact_lock(?1, ?2)")
+                    .setParameter(1, PROPERTY_LOCKS)
+                    .setParameter(2, propertyId)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        if (!predicates.isEmpty()) {
-            cq.where(cb.and(predicates.toArray(new Predicate[0])));
+    /**
+     * Find the date ranges of all contracts.
+     * <p>
+     * Reads only the ids and the dates, no contract or property is loaded.
+     *
+     * @return the contract id, the property id, the start date and the end date of every contract
+     */
+    public List<Object[]> findAllDateRanges() {
+        try {
+            return em.createNamedQuery("Contract.findAllDateRanges", Object[].class).getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        TypedQuery<Property> query;
-
-        if (count) {
-            cq.select(cb.count(contract));
-            query = em.createQuery(cq);
-        } else {
-            cq.orderBy(QueryUtils.toOrders(pageable.getSort(), contract, cb));
-            cq.select(contract);
-
-            query = em.createQuery(cq)
-                    .setMaxResults(pageable.getPageSize())
-                    .setFirstResult((int) pageable.getOffset());
+    /**
+     * Find the ids of the properties with a contract overlapping the days.
+     *
+     * @param start the first day
+     * @param end   the last day
+     * @return the property ids
+     */
+    public List<Integer> findBookedPropertyIds(LocalDate start, LocalDate end) {
+        Objects.requireNonNull(start);
+        Objects.requireNonNull(end);
+        try {
+            return em.createNamedQuery("Contract.findBookedPropertyIds", Integer.class)
+                    .setParameter("start", start)
+                    .setParameter("end", end)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        // Setting up parameters
-        if (landlord != null) {
-            query.setParameter(landlord, em.getReference(Landlord.class, filters.get("landlordId")));
+    /**
+     * Find the ids of the tenant and the landlord.
+     * <p>
+     * Reads only the foreign keys, no contract, property or user is loaded.
+     *
+     * @param id the contract id
+     * @return the tenant id and the landlord id or null, if the contract does not exist
+     */
+    public Integer[] findPartyIds(Integer id) {
+        Objects.requireNonNull(id);
+        try {
+            return em.createNamedQuery("Contract.findPartyIds", Object[].class).setParameter("id", id)
+                    .getResultStream().findFirst()
+                    .map(row -> new Integer[]{(Integer) row[0], (Integer) row[1]})
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        if (tenant != null) {
-            query.setParameter(tenant, em.getReference(Tenant.class, filters.get("tenantId")));
+    /**
+     * Creates the range index and the exclusion constraint of contract periods.
+     * <p>
+     * The constraint rejects overlapping contracts of a property in the database, so concurrent transactions
+     * cannot both book the same dates. Statements failing, e.g. for lack of privileges or for overlapping
+     * contracts already stored, are logged and the dates are left to the checks of the application.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPeriodConstraints() {
+        if (!isPostgreSQL()) {
+            return;
         }
-
-        if (property != null) {
-            query.setParameter(property, em.getReference(Property.class, filters.get("propertyId")));
+        // Statements are executed by the session itself, each in its own transaction
+        final Session session = em.getEntityManagerFactory().unwrap(JpaEntityManagerFactory.class).getServerSession();
+        for (String statement : PERIOD_SCHEMA) {
+            try {
+                session.executeNonSelectingSQL(statement);
+            } catch (RuntimeException e) {
+                LOG.warn("Contract periods are not constrained by the database, statement {} failed.", statement, e);
+            }
         }
+    }
 
-        if (fromDate != null) {
-            query.setParameter(fromDate, (LocalDate) filters.get("fromDate"));
-        }
+    private ListingFilters<Contract, ContractFilter> filters() {
+        return isPostgreSQL() ? rangeFilters : FILTERS;
+    }
 
-        if (toDate != null) {
-            query.setParameter(toDate, (LocalDate) filters.get("toDate"));
-        }
+    private TypedQuery<Contract> createOverlapQuery() {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Contract> cq = cb.createQuery(Contract.class);
+        final Root<Contract> contract = cq.from(Contract.class);
+        cq.select(contract).where(
+                cb.equal(contract.get(Contract_.property), cb.parameter(Property.class, "property")),
+                sqlPredicate(cb, PERIOD + " && daterange(?, ?, '[]')",
+                        contract.get(Contract_.startDate), contract.get(Contract_.endDate),
+                        cb.parameter(LocalDate.class, "start"), cb.parameter(LocalDate.class, "end")));
+        return em.createQuery(cq);
+    }
 
-        return query;
+    private static ListingFilters.Builder<Contract, ContractFilter> partyFilters() {
+        return ListingFilters.<Contract, ContractFilter>builder()
+                .filter("landlordId", Integer.class, ContractFilter::getLandlordId,
+                        (cb, contract, landlordId) -> cb.equal(contract.get(Contract_.property).get(Property_.owner).get(Landlord_.id), landlordId))
+                .filter("tenantId", Integer.class, ContractFilter::getTenantId,
+                        (cb, contract, tenantId) -> cb.equal(contract.get(Contract_.tenant).get(Tenant_.id), tenantId))
+                .filter("propertyId", Integer.class, ContractFilter::getPropertyId,
+                        (cb, contract, propertyId) -> cb.equal(contract.get(Contract_.property).get(Property_.id), propertyId));
     }
 }
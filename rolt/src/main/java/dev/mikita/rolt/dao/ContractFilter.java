@@ -0,0 +1,18 @@
+package dev.mikita.rolt.dao;
+
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDate;
+
+/**
+ * Filter of contract listings. Criteria left null are not applied.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ContractFilter {
+    Integer landlordId;
+    Integer tenantId;
+    Integer propertyId;
+    LocalDate fromDate;
+    LocalDate toDate;
+}
@@ -0,0 +1,104 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.cache.BoundedCache;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Cache of listing totals.
+ * <p>
+ * Totals are keyed by the entity type and the filters of the listing. Filter values are normalized to strings, so
+ * a status given as an enum and as its name share an entry. All totals of a type are dropped after a transaction
+ * changing entities of the type commits. Totals counted inside a read-write transaction, which may still roll back,
+ * are never cached.
+ */
+@Component
+public class CountCache {
+    private final BoundedCache<Key, Long> totals;
+
+    /**
+     * Instantiates a new Count cache.
+     *
+     * @param maxSize the maximum number of cached totals
+     * @param ttl     the time to live of a cached total
+     */
+    @Autowired
+    public CountCache(@Value("${rolt.listing.count-cache.max-size:1000}") int maxSize,
+                      @Value("${rolt.listing.count-cache.ttl:PT1M}") Duration ttl) {
+        this.totals = new BoundedCache<>("listing.count", maxSize, ttl);
+    }
+
+    /**
+     * Gets a total.
+     *
+     * @param type    the entity type
+     * @param filters the filters of the listing
+     * @return the total or null, if it is not cached
+     */
+    public Long get(Class<?> type, Map<String, ?> filters) {
+        return totals.get(new Key(type, filters));
+    }
+
+    /**
+     * Caches a total.
+     *
+     * @param type    the entity type
+     * @param filters the filters of the listing
+     * @param total   the total
+     */
+    public void put(Class<?> type, Map<String, ?> filters, long total) {
+        if (isCacheable()) {
+            totals.put(new Key(type, filters), total);
+        }
+    }
+
+    /**
+     * Drops cached totals after the changing transaction commits.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        totals.invalidateIf((key, total) ->
+                key.type.isAssignableFrom(event.getType()) || event.getType().isAssignableFrom(key.type));
+    }
+
+    private static boolean isCacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final SortedMap<String, String> filters = new TreeMap<>();
+
+        private Key(Class<?> type, Map<String, ?> filters) {
+            Objects.requireNonNull(type);
+            Objects.requireNonNull(filters);
+            this.type = type;
+            filters.forEach((name, value) -> this.filters.put(name, String.valueOf(value)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return type == key.type && filters.equals(key.filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, filters);
+        }
+    }
+}
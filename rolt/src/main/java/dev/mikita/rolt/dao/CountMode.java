@@ -0,0 +1,25 @@
+package dev.mikita.rolt.dao;
+
+/**
+ * How the total of an offset-paginated listing is counted.
+ */
+public enum CountMode {
+    /**
+     * The total is counted by a separate {@code COUNT} query.
+     */
+    QUERY,
+    /**
+     * The total is counted by a window function in the statement fetching the rows, so a page costs a single
+     * round trip. Only a page past the last row needs a separate {@code COUNT} query.
+     */
+    WINDOW,
+    /**
+     * The total is taken from the count cache. On a miss it is counted as with {@link #WINDOW} and cached.
+     */
+    CACHED,
+    /**
+     * The total is estimated from planner statistics when the estimate reaches the configured threshold, otherwise
+     * it is counted as with {@link #CACHED}. Databases without usable statistics always get the exact total.
+     */
+    APPROXIMATE
+}
@@ -0,0 +1,36 @@
+package dev.mikita.rolt.dao;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import java.util.List;
+
+/**
+ * Page of an offset-paginated listing telling whether its total is exact.
+ *
+ * @param <T> the type parameter
+ */
+public class CountedPage<T> extends PageImpl<T> {
+    private final boolean totalExact;
+
+    /**
+     * Instantiates a new Counted page.
+     *
+     * @param content    the content
+     * @param pageable   the pageable
+     * @param total      the total
+     * @param totalExact false if the total is estimated from planner statistics
+     */
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * Checks if the total is exact.
+     *
+     * @return bool
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
@@ -0,0 +1,110 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.exception.ValidationException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Position in a keyset-paginated listing.
+ * <p>
+ * Holds the values of the sort keys and the id of the row a page ends or starts at, together with the sort the
+ * values belong to and the direction to seek in. Clients only ever see the opaque token produced by {@link #encode()}.
+ */
+public final class Cursor {
+    private static final String FORWARD = "n";
+    private static final String BACKWARD = "p";
+    private static final String SEPARATOR = ",";
+
+    private final boolean forward;
+    private final String sort;
+    private final List<String> values;
+
+    /**
+     * Instantiates a new Cursor.
+     *
+     * @param forward whether the cursor points to the following rows
+     * @param sort    the sort the values belong to
+     * @param values  the values of the sort keys, the id last
+     */
+    public Cursor(boolean forward, String sort, List<String> values) {
+        Objects.requireNonNull(sort);
+        Objects.requireNonNull(values);
+        this.forward = forward;
+        this.sort = sort;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Decodes a cursor token.
+     *
+     * @param token the token
+     * @return the cursor or null, if the token is empty and so denotes the first page
+     * @throws ValidationException if the token is malformed
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final String[] parts = decoded.split(SEPARATOR, -1);
+            if (parts.length < 3 || !(FORWARD.equals(parts[0]) || BACKWARD.equals(parts[0]))) {
+                throw new ValidationException("Invalid cursor.");
+            }
+
+            final List<String> values = new ArrayList<>();
+            for (int i = 2; i < parts.length; i++) {
+                values.add(URLDecoder.decode(parts[i], StandardCharsets.UTF_8));
+            }
+            return new Cursor(FORWARD.equals(parts[0]), URLDecoder.decode(parts[1], StandardCharsets.UTF_8), values);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Encodes the cursor into an opaque token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        final StringBuilder sb = new StringBuilder(forward ? FORWARD : BACKWARD)
+                .append(SEPARATOR).append(URLEncoder.encode(sort, StandardCharsets.UTF_8));
+        values.forEach(value -> sb.append(SEPARATOR).append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if the cursor points to the following rows.
+     *
+     * @return bool
+     */
+    public boolean isForward() {
+        return forward;
+    }
+
+    /**
+     * Gets sort.
+     *
+     * @return the sort the values belong to
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    /**
+     * Gets values.
+     *
+     * @return the values of the sort keys, the id last
+     */
+    public List<String> getValues() {
+        return values;
+    }
+}
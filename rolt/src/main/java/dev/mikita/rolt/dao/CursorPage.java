@@ -0,0 +1,86 @@
+package dev.mikita.rolt.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Page of a keyset-paginated listing.
+ *
+ * @param <T> the type parameter
+ */
+public class CursorPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    /**
+     * Instantiates a new Cursor page.
+     *
+     * @param content        the content
+     * @param nextCursor     the token of the following page, null if there is none
+     * @param previousCursor the token of the preceding page, null if there is none
+     */
+    public CursorPage(List<T> content, String nextCursor, String previousCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    /**
+     * Gets content.
+     *
+     * @return the content
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Gets next cursor.
+     *
+     * @return the token of the following page, null if there is none
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Gets previous cursor.
+     *
+     * @return the token of the preceding page, null if there is none
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * Checks if a following page exists.
+     *
+     * @return bool
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Checks if a preceding page exists.
+     *
+     * @return bool
+     */
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    /**
+     * Maps the content of the page.
+     *
+     * @param <R>    the type parameter
+     * @param mapper the mapper
+     * @return the mapped page
+     */
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).collect(Collectors.toList()), nextCursor, previousCursor);
+    }
+}
@@ -2,6 +2,7 @@ package dev.mikita.rolt.dao;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Base interface for data access objects.
@@ -25,6 +26,20 @@ public interface GenericDao<T> {
      */
     List<T> findAll();
 
+    /**
+     * Passes all instances of the specified class to the action one at a time, reading them through a database cursor.
+     * <p>
+     * Rows are fetched in chunks and the persistence context is cleared after each chunk, so memory stays flat however
+     * many instances there are. Everything that was managed is detached afterwards. In a read-write transaction the
+     * persistence context is flushed before each clear, so changes made by the caller before the call or by the action
+     * are written to the database first; in a read-only one they are discarded. The cursor lives as long as the
+     * current transaction, so the call must run in one.
+     *
+     * @param action Action receiving the instances
+     * @return Number of instances passed to the action
+     */
+    long forEach(Consumer<? super T> action);
+
     /**
      * Persists the specified entity.
      *
@@ -39,6 +54,17 @@ public interface GenericDao<T> {
      */
     void persist(Collection<T> entities);
 
+    /**
+     * Persists a large number of instances in chunks, flushing and clearing the persistence context after each chunk.
+     * <p>
+     * Memory stays flat however many instances are persisted, but the persisted instances, as well as everything else
+     * that was managed, are detached afterwards.
+     *
+     * @param entities Entities to persist, may be produced lazily
+     * @return Number of persisted instances
+     */
+    long persistInChunks(Iterable<? extends T> entities);
+
     /**
      * Updates the specified entity.
      *
@@ -54,11 +80,29 @@ public interface GenericDao<T> {
      */
     void remove(T entity);
 
+    /**
+     * Synchronizes pending changes with the database, so that constraint violations surface immediately.
+     */
+    void flush();
+
     /**
      * Checks whether an entity with the specified id exists (and has the type managed by this DAO).
+     * <p>
+     * The entity is not loaded, only its identifier is read.
      *
      * @param id Entity identifier
      * @return {@literal true} if entity exists, {@literal false} otherwise
      */
     boolean exists(Integer id);
+
+    /**
+     * Returns a reference to the entity with the specified identifier, without loading it.
+     * <p>
+     * Existence is checked as by {@link #exists(Integer)}. The reference has only its identifier set and is meant
+     * for setting associations before persisting or updating another entity.
+     *
+     * @param id Entity identifier
+     * @return Reference or {@code null} if no such instance exists
+     */
+    T getReference(Integer id);
 }
@@ -0,0 +1,16 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.entity.ConsumerGender;
+import dev.mikita.rolt.entity.ConsumerStatus;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Filter of landlord listings. Criteria left null are not applied.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LandlordFilter {
+    ConsumerStatus status;
+    ConsumerGender gender;
+}
@@ -0,0 +1,182 @@
+package dev.mikita.rolt.dao;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Filters a listing may be restricted by.
+ * <p>
+ * Every filter is a predicate over a single named parameter, whose value is read from a typed filter specification.
+ * The filters applied to a request form a bitmask, and the predicates of each combination are built and translated
+ * to SQL only once; a request just binds the values of its filters. Predicates are created in the order the filters
+ * are declared in, which should follow the indexes serving them.
+ *
+ * @param <T> the type parameter
+ * @param <F> the filter specification type
+ */
+final class ListingFilters<T, F> {
+    private final List<Filter<T, F, ?>> filters;
+
+    private ListingFilters(List<Filter<T, F, ?>> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * Creates a builder.
+     *
+     * @param <T> the type parameter
+     * @param <F> the filter specification type
+     * @return the builder
+     */
+    static <T, F> Builder<T, F> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Restricts the listing by a filter specification.
+     * <p>
+     * Filters without a value are not applied.
+     *
+     * @param spec the filter specification, null applies no filter
+     * @return the restriction
+     */
+    Restriction<T> restrict(F spec) {
+        long mask = 0;
+        final Map<String, Object> parameters = new HashMap<>();
+        if (spec == null) {
+            return new Restriction<>(this, mask, parameters);
+        }
+        for (int i = 0; i < filters.size(); i++) {
+            final Filter<T, F, ?> filter = filters.get(i);
+            final Object value = filter.value.apply(spec);
+            if (value != null) {
+                mask |= 1L << i;
+                parameters.put(filter.name, value);
+            }
+        }
+        return new Restriction<>(this, mask, parameters);
+    }
+
+    /**
+     * Creates the predicates of the filters in the mask.
+     *
+     * @param cb   the criteria builder
+     * @param root the root
+     * @param mask the mask of applied filters
+     * @return the predicates
+     */
+    List<Predicate> toPredicates(CriteriaBuilder cb, Root<T> root, long mask) {
+        final List<Predicate> predicates = new ArrayList<>();
+        for (int i = 0; i < filters.size(); i++) {
+            if ((mask & 1L << i) != 0) {
+                predicates.add(filters.get(i).toPredicate(cb, root));
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * Names the filters in the mask.
+     *
+     * @param mask the mask of applied filters
+     * @return the names of the filters joined by commas, or "none"
+     */
+    String describe(long mask) {
+        final StringJoiner names = new StringJoiner(",");
+        names.setEmptyValue("none");
+        for (int i = 0; i < filters.size(); i++) {
+            if ((mask & 1L << i) != 0) {
+                names.add(filters.get(i).name);
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * Factory of the predicate of a filter.
+     *
+     * @param <T> the type parameter
+     * @param <P> the parameter type
+     */
+    @FunctionalInterface
+    interface PredicateFactory<T, P> {
+        /**
+         * Creates the predicate.
+         *
+         * @param cb        the criteria builder
+         * @param root      the root
+         * @param parameter the parameter holding the filter value
+         * @return the predicate
+         */
+        Predicate create(CriteriaBuilder cb, Root<T> root, ParameterExpression<P> parameter);
+    }
+
+    /**
+     * Builder of listing filters.
+     *
+     * @param <T> the type parameter
+     * @param <F> the filter specification type
+     */
+    static final class Builder<T, F> {
+        private final List<Filter<T, F, ?>> filters = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a filter.
+         *
+         * @param <P>       the parameter type
+         * @param name      the name of the filter and its parameter
+         * @param type      the parameter type
+         * @param value     reads the value from the filter specification, null if the filter is not applied
+         * @param predicate the predicate factory
+         * @return the builder
+         */
+        <P> Builder<T, F> filter(String name,
+                                 Class<P> type,
+                                 Function<F, P> value,
+                                 PredicateFactory<T, P> predicate) {
+            Objects.requireNonNull(name);
+            Objects.requireNonNull(type);
+            Objects.requireNonNull(value);
+            Objects.requireNonNull(predicate);
+            if (filters.size() == Long.SIZE) {
+                throw new IllegalStateException("A listing supports at most " + Long.SIZE + " filters.");
+            }
+            filters.add(new Filter<>(name, type, value, predicate));
+            return this;
+        }
+
+        /**
+         * Builds the filters.
+         *
+         * @return the listing filters
+         */
+        ListingFilters<T, F> build() {
+            return new ListingFilters<>(filters);
+        }
+    }
+
+    private static final class Filter<T, F, P> {
+        private final String name;
+        private final Class<P> type;
+        private final Function<F, P> value;
+        private final PredicateFactory<T, P> predicate;
+
+        private Filter(String name, Class<P> type, Function<F, P> value, PredicateFactory<T, P> predicate) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.predicate = predicate;
+        }
+
+        private Predicate toPredicate(CriteriaBuilder cb, Root<T> root) {
+            return predicate.create(cb, root, cb.parameter(type, name));
+        }
+    }
+}
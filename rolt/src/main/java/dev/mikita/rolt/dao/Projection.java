@@ -0,0 +1,174 @@
+package dev.mikita.rolt.dao;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * What the rows of a listing are selected as.
+ * <p>
+ * The entity projection loads managed entities, together with the associations it fetches. A constructor projection selects only the listed paths and passes
+ * them to a constructor of an unmanaged type, so no entity enters the persistence context and only the listed
+ * columns are read; ids of referenced entities are read from the foreign key columns without a join.
+ *
+ * @param <T> the type parameter
+ * @param <D> the row type
+ */
+final class Projection<T, D> {
+    private final String name;
+    private final Class<D> type;
+    private final Function<Root<T>, List<Selection<?>>> arguments;
+    private final Consumer<Root<T>> fetches;
+    private volatile Constructor<?> constructor;
+
+    private Projection(String name,
+                       Class<D> type,
+                       Function<Root<T>, List<Selection<?>>> arguments,
+                       Consumer<Root<T>> fetches) {
+        this.name = name;
+        this.type = type;
+        this.arguments = arguments;
+        this.fetches = fetches;
+    }
+
+    /**
+     * Creates the projection selecting entities.
+     *
+     * @param <T>  the type parameter
+     * @param type the entity type
+     * @return the projection
+     */
+    static <T> Projection<T, T> entity(Class<T> type) {
+        return entity(type, root -> {
+        });
+    }
+
+    /**
+     * Creates the projection selecting entities together with their associations.
+     * <p>
+     * Associations that are not fetched are loaded by a statement per row once they are read, so a listing should
+     * fetch every association its callers read. Fetched associations are joined by the statement selecting the
+     * rows, which only returns the same rows as long as they are to-one associations.
+     *
+     * @param <T>     the type parameter
+     * @param type    the entity type
+     * @param fetches adds the fetch joins to the root
+     * @return the projection
+     */
+    static <T> Projection<T, T> entity(Class<T> type, Consumer<Root<T>> fetches) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(fetches);
+        return new Projection<>("entity", type, null, fetches);
+    }
+
+    /**
+     * Creates a projection selecting paths into a constructor.
+     * <p>
+     * Properties the listing is sorted by must be readable from the constructed rows by the same names.
+     *
+     * @param <T>       the type parameter
+     * @param <D>       the row type
+     * @param type      the row type, with a single public constructor taking as many arguments as there are paths
+     * @param arguments the paths passed to the constructor, in order
+     * @return the projection
+     */
+    static <T, D> Projection<T, D> construct(Class<D> type, Function<Root<T>, List<Selection<?>>> arguments) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(arguments);
+        return new Projection<>(type.getName(), type, arguments, null);
+    }
+
+    /**
+     * Gets name.
+     *
+     * @return the name identifying the projection in query plans
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Gets type.
+     *
+     * @return the row type
+     */
+    Class<D> getType() {
+        return type;
+    }
+
+    /**
+     * Checks if the rows are entities.
+     *
+     * @return true if the rows are entities
+     */
+    boolean selectsEntities() {
+        return arguments == null;
+    }
+
+    /**
+     * Creates the selection of a row.
+     *
+     * @param cb   the criteria builder
+     * @param root the root
+     * @return the selection
+     */
+    @SuppressWarnings("unchecked")
+    Selection<? extends D> select(CriteriaBuilder cb, Root<T> root) {
+        if (arguments == null) {
+            fetches.accept(root);
+            return (Selection<D>) root;
+        }
+        return cb.construct(type, arguments.apply(root).toArray(new Selection<?>[0]));
+    }
+
+    /**
+     * Creates the selections of the columns of a row, to be selected along with other expressions.
+     * <p>
+     * Constructor selections cannot be combined with other selections, so the columns are selected one by one and
+     * the row is built by {@link #fromColumns(Object[])}.
+     *
+     * @param root the root
+     * @return the selections
+     */
+    List<Selection<?>> columns(Root<T> root) {
+        if (arguments == null) {
+            fetches.accept(root);
+            return List.of(root);
+        }
+        return arguments.apply(root);
+    }
+
+    /**
+     * Builds a row from the values of its columns.
+     *
+     * @param values the values of the columns, further values are ignored
+     * @return the row
+     */
+    D fromColumns(Object[] values) {
+        if (arguments == null) {
+            return type.cast(values[0]);
+        }
+
+        Constructor<?> c = constructor;
+        if (c == null) {
+            c = constructor = Arrays.stream(type.getConstructors())
+                    .filter(candidate -> candidate.getParameterCount() > 0)
+                    .reduce((a, b) -> {
+                        throw new IllegalStateException(type.getName() + " has more than one constructor with arguments.");
+                    })
+                    .orElseThrow(() -> new IllegalStateException(type.getName() + " has no constructor with arguments."));
+        }
+        try {
+            return type.cast(c.newInstance(Arrays.copyOf(values, c.getParameterCount())));
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot construct " + type.getName() + ".", e);
+        }
+    }
+}
@@ -1,17 +1,14 @@
 package dev.mikita.rolt.dao;
 
+import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.exception.PersistenceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -19,140 +16,202 @@ import java.util.Objects;
  */
 @Repository
 public class PropertyDao extends BaseDao<Property> {
+    private static final ListingFilters<Property, PropertyFilter> FILTERS = ListingFilters.<Property, PropertyFilter>builder()
+            .filter("status", PublicationStatus.class, PropertyFilter::getStatus,
+                    (cb, property, status) -> cb.equal(property.get(Property_.status), status))
+            .filter("cityId", Integer.class, PropertyFilter::getCityId,
+                    (cb, property, cityId) -> cb.equal(property.get(Property_.city).get(City_.id), cityId))
+            .filter("propertyType", PropertyType.class, PropertyFilter::getPropertyType,
+                    (cb, property, propertyType) -> cb.equal(property.get(Property_.type), propertyType))
+            .filter("minSquare", Double.class, PropertyFilter::getMinSquare,
+                    (cb, property, minSquare) -> cb.greaterThanOrEqualTo(property.get(Property_.square), minSquare))
+            .filter("maxSquare", Double.class, PropertyFilter::getMaxSquare,
+                    (cb, property, maxSquare) -> cb.lessThanOrEqualTo(property.get(Property_.square), maxSquare))
+            .filter("isAvailable", Boolean.class, PropertyFilter::getIsAvailable,
+                    (cb, property, isAvailable) -> cb.equal(property.get(Property_.isAvailable), isAvailable))
+            .filter("ownerId", Integer.class, PropertyFilter::getOwnerId,
+                    (cb, property, ownerId) -> cb.equal(property.get(Property_.owner).get(Landlord_.id), ownerId))
+            .filter("ids", Collection.class, PropertyFilter::getIds,
+                    (cb, property, ids) -> property.get(Property_.id).in(ids))
+            .filter("excludedIds", Collection.class, PropertyFilter::getExcludedIds,
+                    (cb, property, excludedIds) -> cb.not(property.get(Property_.id).in(excludedIds)))
+            .build();
+
+    private static final Projection<Property, Property> ENTITY = Projection.entity(Property.class, property -> {
+        property.fetch(Property_.owner);
+        property.fetch(Property_.city);
+    });
+
+    private static final Projection<Property, ResponsePublicPropertyDto> PUBLIC = Projection.construct(
+            ResponsePublicPropertyDto.class, property -> List.of(
+                    property.get(Property_.id),
+                    property.get(Property_.owner).get(Landlord_.id),
+                    property.get(Property_.createdOn),
+                    property.get(Property_.updatedOn),
+                    property.get(Property_.type),
+                    property.get(Property_.isAvailable),
+                    property.get(Property_.square),
+                    property.get(Property_.description),
+                    property.get(Property_.street),
+                    property.get(Property_.postalCode),
+                    property.get(Property_.city).get(City_.id)));
+
+    /**
+     * Find the ids of the properties.
+     *
+     * @param filter the filter
+     * @return the ids
+     */
+    public List<Integer> findIds(PropertyFilter filter) {
+        Objects.requireNonNull(filter);
+        return findIds(FILTERS.restrict(filter));
+    }
+
     /**
      * Find all page.
      *
      * @param pageable the pageable
-     * @param filters  the filters
+     * @param filter   the filter
      * @return the page
      */
-    public Page<Property> findAll(Pageable pageable, Map<String, Object> filters) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
-
-        try {
-            List<Property> result = ((TypedQuery<Property>) createFindAllQuery(pageable, filters, false)).getResultList();
-            Long count = ((TypedQuery<Long>) createFindAllQuery(pageable, filters, true)).getSingleResult();
-
-            return new PageImpl<>(result, pageable, count);
-        } catch (RuntimeException e) {
-            throw new PersistenceException(e);
-        }
+    public CountedPage<Property> findAll(Pageable pageable, PropertyFilter filter) {
+        return findAll(pageable, filter, CountMode.QUERY);
     }
 
     /**
-     * Creates a findAll query.
-     * @param pageable pageable
-     * @param filters filters
-     * @param count count
-     * @return query
+     * Find all page.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
      */
-    private TypedQuery<?> createFindAllQuery(Pageable pageable, Map<String, Object> filters, boolean count) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
-
-        // Main Query
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery cq;
-        if (count) {
-            cq = cb.createQuery(Long.class);
-        } else {
-            cq = cb.createQuery(Property.class);
-        }
-        Root<Property> property = cq.from(Property.class);
-
-        // Filters
-        List<Predicate> predicates = new ArrayList<>();
-
-        ParameterExpression<Enum> status = null;
-        if (filters.containsKey("status")) {
-            status = cb.parameter(Enum.class);
-            predicates.add(cb.equal(property.get(Property_.status), status));
-        }
-
-        ParameterExpression<City> city = null;
-        if (filters.containsKey("cityId")) {
-            city = cb.parameter(City.class);
-            predicates.add(cb.equal(property.get(Property_.city), city));
-        }
-
-        ParameterExpression<Enum> propertyType = null;
-        if (filters.containsKey("propertyType")) {
-            propertyType = cb.parameter(Enum.class);
-            predicates.add(cb.equal(property.get(Property_.type), propertyType));
-        }
-
-        ParameterExpression<Double> minSquare = null;
-        if (filters.containsKey("minSquare")) {
-            minSquare = cb.parameter(Double.class);
-            predicates.add(cb.greaterThanOrEqualTo(property.get(Property_.square), minSquare));
-        }
-
-        ParameterExpression<Double> maxSquare = null;
-        if (filters.containsKey("maxSquare")) {
-            maxSquare = cb.parameter(Double.class);
-            predicates.add(cb.lessThanOrEqualTo(property.get(Property_.square), maxSquare));
-        }
-
-        ParameterExpression<Boolean> isAvailable = null;
-        if (filters.containsKey("isAvailable")) {
-            isAvailable = cb.parameter(Boolean.class);
-            predicates.add(cb.equal(property.get(Property_.isAvailable), isAvailable));
-        }
-
-        ParameterExpression<Landlord> owner = null;
-        if (filters.containsKey("ownerId")) {
-            owner = cb.parameter(Landlord.class);
-            predicates.add(cb.equal(property.get(Property_.owner), owner));
-        }
-
-        if (!predicates.isEmpty()) {
-            cq.where(cb.and(predicates.toArray(new Predicate[0])));
-        }
-
-        TypedQuery<?> query;
-
-        if (count) {
-            cq.select(cb.count(property));
-            query = em.createQuery(cq);
-        } else {
-            cq.orderBy(QueryUtils.toOrders(pageable.getSort(), property, cb));
-            cq.select(property);
+    public CountedPage<Property> findAll(Pageable pageable, PropertyFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, FILTERS.restrict(filter), countMode, ENTITY);
+    }
 
-            query = em.createQuery(cq)
-                    .setMaxResults(pageable.getPageSize())
-                    .setFirstResult((int) pageable.getOffset());
-        }
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<Property> findSlice(Pageable pageable, PropertyFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, FILTERS.restrict(filter), ENTITY);
+    }
 
-        // Setting up parameters
-        if (status != null) {
-            query.setParameter(status, PublicationStatus.valueOf(String.valueOf(filters.get("status"))));
-        }
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<Property> findAll(Pageable pageable, Cursor cursor, PropertyFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, FILTERS.restrict(filter), ENTITY);
+    }
 
-        if (city != null) {
-            query.setParameter(city, em.getReference(City.class, filters.get("cityId")));
-        }
+    /**
+     * Find all public page.
+     * <p>
+     * Rows are selected straight into response dtos and are not managed.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<ResponsePublicPropertyDto> findAllPublic(Pageable pageable, PropertyFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, FILTERS.restrict(filter), countMode, PUBLIC);
+    }
 
-        if (propertyType != null) {
-            query.setParameter(propertyType, PropertyType.valueOf(String.valueOf(filters.get("propertyType"))));
-        }
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<ResponsePublicPropertyDto> findSlicePublic(Pageable pageable, PropertyFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, FILTERS.restrict(filter), PUBLIC);
+    }
 
-        if (minSquare != null) {
-            query.setParameter(minSquare, (Double) filters.get("minSquare"));
-        }
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<ResponsePublicPropertyDto> findAllPublic(Pageable pageable, Cursor cursor, PropertyFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, FILTERS.restrict(filter), PUBLIC);
+    }
 
-        if (maxSquare != null) {
-            query.setParameter(maxSquare, (Double) filters.get("maxSquare"));
+    /**
+     * Find favorites of a tenant.
+     * <p>
+     * Owners and cities of all the favorites are loaded by a statement each.
+     *
+     * @param tenantId the tenant id
+     * @return the favorites
+     */
+    public List<Property> findFavorites(Integer tenantId) {
+        Objects.requireNonNull(tenantId);
+        try {
+            return em.createNamedQuery("Property.findFavorites", Property.class)
+                    .setParameter("tenantId", tenantId)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        if (isAvailable != null) {
-            query.setParameter(isAvailable, (Boolean) filters.get("isAvailable"));
+    /**
+     * Find the id of the owner.
+     * <p>
+     * Reads only the foreign key, neither the property nor the owner is loaded.
+     *
+     * @param id the property id
+     * @return the owner id or null, if the property does not exist
+     */
+    public Integer findOwnerId(Integer id) {
+        Objects.requireNonNull(id);
+        try {
+            return em.createNamedQuery("Property.findOwnerId", Integer.class).setParameter("id", id)
+                    .getResultStream().findFirst().orElse(null);
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        if (owner != null) {
-            query.setParameter(owner, em.getReference(Landlord.class, filters.get("ownerId")));
+    /**
+     * Marks all properties of an owner as deleted and unavailable with a single statement.
+     * <p>
+     * Neither the owner nor the properties are loaded. Properties already managed by the persistence context keep
+     * their state, the shared cache drops all properties.
+     *
+     * @param ownerId the owner id
+     * @return the number of removed properties
+     */
+    public int removeAllByOwner(Integer ownerId) {
+        Objects.requireNonNull(ownerId);
+        try {
+            return em.createNamedQuery("Property.removeAllByOwner")
+                    .setParameter("ownerId", ownerId)
+                    .setParameter("deleted", PublicationStatus.DELETED)
+                    .setParameter("now", LocalDateTime.now())
+                    .executeUpdate();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
-
-        return query;
     }
 }
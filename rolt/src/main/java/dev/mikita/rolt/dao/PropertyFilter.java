@@ -0,0 +1,24 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.entity.PropertyType;
+import dev.mikita.rolt.entity.PublicationStatus;
+import lombok.Builder;
+import lombok.Value;
+import java.util.Collection;
+
+/**
+ * Filter of property listings. Criteria left null are not applied.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PropertyFilter {
+    PublicationStatus status;
+    Integer cityId;
+    PropertyType propertyType;
+    Double minSquare;
+    Double maxSquare;
+    Boolean isAvailable;
+    Integer ownerId;
+    Collection<Integer> ids;
+    Collection<Integer> excludedIds;
+}
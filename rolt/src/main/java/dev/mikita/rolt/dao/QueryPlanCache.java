@@ -0,0 +1,170 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.cache.BoundedCache;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.queries.ReadQuery;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Cache of compiled listing queries.
+ * <p>
+ * A criteria query is translated to SQL whenever a query is created from it. Plans cached here are translated once,
+ * the same way as named queries; every query created from a plan works on a copy, which shares the prepared SQL.
+ * Paged plans are compiled with a row limit, so the limit and the offset of a request are only bound as parameters.
+ * Hits and misses are published as {@code rolt.cache.*} meters of the {@code listing.plan} cache, and every plan
+ * times its executions as {@code rolt.listing.query} tagged by the entity, the kind of query and the applied filters.
+ */
+@Component
+public class QueryPlanCache {
+    private final BoundedCache<Key, Plan> plans;
+
+    /**
+     * Instantiates a new Query plan cache.
+     *
+     * @param maxSize the maximum number of cached plans, 0 compiles every query
+     * @param ttl     the time to live of a cached plan
+     */
+    @Autowired
+    public QueryPlanCache(@Value("${rolt.listing.plan-cache.max-size:256}") int maxSize,
+                          @Value("${rolt.listing.plan-cache.ttl:P1D}") Duration ttl) {
+        this.plans = maxSize > 0 ? new BoundedCache<>("listing.plan", maxSize, ttl) : null;
+    }
+
+    /**
+     * Creates a key of a plan.
+     *
+     * @param type        the entity type
+     * @param kind        the kind of query, such as rows or count
+     * @param restriction the restriction, only its applied filters are part of the key
+     * @param shape       other parts of the query affecting the SQL, such as the sort
+     * @return the key
+     */
+    static Key key(Class<?> type, String kind, Restriction<?> restriction, Object... shape) {
+        return new Key(type, kind, restriction.getMask(), restriction.describe(), List.of(shape));
+    }
+
+    /**
+     * Executes a query created from the cached plan, compiling the plan on the first use.
+     *
+     * @param <X>       the result type
+     * @param <R>       the type of the execution result
+     * @param em        the entity manager
+     * @param key       the key identifying the shape of the query
+     * @param paged     true if the query is executed with a first result or max results
+     * @param compiler  builds the criteria query
+     * @param execution binds the parameters and executes the query
+     * @return the execution result
+     */
+    @SuppressWarnings("unchecked")
+    <X, R> R execute(EntityManager em,
+                     Key key,
+                     boolean paged,
+                     Function<CriteriaBuilder, CriteriaQuery<X>> compiler,
+                     Function<TypedQuery<X>, R> execution) {
+        Objects.requireNonNull(key);
+        if (plans == null) {
+            final TypedQuery<X> query = em.createQuery(compiler.apply(em.getCriteriaBuilder()));
+            return timer(key).record(() -> execution.apply(query));
+        }
+
+        final JpaEntityManager entityManager = em.unwrap(JpaEntityManager.class);
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            final DatabaseQuery query = (DatabaseQuery) em.createQuery(compiler.apply(em.getCriteriaBuilder()))
+                    .unwrap(DatabaseQuery.class).clone();
+            if (paged) {
+                ((ReadQuery) query).setMaxRows(1);
+            }
+            query.checkPrepare((AbstractSession) entityManager.getServerSession(), new DatabaseRecord());
+            plan = new Plan(query, timer(key));
+            plans.put(key, plan);
+        }
+
+        final TypedQuery<X> query = (TypedQuery<X>) entityManager.createQuery(plan.query);
+        return plan.timer.record(() -> execution.apply(query));
+    }
+
+    /**
+     * Gets hit count.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return plans == null ? 0 : plans.getHitCount();
+    }
+
+    /**
+     * Gets miss count.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return plans == null ? 0 : plans.getMissCount();
+    }
+
+    private static Timer timer(Key key) {
+        return Timer.builder("rolt.listing.query")
+                .description("Executions of listing queries by plan")
+                .tag("entity", key.type.getSimpleName())
+                .tag("kind", key.kind)
+                .tag("filters", key.filters)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Key of a plan.
+     */
+    static final class Key {
+        private final Class<?> type;
+        private final String kind;
+        private final long mask;
+        private final String filters;
+        private final List<Object> shape;
+
+        private Key(Class<?> type, String kind, long mask, String filters, List<Object> shape) {
+            this.type = Objects.requireNonNull(type);
+            this.kind = Objects.requireNonNull(kind);
+            this.mask = mask;
+            this.filters = filters;
+            this.shape = shape;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return mask == key.mask && type.equals(key.type) && kind.equals(key.kind) && shape.equals(key.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, kind, mask, shape);
+        }
+    }
+
+    private static final class Plan {
+        private final DatabaseQuery query;
+        private final Timer timer;
+
+        private Plan(DatabaseQuery query, Timer timer) {
+            this.query = query;
+            this.timer = timer;
+        }
+    }
+}
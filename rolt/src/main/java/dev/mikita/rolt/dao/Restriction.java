@@ -0,0 +1,72 @@
+package dev.mikita.rolt.dao;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restriction of a listing query by a combination of its filters.
+ *
+ * @param <T> the type parameter
+ */
+final class Restriction<T> {
+    private final ListingFilters<T, ?> filters;
+    private final long mask;
+    private final Map<String, Object> parameters;
+
+    /**
+     * Instantiates a new Restriction.
+     *
+     * @param filters    the filters of the listing
+     * @param mask       the mask of applied filters
+     * @param parameters the parameter values of applied filters
+     */
+    Restriction(ListingFilters<T, ?> filters, long mask, Map<String, Object> parameters) {
+        this.filters = filters;
+        this.mask = mask;
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Creates the predicates of the query.
+     * <p>
+     * Predicates refer to values only through named parameters, so equal masks give equal queries.
+     *
+     * @param cb   the criteria builder
+     * @param root the root
+     * @return the predicates
+     */
+    List<Predicate> toPredicates(CriteriaBuilder cb, Root<T> root) {
+        return filters.toPredicates(cb, root, mask);
+    }
+
+    /**
+     * Names the applied filters.
+     *
+     * @return the names of the applied filters joined by commas, or "none"
+     */
+    String describe() {
+        return filters.describe(mask);
+    }
+
+    /**
+     * Gets mask.
+     *
+     * @return the mask of applied filters
+     */
+    long getMask() {
+        return mask;
+    }
+
+    /**
+     * Gets parameters.
+     *
+     * @return the parameter values by parameter name
+     */
+    Map<String, Object> getParameters() {
+        return parameters;
+    }
+}
@@ -1,17 +1,25 @@
 package dev.mikita.rolt.dao;
 
+import dev.mikita.rolt.dto.review.ResponsePublicReviewDto;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.exception.PersistenceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.JNDIConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.stereotype.Repository;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
+import javax.persistence.LockModeType;
+import javax.persistence.criteria.Fetch;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -19,22 +27,179 @@ import java.util.Objects;
  */
 @Repository
 public class ReviewDao extends BaseDao<Review> {
+    private static final Logger LOG = LoggerFactory.getLogger(ReviewDao.class);
+
+    /**
+     * Creates the subject index on tables created before the subject column, the generated schema only indexes new
+     * tables.
+     */
+    private static final String SUBJECT_INDEX = "CREATE INDEX IF NOT EXISTS rolt_review_subject_idx"
+            + " ON rolt_review (subject_id, status, created_on, id)";
+
+    /**
+     * Creates the subject index on PostgreSQL without blocking writes to the reviews while it is built.
+     */
+    private static final String SUBJECT_INDEX_CONCURRENTLY = "CREATE INDEX CONCURRENTLY IF NOT EXISTS"
+            + " rolt_review_subject_idx ON rolt_review (subject_id, status, created_on, id)";
+
+    /**
+     * Tells whether a concurrent build of the subject index failed and left it invalid, it is then dropped and built
+     * again.
+     */
+    private static final String SUBJECT_INDEX_INVALID = "SELECT COUNT(*) FROM pg_index"
+            + " WHERE indexrelid = to_regclass('rolt_review_subject_idx') AND NOT indisvalid";
+
+    /**
+     * Sets the subject of the reviews in a range of ids stored before the subject column to the party other than the
+     * author.
+     */
+    private static final String SUBJECT_BACKFILL = "UPDATE rolt_review SET subject_id = ("
+            + "SELECT CASE WHEN c.tenant_id = rolt_review.author_id THEN p.owner_id ELSE c.tenant_id END"
+            + " FROM rolt_contract c JOIN rolt_property p ON p.id = c.property_id WHERE c.id = rolt_review.contract_id)"
+            + " WHERE subject_id IS NULL AND id BETWEEN ? AND ?";
+
+    /**
+     * The key of the advisory lock held by the node backfilling subjects, so other nodes starting at the same time
+     * leave it to that one.
+     */
+    private static final long BACKFILL_LOCK = 0x726f6c74_72657669L;
+
+    /**
+     * The number of review ids backfilled by one transaction.
+     */
+    private static final int BACKFILL_CHUNK = 1000;
+
+    private static final ListingFilters<Review, ReviewFilter> FILTERS = ListingFilters.<Review, ReviewFilter>builder()
+            .filter("status", PublicationStatus.class, ReviewFilter::getStatus,
+                    (cb, review, status) -> cb.equal(review.get(Review_.status), status))
+            .filter("authorId", Integer.class, ReviewFilter::getAuthorId,
+                    (cb, review, authorId) -> cb.equal(review.get(Review_.author).get(Consumer_.id), authorId))
+            .filter("reviewedId", Integer.class, ReviewFilter::getReviewedId,
+                    (cb, review, reviewedId) -> cb.equal(review.get(Review_.subject).get(Consumer_.id), reviewedId))
+            .filter("contractId", Integer.class, ReviewFilter::getContractId,
+                    (cb, review, contractId) -> cb.equal(review.get(Review_.contract).get(Contract_.id), contractId))
+            .build();
+
+    private static final Projection<Review, Review> ENTITY = Projection.entity(Review.class, review -> {
+        final Fetch<Review, Contract> contract = review.fetch(Review_.contract);
+        final Fetch<Contract, Property> property = contract.fetch(Contract_.property);
+        property.fetch(Property_.owner);
+        property.fetch(Property_.city);
+        contract.fetch(Contract_.tenant);
+        review.fetch(Review_.author);
+    });
+
+    private static final Projection<Review, ResponsePublicReviewDto> PUBLIC = Projection.construct(
+            ResponsePublicReviewDto.class, review -> List.of(
+                    review.get(Review_.id),
+                    review.get(Review_.author).get(Consumer_.id),
+                    review.get(Review_.createdOn),
+                    review.get(Review_.updatedOn),
+                    review.get(Review_.contract).get(Contract_.id),
+                    review.get(Review_.description),
+                    review.get(Review_.rating)));
+
     /**
      * Find all page.
      *
      * @param pageable the pageable
-     * @param filters  the filters
+     * @param filter   the filter
      * @return the page
      */
-    public Page<Review> findAll(Pageable pageable, Map<String, Object> filters) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
+    public CountedPage<Review> findAll(Pageable pageable, ReviewFilter filter) {
+        return findAll(pageable, filter, CountMode.QUERY);
+    }
 
-        try {
-            List<Review> result = ((TypedQuery<Review>) createFindAllQuery(pageable, filters, false)).getResultList();
-            Long count = ((TypedQuery<Long>) createFindAllQuery(pageable, filters, true)).getSingleResult();
+    /**
+     * Find all page.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<Review> findAll(Pageable pageable, ReviewFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, FILTERS.restrict(filter), countMode, ENTITY);
+    }
+
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<Review> findSlice(Pageable pageable, ReviewFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, FILTERS.restrict(filter), ENTITY);
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<Review> findAll(Pageable pageable, Cursor cursor, ReviewFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, FILTERS.restrict(filter), ENTITY);
+    }
 
-            return new PageImpl<>(result, pageable, count);
+    /**
+     * Find all public page.
+     * <p>
+     * Rows are selected straight into response dtos and are not managed.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<ResponsePublicReviewDto> findAllPublic(Pageable pageable, ReviewFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, FILTERS.restrict(filter), countMode, PUBLIC);
+    }
+
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<ResponsePublicReviewDto> findSlicePublic(Pageable pageable, ReviewFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, FILTERS.restrict(filter), PUBLIC);
+    }
+
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<ResponsePublicReviewDto> findAllPublic(Pageable pageable, Cursor cursor, ReviewFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, FILTERS.restrict(filter), PUBLIC);
+    }
+
+    /**
+     * Finds the stored review and locks it until the transaction ends.
+     * <p>
+     * The review is read from the database even if it is managed, so concurrent changes are seen one after another.
+     *
+     * @param id the review id
+     * @return the review or null, if it does not exist
+     */
+    public Review findForUpdate(Integer id) {
+        Objects.requireNonNull(id);
+        try {
+            return em.find(Review.class, id, LockModeType.PESSIMISTIC_WRITE);
         } catch (RuntimeException e) {
             throw new PersistenceException(e);
         }
@@ -62,98 +227,129 @@ public class ReviewDao extends BaseDao<Review> {
     }
 
     /**
-     * Creates a findAll query.
-     * @param pageable pageable
-     * @param filters filters
-     * @param count count
-     * @return query
+     * Marks all reviews of an author as deleted with a single statement.
+     * <p>
+     * Neither the author nor the reviews are loaded. Reviews already managed by the persistence context keep their
+     * state, the shared cache drops all reviews.
+     *
+     * @param authorId the author id
+     * @return the number of removed reviews
      */
-    private TypedQuery<?> createFindAllQuery(Pageable pageable, Map<String, Object> filters, boolean count) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
-
-        // Main Query
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery cq;
-        if (count) {
-            cq = cb.createQuery(Long.class);
-        } else {
-            cq = cb.createQuery(Review.class);
-        }
-        Root<Review> review = cq.from(Review.class);
-
-        // Filters
-        List<Predicate> predicates = new ArrayList<>();
-
-        ParameterExpression<Enum> status = null;
-        if (filters.containsKey("status")) {
-            status = cb.parameter(Enum.class);
-            predicates.add(cb.equal(review.get(Review_.status), status));
-        }
-
-        ParameterExpression<Consumer> author = null;
-        if (filters.containsKey("authorId")) {
-            author = cb.parameter(Consumer.class);
-            predicates.add(cb.equal(review.get(Review_.author), author));
-        }
-
-        ParameterExpression<Consumer> reviewed = null;
-        if (filters.containsKey("reviewedId")) {
-            reviewed = cb.parameter(Consumer.class);
-
-            Predicate tenantOrOwner = cb.or(
-                    cb.equal(review.get(Review_.contract).get(Contract_.tenant), reviewed),
-                    cb.equal(review.get(Review_.contract).get(Contract_.property).get(Property_.owner), reviewed));
-            Predicate notEqualPredicate = cb.notEqual(review.get(Review_.author), reviewed);
-
-            predicates.add(tenantOrOwner);
-            predicates.add(notEqualPredicate);
-        }
-
-        ParameterExpression<Contract> contract = null;
-        if (filters.containsKey("contractId")) {
-            contract = cb.parameter(Contract.class);
-            predicates.add(cb.equal(review.get(Review_.contract), contract));
-        }
-
-        if (!predicates.isEmpty()) {
-            cq.where(cb.and(predicates.toArray(new Predicate[0])));
+    public int removeAllByAuthor(Integer authorId) {
+        Objects.requireNonNull(authorId);
+        try {
+            return em.createNamedQuery("Review.removeAllByAuthor")
+                    .setParameter("authorId", authorId)
+                    .setParameter("deleted", PublicationStatus.DELETED)
+                    .executeUpdate();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        TypedQuery<?> query;
-
-        if (count) {
-            cq.select(cb.count(review));
-            query = em.createQuery(cq);
-        } else {
-            cq.orderBy(QueryUtils.toOrders(pageable.getSort(), review, cb));
-            cq.select(review);
-
-            query = em.createQuery(cq)
-                    .setMaxResults(pageable.getPageSize())
-                    .setFirstResult((int) pageable.getOffset());
+    /**
+     * Find the ratings of the reviews of an author.
+     * <p>
+     * Reads only the foreign keys and the ratings, no review or contract is loaded.
+     *
+     * @param authorId the author id
+     * @param status   the status of the reviews
+     * @return the tenant id, the landlord id and the rating of every review
+     */
+    public List<Object[]> findRatingsByAuthor(Integer authorId, PublicationStatus status) {
+        Objects.requireNonNull(authorId);
+        Objects.requireNonNull(status);
+        try {
+            return em.createNamedQuery("Review.findRatingsByAuthor", Object[].class)
+                    .setParameter("authorId", authorId)
+                    .setParameter("status", status)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        // Setting up parameters
-        if (status != null) {
-            query.setParameter(status, PublicationStatus.valueOf(String.valueOf(filters.get("status"))));
+    /**
+     * Counts the reviews of a range of consumers per rating.
+     * <p>
+     * A consumer is reviewed by the reviews of their contracts, as a tenant or a landlord, written by someone else.
+     *
+     * @param first  the first consumer id of the range
+     * @param last   the last consumer id of the range
+     * @param status the status of the counted reviews
+     * @return the consumer id, the rating and the number of reviews, a consumer may appear in several rows of a rating
+     */
+    public List<Object[]> countRatings(int first, int last, PublicationStatus status) {
+        Objects.requireNonNull(status);
+        try {
+            final List<Object[]> rows = new ArrayList<>();
+            // Either side is served by its own index, an OR of both join paths would not be
+            for (String name : List.of("Review.countTenantRatings", "Review.countLandlordRatings")) {
+                rows.addAll(em.createNamedQuery(name, Object[].class)
+                        .setParameter("first", first)
+                        .setParameter("last", last)
+                        .setParameter("status", status)
+                        .getResultList());
+            }
+            return rows;
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
+    }
 
-        // Setting up parameters
-        if (author != null) {
-            query.setParameter(author, em.getReference(Consumer.class, filters.get("authorId")));
+    /**
+     * Creates the subject index and sets the subject of reviews stored before it.
+     * <p>
+     * Reviews are updated in ranges of ids, each in its own transaction, so a large table is neither locked at once
+     * nor rewritten by a single statement. On PostgreSQL the index is built concurrently, writes are not blocked, and
+     * only the node holding an advisory lock does the work, other nodes starting at the same time skip it. Statements
+     * failing are logged, reviews without a subject are not listed as reviews about a consumer until the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSubjects() {
+        final boolean postgreSQL = isPostgreSQL();
+        // A connection to the database of the session, the session lock is held by the connection, so every
+        // statement runs on it, each in its own transaction
+        try (Connection connection = ((JNDIConnector) em.getEntityManagerFactory().unwrap(JpaEntityManagerFactory.class)
+                .getServerSession().getLogin().getConnector()).getDataSource().getConnection()) {
+            connection.setAutoCommit(true);
+            backfillSubjects(new JdbcTemplate(new SingleConnectionDataSource(connection, true)), postgreSQL);
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Subjects of reviews are not backfilled.", e);
         }
+    }
 
-        // Setting up parameters
-        if (reviewed != null) {
-            query.setParameter(reviewed, em.getReference(Consumer.class, filters.get("reviewedId")));
+    private void backfillSubjects(JdbcTemplate jdbc, boolean postgreSQL) {
+        if (postgreSQL && !Boolean.TRUE.equals(
+                jdbc.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, BACKFILL_LOCK))) {
+            LOG.info("Subjects of reviews are backfilled by another node.");
+            return;
         }
+        try {
+            if (postgreSQL) {
+                if (jdbc.queryForObject(SUBJECT_INDEX_INVALID, Long.class) > 0) {
+                    jdbc.execute("DROP INDEX CONCURRENTLY rolt_review_subject_idx");
+                }
+                jdbc.execute(SUBJECT_INDEX_CONCURRENTLY);
+            } else {
+                jdbc.execute(SUBJECT_INDEX);
+            }
 
-        // Setting up parameters
-        if (contract != null) {
-            query.setParameter(contract, em.getReference(Contract.class, filters.get("contractId")));
+            final Object[] range = em.createNamedQuery("Review.findIdRangeWithoutSubject", Object[].class)
+                    .getSingleResult();
+            if (range[0] == null) {
+                return;
+            }
+            long updated = 0;
+            for (long first = (Integer) range[0]; first <= (Integer) range[1]; first += BACKFILL_CHUNK) {
+                final long last = Math.min(first + BACKFILL_CHUNK - 1, (Integer) range[1]);
+                updated += jdbc.update(SUBJECT_BACKFILL, (int) first, (int) last);
+            }
+            LOG.info("Set the subject of {} reviews.", updated);
+        } finally {
+            if (postgreSQL) {
+                jdbc.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, BACKFILL_LOCK);
+            }
         }
-
-        return query;
     }
 }
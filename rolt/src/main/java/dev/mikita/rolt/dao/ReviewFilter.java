@@ -0,0 +1,19 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.entity.PublicationStatus;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Filter of review listings. Criteria left null are not applied.
+ * <p>
+ * The reviewed consumer matches reviews of contracts the consumer is a party of, written by the other party.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ReviewFilter {
+    PublicationStatus status;
+    Integer authorId;
+    Integer reviewedId;
+    Integer contractId;
+}
@@ -5,42 +5,74 @@ import dev.mikita.rolt.entity.ConsumerStatus;
 import dev.mikita.rolt.entity.Tenant;
 import dev.mikita.rolt.entity.Tenant_;
 import dev.mikita.rolt.exception.PersistenceException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * The type Tenant dao.
  */
 @Repository
 public class TenantDao extends BaseDao<Tenant> {
+    private static final ListingFilters<Tenant, TenantFilter> FILTERS = ListingFilters.<Tenant, TenantFilter>builder()
+            .filter("inSearch", Boolean.class, TenantFilter::getInSearch,
+                    (cb, tenant, inSearch) -> cb.equal(tenant.get(Tenant_.inSearch), inSearch))
+            .filter("status", ConsumerStatus.class, TenantFilter::getStatus,
+                    (cb, tenant, status) -> cb.equal(tenant.get(Tenant_.status), status))
+            .filter("gender", ConsumerGender.class, TenantFilter::getGender,
+                    (cb, tenant, gender) -> cb.equal(tenant.get(Tenant_.gender), gender))
+            .build();
+
     /**
      * Find all page.
      *
      * @param pageable the pageable
-     * @param filters  the filters
+     * @param filter   the filter
      * @return the page
      */
-    public Page<Tenant> findAll(Pageable pageable, Map<String, Object> filters) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
+    public CountedPage<Tenant> findAll(Pageable pageable, TenantFilter filter) {
+        return findAll(pageable, filter, CountMode.QUERY);
+    }
 
-        try {
-            List<Tenant> result = ((TypedQuery<Tenant>) createFindAllQuery(pageable, filters, false)).getResultList();
-            Long count = ((TypedQuery<Long>) createFindAllQuery(pageable, filters, true)).getSingleResult();
+    /**
+     * Find all page.
+     *
+     * @param pageable  the pageable
+     * @param filter    the filter
+     * @param countMode how the total is counted
+     * @return the page
+     */
+    public CountedPage<Tenant> findAll(Pageable pageable, TenantFilter filter, CountMode countMode) {
+        Objects.requireNonNull(filter);
+        return findPage(pageable, FILTERS.restrict(filter), countMode);
+    }
 
-            return new PageImpl<>(result, pageable, count);
-        } catch (RuntimeException e) {
-            throw new PersistenceException(e);
-        }
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    public Slice<Tenant> findSlice(Pageable pageable, TenantFilter filter) {
+        Objects.requireNonNull(filter);
+        return findSlice(pageable, FILTERS.restrict(filter));
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    public CursorPage<Tenant> findAll(Pageable pageable, Cursor cursor, TenantFilter filter) {
+        Objects.requireNonNull(filter);
+        return findCursorPage(pageable, cursor, FILTERS.restrict(filter));
     }
 
     /**
@@ -57,79 +89,12 @@ public class TenantDao extends BaseDao<Tenant> {
     }
 
     /**
-     * Creates a findAll query.
-     * @param pageable pageable
-     * @param filters filters
-     * @param count count
-     * @return query
+     * Passes all active tenants in search to the action through a database cursor, see {@link #forEach(Consumer)}.
+     *
+     * @param action the action receiving the tenants
+     * @return the number of tenants
      */
-    private TypedQuery<?> createFindAllQuery(Pageable pageable, Map<String, Object> filters, boolean count) {
-        Objects.requireNonNull(pageable);
-        Objects.requireNonNull(filters);
-
-        // Main Query
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery cq;
-        if (count) {
-            cq = cb.createQuery(Long.class);
-        } else {
-            cq = cb.createQuery(Tenant.class);
-        }
-        Root<Tenant> tenant = cq.from(Tenant.class);
-
-        // Filters
-        List<Predicate> predicates = new ArrayList<>();
-
-        ParameterExpression<Boolean> inSearch = null;
-        if (filters.containsKey("inSearch")) {
-            inSearch = cb.parameter(Boolean.class);
-            predicates.add(cb.equal(tenant.get(Tenant_.inSearch), inSearch));
-        }
-
-        ParameterExpression<Enum> status = null;
-        if (filters.containsKey("status")) {
-            status = cb.parameter(Enum.class);
-            predicates.add(cb.equal(tenant.get(Tenant_.status), status));
-        }
-
-        ParameterExpression<Enum> gender = null;
-        if (filters.containsKey("gender")) {
-            gender = cb.parameter(Enum.class);
-            predicates.add(cb.equal(tenant.get(Tenant_.gender), gender));
-        }
-
-        if (!predicates.isEmpty()) {
-            cq.where(cb.and(predicates.toArray(new Predicate[0])));
-        }
-
-        TypedQuery<?> query;
-
-        if (count) {
-            cq.select(cb.count(tenant));
-            query = em.createQuery(cq);
-        } else {
-            cq.orderBy(QueryUtils.toOrders(pageable.getSort(), tenant, cb));
-            cq.select(tenant);
-
-            query = em.createQuery(cq)
-                    .setMaxResults(pageable.getPageSize())
-                    .setFirstResult((int) pageable.getOffset());
-        }
-
-        // Setting up parameters
-        if (inSearch != null) {
-            query.setParameter(inSearch, (Boolean) filters.get("inSearch"));
-        }
-
-        if (status != null) {
-            query.setParameter(status, ConsumerStatus.valueOf(String.valueOf(filters.get("status"))));
-        }
-
-        if (gender != null) {
-            query.setParameter(gender, ConsumerGender.valueOf(String.valueOf(filters.get("gender"))));
-        }
-
-        return query;
+    public long forEachInSearch(Consumer<? super Tenant> action) {
+        return forEach(em.createQuery("SELECT t FROM Tenant t WHERE t.status = dev.mikita.rolt.entity.ConsumerStatus.ACTIVE AND t.inSearch = true", Tenant.class), action);
     }
-
 }
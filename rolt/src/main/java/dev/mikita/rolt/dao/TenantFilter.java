@@ -0,0 +1,17 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.entity.ConsumerGender;
+import dev.mikita.rolt.entity.ConsumerStatus;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Filter of tenant listings. Criteria left null are not applied.
+ */
+@Value
+@Builder(toBuilder = true)
+public class TenantFilter {
+    Boolean inSearch;
+    ConsumerStatus status;
+    ConsumerGender gender;
+}
@@ -1,7 +1,12 @@
 package dev.mikita.rolt.dao;
 
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Role;
 import dev.mikita.rolt.entity.User;
+import dev.mikita.rolt.exception.PersistenceException;
+import dev.mikita.rolt.security.model.CustomUserDetails;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -19,9 +24,92 @@ public class UserDao extends BaseDao<User> {
         Objects.requireNonNull(email);
         try {
             return em.createNamedQuery("User.findByEmail", User.class).setParameter("email", email)
-                    .getSingleResult();
+                    .getResultStream().findFirst().orElse(null);
         } catch (RuntimeException e) {
-            return null;
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Checks if a user with the email exists.
+     * <p>
+     * Reads only the id through the unique email index, no user is loaded.
+     *
+     * @param email the email
+     * @return bool
+     */
+    public boolean existsByEmail(String email) {
+        Objects.requireNonNull(email);
+        try {
+            return !em.createNamedQuery("User.findIdByEmail", Integer.class).setParameter("email", email)
+                    .setMaxResults(1).getResultList().isEmpty();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Find emails of all users.
+     *
+     * @return the emails
+     */
+    public List<String> findAllEmails() {
+        try {
+            return em.createNamedQuery("User.findAllEmails", String.class).getResultList();
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Find the principal of a user by email.
+     * <p>
+     * Selects only the columns needed for authentication, the status is joined from the consumer table
+     * by primary key, so no entity is materialized and no subclass table is touched.
+     *
+     * @param email the email
+     * @return the principal or null, if there is no user with the email
+     */
+    public CustomUserDetails findPrincipalByEmail(String email) {
+        Objects.requireNonNull(email);
+        return findPrincipal("u.email", email);
+    }
+
+    /**
+     * Find the principal of a user by id.
+     * <p>
+     * Selects the same columns as {@link #findPrincipalByEmail(String)}.
+     *
+     * @param id the user id
+     * @return the principal or null, if there is no user with the id
+     */
+    public CustomUserDetails findPrincipalById(Integer id) {
+        Objects.requireNonNull(id);
+        return findPrincipal("u.id", id);
+    }
+
+    private CustomUserDetails findPrincipal(String column, Object value) {
+        try {
+            @SuppressWarnings("unchecked")
+            final List<Object[]> rows = em.createNativeQuery(
+                    "SELECT u.id, u.email, u.password, u.role, c.status " +
+                            "FROM rolt_user u LEFT JOIN rolt_consumer c ON c.id = u.id " +
+                            "WHERE " + column + " = ?1")
+                    .setParameter(1, value)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                return null;
+            }
+
+            final Object[] row = rows.get(0);
+            return new CustomUserDetails(
+                    ((Number) row[0]).intValue(),
+                    (String) row[1],
+                    (String) row[2],
+                    Role.valueOf((String) row[3]),
+                    row[4] == null ? null : ConsumerStatus.valueOf((String) row[4]));
+        } catch (RuntimeException e) {
+            throw new PersistenceException(e);
         }
     }
 }
@@ -0,0 +1,96 @@
+package dev.mikita.rolt.dao.event;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Published when a contract was created, removed or had its property or dates changed.
+ * <p>
+ * It is published inside the changing transaction, so that listeners may act before the transaction commits.
+ */
+public class ContractChangedEvent {
+    private final Integer contractId;
+    private final Integer propertyId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    private ContractChangedEvent(Integer contractId, Integer propertyId, LocalDate startDate, LocalDate endDate) {
+        this.contractId = contractId;
+        this.propertyId = propertyId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Creates an event of a created or changed contract.
+     *
+     * @param contractId the contract id
+     * @param propertyId the property id
+     * @param startDate  the first day of the contract
+     * @param endDate    the last day of the contract
+     * @return the event
+     */
+    public static ContractChangedEvent saved(Integer contractId, Integer propertyId, LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(contractId);
+        Objects.requireNonNull(propertyId);
+        Objects.requireNonNull(startDate);
+        Objects.requireNonNull(endDate);
+        return new ContractChangedEvent(contractId, propertyId, startDate, endDate);
+    }
+
+    /**
+     * Creates an event of a removed contract.
+     *
+     * @param contractId the contract id
+     * @return the event
+     */
+    public static ContractChangedEvent removed(Integer contractId) {
+        Objects.requireNonNull(contractId);
+        return new ContractChangedEvent(contractId, null, null, null);
+    }
+
+    /**
+     * Checks if the contract was removed.
+     *
+     * @return bool
+     */
+    public boolean isRemoved() {
+        return propertyId == null;
+    }
+
+    /**
+     * Gets contract id.
+     *
+     * @return the contract id
+     */
+    public Integer getContractId() {
+        return contractId;
+    }
+
+    /**
+     * Gets property id.
+     *
+     * @return the property id, null if the contract was removed
+     */
+    public Integer getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Gets start date.
+     *
+     * @return the first day of the contract, null if the contract was removed
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Gets end date.
+     *
+     * @return the last day of the contract, null if the contract was removed
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.mikita.rolt.dao.event;
+
+import java.util.Objects;
+
+/**
+ * Published when entities of a type were created, removed or changed in a way that may move them between listings.
+ * <p>
+ * Everything that caches totals of listings of the type, its subtypes or its supertypes must drop them on this event.
+ */
+public class ListingChangedEvent {
+    private final Class<?> type;
+
+    /**
+     * Instantiates a new Listing changed event.
+     *
+     * @param type the entity type
+     */
+    public ListingChangedEvent(Class<?> type) {
+        Objects.requireNonNull(type);
+        this.type = type;
+    }
+
+    /**
+     * Gets type.
+     *
+     * @return the entity type
+     */
+    public Class<?> getType() {
+        return type;
+    }
+}
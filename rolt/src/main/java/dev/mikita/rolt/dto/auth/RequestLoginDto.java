@@ -0,0 +1,15 @@
+package dev.mikita.rolt.dto.auth;
+
+import lombok.Data;
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * The type Request login dto.
+ */
+@Data
+public class RequestLoginDto {
+    @NotEmpty(message = "Email cannot be empty.")
+    private String email;
+    @NotEmpty(message = "Password cannot be empty.")
+    private String password;
+}
@@ -0,0 +1,13 @@
+package dev.mikita.rolt.dto.auth;
+
+import lombok.Data;
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * The type Request refresh token dto.
+ */
+@Data
+public class RequestRefreshTokenDto {
+    @NotEmpty(message = "Refresh token cannot be empty.")
+    private String refreshToken;
+}
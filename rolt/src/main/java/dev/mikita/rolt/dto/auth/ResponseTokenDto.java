@@ -0,0 +1,14 @@
+package dev.mikita.rolt.dto.auth;
+
+import lombok.Data;
+
+/**
+ * The type Response token dto.
+ */
+@Data
+public class ResponseTokenDto {
+    private String accessToken;
+    private String refreshToken;
+    private String tokenType = "Bearer";
+    private Long expiresIn;
+}
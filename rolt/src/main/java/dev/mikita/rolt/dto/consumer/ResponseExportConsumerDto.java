@@ -0,0 +1,24 @@
+package dev.mikita.rolt.dto.consumer;
+
+import dev.mikita.rolt.entity.ConsumerGender;
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Role;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * The type Response export consumer dto.
+ */
+@Data
+public class ResponseExportConsumerDto {
+    private Integer id;
+    private Role role;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private ConsumerGender gender;
+    private ConsumerStatus status;
+    private LocalDateTime createdOn;
+    private LocalDateTime lastLogin;
+}
@@ -1,6 +1,8 @@
 package dev.mikita.rolt.dto.contract;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -8,6 +10,8 @@ import java.time.LocalDateTime;
  * The type Response public contract dto.
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ResponsePublicContractDto {
     private Integer id;
     private LocalDateTime createdOn;
@@ -1,13 +1,17 @@
 package dev.mikita.rolt.dto.property;
 
 import dev.mikita.rolt.entity.PropertyType;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 /**
  * The type Response public property dto.
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ResponsePublicPropertyDto {
     private Integer id;
     private Integer ownerId;
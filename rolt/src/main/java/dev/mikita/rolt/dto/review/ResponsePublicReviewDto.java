@@ -1,12 +1,16 @@
 package dev.mikita.rolt.dto.review;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 /**
  * The type Response public review dto.
  */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ResponsePublicReviewDto {
     private Integer id;
     private Integer authorId;
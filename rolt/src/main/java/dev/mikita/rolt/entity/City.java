@@ -15,7 +15,8 @@ import java.util.Objects;
 public class City implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rolt_city_seq")
+    @SequenceGenerator(name = "rolt_city_seq", sequenceName = "rolt_city_seq")
     private Integer id;
 
     @Column(name = "name", nullable = false, length = 64, unique = true)
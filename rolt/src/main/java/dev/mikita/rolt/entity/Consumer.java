@@ -8,6 +8,12 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "rolt_consumer")
+@NamedQueries({
+        @NamedQuery(name = "Consumer.findIdRange", query = "SELECT MIN(c.id), MAX(c.id) FROM Consumer c"),
+        @NamedQuery(name = "Consumer.findIdsBetween", query = "SELECT c.id FROM Consumer c WHERE c.id BETWEEN :first AND :last"),
+        @NamedQuery(name = "Consumer.countWithoutRating", query = "SELECT COUNT(c) FROM Consumer c"
+                + " WHERE NOT EXISTS (SELECT r FROM ConsumerRating r WHERE r.consumerId = c.id)")
+})
 public abstract class Consumer extends User {
     @Column(name = "first_name", nullable = false, length = 32)
     private String firstName;
@@ -121,6 +127,18 @@ public abstract class Consumer extends User {
         this.status = status;
     }
 
+    /**
+     * Checks if the consumer is authenticated and authorized the same as another state of the consumer, i.e. has
+     * also the same status.
+     *
+     * @param other the other state, may be null
+     * @return bool
+     */
+    @Override
+    public boolean hasSameSecurity(User other) {
+        return super.hasSameSecurity(other) && other instanceof Consumer && status == ((Consumer) other).status;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,185 @@
+package dev.mikita.rolt.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The rating of a consumer aggregated from the published reviews of their contracts written by the other party.
+ * <p>
+ * Reviews are counted per star, so the average and the distribution are read without touching the reviews.
+ */
+@Entity
+@Table(name = "rolt_consumer_rating")
+// Changed by bulk statements, which would invalidate the shared cache on every review anyway
+@Cacheable(false)
+@NamedQueries({
+        @NamedQuery(name = "ConsumerRating.add", query = "UPDATE ConsumerRating r SET r.sum = r.sum + :sum,"
+                + " r.count = r.count + :count, r.rating1 = r.rating1 + :rating1, r.rating2 = r.rating2 + :rating2,"
+                + " r.rating3 = r.rating3 + :rating3, r.rating4 = r.rating4 + :rating4, r.rating5 = r.rating5 + :rating5"
+                + " WHERE r.consumerId = :consumerId"),
+        @NamedQuery(name = "ConsumerRating.removeRange",
+                query = "DELETE FROM ConsumerRating r WHERE r.consumerId BETWEEN :first AND :last")
+})
+public class ConsumerRating implements Serializable {
+    /**
+     * The lowest rating of a review.
+     */
+    public static final int MIN_RATING = 1;
+
+    /**
+     * The highest rating of a review.
+     */
+    public static final int MAX_RATING = 5;
+
+    @Id
+    @Column(name = "consumer_id")
+    private Integer consumerId;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long sum;
+
+    @Column(name = "rating_count", nullable = false)
+    private long count;
+
+    @Column(name = "rating_1", nullable = false)
+    private long rating1;
+
+    @Column(name = "rating_2", nullable = false)
+    private long rating2;
+
+    @Column(name = "rating_3", nullable = false)
+    private long rating3;
+
+    @Column(name = "rating_4", nullable = false)
+    private long rating4;
+
+    @Column(name = "rating_5", nullable = false)
+    private long rating5;
+
+    /**
+     * Instantiates a new Consumer rating.
+     */
+    protected ConsumerRating() {
+    }
+
+    /**
+     * Instantiates a new Consumer rating without reviews.
+     *
+     * @param consumerId the consumer id
+     */
+    public ConsumerRating(Integer consumerId) {
+        this.consumerId = Objects.requireNonNull(consumerId);
+    }
+
+    /**
+     * Gets consumer id.
+     *
+     * @return the consumer id
+     */
+    public Integer getConsumerId() {
+        return consumerId;
+    }
+
+    /**
+     * Gets sum.
+     *
+     * @return the sum of the ratings of all counted reviews
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets count.
+     *
+     * @return the number of counted reviews
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets count of a rating.
+     *
+     * @param rating the rating
+     * @return the number of counted reviews with the rating
+     */
+    public long getCount(int rating) {
+        switch (rating) {
+            case 1:
+                return rating1;
+            case 2:
+                return rating2;
+            case 3:
+                return rating3;
+            case 4:
+                return rating4;
+            case 5:
+                return rating5;
+            default:
+                throw new IllegalArgumentException("A rating must be between " + MIN_RATING + " and " + MAX_RATING + ".");
+        }
+    }
+
+    /**
+     * Gets average.
+     *
+     * @return the average rating, or null if no review is counted
+     */
+    public Double getAverage() {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    /**
+     * Adds reviews with a rating.
+     *
+     * @param rating the rating
+     * @param delta  the number of reviews, negative to remove them
+     */
+    public void add(int rating, long delta) {
+        switch (rating) {
+            case 1:
+                rating1 += delta;
+                break;
+            case 2:
+                rating2 += delta;
+                break;
+            case 3:
+                rating3 += delta;
+                break;
+            case 4:
+                rating4 += delta;
+                break;
+            case 5:
+                rating5 += delta;
+                break;
+            default:
+                throw new IllegalArgumentException("A rating must be between " + MIN_RATING + " and " + MAX_RATING + ".");
+        }
+        sum += rating * delta;
+        count += delta;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConsumerRating)) return false;
+        ConsumerRating that = (ConsumerRating) o;
+        return consumerId.equals(that.consumerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(consumerId);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumerRating{" +
+                "consumerId=" + consumerId +
+                ", sum=" + sum +
+                ", count=" + count +
+                '}';
+    }
+}
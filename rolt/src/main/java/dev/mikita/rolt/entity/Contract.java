@@ -9,14 +9,21 @@ import java.util.Objects;
  * The type Contract.
  */
 @Entity
-@Table(name = "rolt_contract")
+@Table(name = "rolt_contract", indexes = {
+        @Index(name = "rolt_contract_property_idx", columnList = "property_id"),
+        @Index(name = "rolt_contract_tenant_idx", columnList = "tenant_id")
+})
 @NamedQueries({
-        @NamedQuery(name = "Contract.findIntersectionsByDateRange", query = "SELECT c from Contract c WHERE c.property = :property AND (:start <= c.endDate AND c.startDate <= :end)")
+        @NamedQuery(name = "Contract.findIntersectionsByDateRange", query = "SELECT c from Contract c WHERE c.property = :property AND (:start <= c.endDate AND c.startDate <= :end)"),
+        @NamedQuery(name = "Contract.findPartyIds", query = "SELECT c.tenant.id, c.property.owner.id from Contract c WHERE c.id = :id"),
+        @NamedQuery(name = "Contract.findAllDateRanges", query = "SELECT c.id, c.property.id, c.startDate, c.endDate from Contract c"),
+        @NamedQuery(name = "Contract.findBookedPropertyIds", query = "SELECT DISTINCT c.property.id from Contract c WHERE :start <= c.endDate AND c.startDate <= :end")
 })
 public class Contract {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rolt_contract_seq")
+    @SequenceGenerator(name = "rolt_contract_seq", sequenceName = "rolt_contract_seq")
     private Integer id;
 
     @Column(name = "created_on", nullable = false, columnDefinition = "TIMESTAMP")
@@ -28,11 +35,11 @@ public class Contract {
     @Column(name = "end_date", nullable = false, columnDefinition = "DATE")
     private LocalDate endDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "property_id", nullable = false)
     private Property property;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "tenant_id", nullable = false)
     private Tenant tenant;
 
@@ -1,5 +1,6 @@
 package dev.mikita.rolt.entity;
 
+import org.eclipse.persistence.config.QueryHints;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -9,11 +10,28 @@ import java.util.*;
  * The type Property.
  */
 @Entity
-@Table(name = "rolt_property")
+@Table(name = "rolt_property", indexes = {
+        @Index(name = "rolt_property_status_city_idx", columnList = "status, city"),
+        @Index(name = "rolt_property_owner_idx", columnList = "owner_id")
+})
+@NamedQueries({
+        @NamedQuery(name = "Property.findOwnerId", query = "SELECT p.owner.id from Property p WHERE p.id = :id"),
+        @NamedQuery(name = "Property.removeAllByOwner",
+                query = "UPDATE Property p SET p.status = :deleted, p.isAvailable = false, p.updatedOn = :now "
+                        + "WHERE p.owner.id = :ownerId AND p.status <> :deleted"),
+        @NamedQuery(name = "Property.findFavorites",
+                query = "SELECT p from Property p WHERE p IN (SELECT f from Tenant t JOIN t.favorites f WHERE t.id = :tenantId)",
+                hints = {
+                        @QueryHint(name = QueryHints.BATCH_TYPE, value = "IN"),
+                        @QueryHint(name = QueryHints.BATCH, value = "p.owner"),
+                        @QueryHint(name = QueryHints.BATCH, value = "p.city")
+                })
+})
 public class Property implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rolt_property_seq")
+    @SequenceGenerator(name = "rolt_property_seq", sequenceName = "rolt_property_seq")
     private Integer id;
 
     @Column(name = "created_on", nullable = false, columnDefinition = "TIMESTAMP")
@@ -22,7 +40,7 @@ public class Property implements Serializable {
     @Column(name = "updated_on", columnDefinition = "TIMESTAMP")
     private LocalDateTime updatedOn;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private Landlord owner;
 
@@ -49,7 +67,7 @@ public class Property implements Serializable {
     @Column(name = "postal_code", nullable = false, length = 16)
     private String postalCode;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "city", nullable = false)
     private City city;
 
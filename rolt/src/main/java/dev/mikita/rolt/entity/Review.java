@@ -12,14 +12,35 @@ import java.util.Objects;
 @Table(name = "rolt_review",
         uniqueConstraints = {
                 @UniqueConstraint(name="unique_author_contract", columnNames = {"author_id", "contract_id"})
+        },
+        indexes = {
+                @Index(name = "rolt_review_contract_idx", columnList = "contract_id"),
+                // Reviews about a consumer are listed newest first by a single range scan
+                @Index(name = "rolt_review_subject_idx", columnList = "subject_id, status, created_on, id")
 })
 @NamedQueries({
-        @NamedQuery(name = "Review.findByContractAndAuthor", query = "SELECT r from Review r WHERE r.contract = :contract AND r.author = :author")
+        @NamedQuery(name = "Review.findByContractAndAuthor", query = "SELECT r from Review r WHERE r.contract = :contract AND r.author = :author"),
+        @NamedQuery(name = "Review.findIdRangeWithoutSubject",
+                query = "SELECT MIN(r.id), MAX(r.id) FROM Review r WHERE r.subject IS NULL"),
+        @NamedQuery(name = "Review.removeAllByAuthor",
+                query = "UPDATE Review r SET r.status = :deleted WHERE r.author.id = :authorId AND r.status <> :deleted"),
+        @NamedQuery(name = "Review.findRatingsByAuthor",
+                query = "SELECT c.tenant.id, p.owner.id, r.rating FROM Review r JOIN r.contract c JOIN c.property p"
+                        + " WHERE r.author.id = :authorId AND r.status = :status"),
+        @NamedQuery(name = "Review.countTenantRatings",
+                query = "SELECT c.tenant.id, r.rating, COUNT(r) FROM Review r JOIN r.contract c"
+                        + " WHERE c.tenant.id BETWEEN :first AND :last AND r.author.id <> c.tenant.id AND r.status = :status"
+                        + " GROUP BY c.tenant.id, r.rating"),
+        @NamedQuery(name = "Review.countLandlordRatings",
+                query = "SELECT p.owner.id, r.rating, COUNT(r) FROM Review r JOIN r.contract c JOIN c.property p"
+                        + " WHERE p.owner.id BETWEEN :first AND :last AND r.author.id <> p.owner.id AND r.status = :status"
+                        + " GROUP BY p.owner.id, r.rating")
 })
 public class Review implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rolt_review_seq")
+    @SequenceGenerator(name = "rolt_review_seq", sequenceName = "rolt_review_seq")
     private Integer id;
 
     @Column(name = "created_on", nullable = false, columnDefinition = "TIMESTAMP")
@@ -28,14 +49,18 @@ public class Review implements Serializable {
     @Column(name = "updated_on", columnDefinition = "TIMESTAMP")
     private LocalDateTime updatedOn;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "contract_id", nullable = false)
     private Contract contract;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private Consumer author;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "subject_id")
+    private Consumer subject;
+
     @Column(name = "description", nullable = false)
     private String description;
 
@@ -102,6 +127,25 @@ public class Review implements Serializable {
         this.author = author;
     }
 
+    /**
+     * Gets subject.
+     *
+     * @return the consumer the review is about, the party of the contract other than the author
+     */
+    public Consumer getSubject() {
+        return subject;
+    }
+
+    /**
+     * Sets subject.
+     *
+     * @param subject the subject
+     */
+    public void setSubject(Consumer subject) {
+        Objects.requireNonNull(subject);
+        this.subject = subject;
+    }
+
     /**
      * Gets created on.
      *
@@ -215,6 +259,7 @@ public class Review implements Serializable {
         if (!author.equals(contract.getTenant()) && !author.equals(contract.getProperty().getOwner())) {
             throw new RuntimeException("The user has no right to leave feedback for this contract");
         }
+        subject = author.equals(contract.getTenant()) ? contract.getProperty().getOwner() : contract.getTenant();
     }
 
     @Override
@@ -238,6 +283,7 @@ public class Review implements Serializable {
                 ", updatedOn=" + updatedOn +
                 ", contract=" + contract +
                 ", author=" + author +
+                ", subject=" + subject +
                 ", description='" + description + '\'' +
                 ", status=" + status +
                 ", rating=" + rating +
@@ -15,12 +15,15 @@ import java.util.Objects;
 @Inheritance(strategy = InheritanceType.JOINED)
 @DiscriminatorColumn(name = "user_type")
 @NamedQueries({
-        @NamedQuery(name = "User.findByEmail", query = "SELECT u from User u WHERE u.email = :email")
+        @NamedQuery(name = "User.findByEmail", query = "SELECT u from User u WHERE u.email = :email"),
+        @NamedQuery(name = "User.findIdByEmail", query = "SELECT u.id from User u WHERE u.email = :email"),
+        @NamedQuery(name = "User.findAllEmails", query = "SELECT u.email from User u")
 })
 public abstract class User implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rolt_user_seq")
+    @SequenceGenerator(name = "rolt_user_seq", sequenceName = "rolt_user_seq")
     private Integer id;
 
     @Column(name = "email", nullable = false, length = 64, unique = true)
@@ -172,6 +175,19 @@ public abstract class User implements Serializable {
         this.role = role;
     }
 
+    /**
+     * Checks if the user is authenticated and authorized the same as another state of the user, i.e. has the same
+     * email, password and role. The state the user itself was loaded with is unknown, so the same instance is
+     * never reported the same.
+     *
+     * @param other the other state, may be null
+     * @return bool
+     */
+    public boolean hasSameSecurity(User other) {
+        return other != null && other != this && Objects.equals(email, other.email) && Objects.equals(password, other.password)
+                && role == other.role;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
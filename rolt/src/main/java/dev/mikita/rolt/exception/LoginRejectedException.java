@@ -0,0 +1,67 @@
+package dev.mikita.rolt.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import java.time.Duration;
+
+/**
+ * Indicates that a login attempt was rejected before the credentials were verified.
+ * <p>
+ * It is an {@link AuthenticationException}, so the authentication entry point turns it into a response with
+ * {@link #getStatus()} and a {@code Retry-After} header.
+ */
+public class LoginRejectedException extends AuthenticationException {
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    /**
+     * Instantiates a new Login rejected exception.
+     *
+     * @param message    the message
+     * @param status     the response status
+     * @param retryAfter the time after which the client may retry
+     */
+    public LoginRejectedException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Create an exception for a client or account exceeding its login attempts.
+     *
+     * @param retryAfter the time after which the client may retry
+     * @return the login rejected exception
+     */
+    public static LoginRejectedException throttled(Duration retryAfter) {
+        return new LoginRejectedException("Too many login attempts.", HttpStatus.TOO_MANY_REQUESTS, retryAfter);
+    }
+
+    /**
+     * Create an exception for exhausted password verification capacity.
+     *
+     * @param retryAfter the time after which the client may retry
+     * @return the login rejected exception
+     */
+    public static LoginRejectedException overloaded(Duration retryAfter) {
+        return new LoginRejectedException("Login is temporarily unavailable.", HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+    }
+
+    /**
+     * Gets status.
+     *
+     * @return the status
+     */
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets retry after.
+     *
+     * @return the retry after
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,9 +1,21 @@
 package dev.mikita.rolt.exception;
 
+import org.eclipse.persistence.exceptions.DatabaseException;
+import java.sql.SQLException;
+
 /**
  * The type Persistence exception.
  */
 public class PersistenceException extends BaseException {
+    /**
+     * Instantiates a new Persistence exception.
+     *
+     * @param message the message
+     */
+    public PersistenceException(String message) {
+        super(message);
+    }
+
     /**
      * Instantiates a new Persistence exception.
      *
@@ -22,4 +34,37 @@ public class PersistenceException extends BaseException {
     public PersistenceException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * Checks if the exception was caused by a violated integrity constraint, e.g. a unique key.
+     *
+     * @return bool
+     */
+    public boolean isConstraintViolation() {
+        final String sqlState = getSqlState();
+        // SQL state class 23 is integrity constraint violation
+        return sqlState != null && sqlState.startsWith("23");
+    }
+
+    /**
+     * Checks if the exception was caused by a violated exclusion constraint, e.g. overlapping ranges.
+     *
+     * @return bool
+     */
+    public boolean isExclusionViolation() {
+        return "23P01".equals(getSqlState());
+    }
+
+    private String getSqlState() {
+        Throwable cause = getCause();
+        while (cause != null) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+            cause = cause instanceof DatabaseException && cause.getCause() == null
+                    ? ((DatabaseException) cause).getInternalException()
+                    : cause.getCause();
+        }
+        return null;
+    }
 }
@@ -0,0 +1,138 @@
+package dev.mikita.rolt.rest;
+
+import dev.mikita.rolt.dto.auth.RequestLoginDto;
+import dev.mikita.rolt.dto.auth.RequestRefreshTokenDto;
+import dev.mikita.rolt.dto.auth.ResponseTokenDto;
+import dev.mikita.rolt.security.jwt.JwtTokenService;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import dev.mikita.rolt.service.security.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.bind.annotation.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+
+/**
+ * The type Auth controller.
+ */
+@RestController
+@RequestMapping("/rest/v1/auth")
+public class AuthController {
+    private static final Logger LOG = LoggerFactory.getLogger(AuthController.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
+    private final JwtTokenService tokenService;
+    private final WebAuthenticationDetailsSource authenticationDetailsSource = new WebAuthenticationDetailsSource();
+
+    /**
+     * Instantiates a new Auth controller.
+     *
+     * @param authenticationManager the authentication manager
+     * @param userDetailsService    the user details service
+     * @param tokenService          the token service
+     */
+    @Autowired
+    public AuthController(AuthenticationManager authenticationManager,
+                          CustomUserDetailsService userDetailsService,
+                          JwtTokenService tokenService) {
+        this.authenticationManager = authenticationManager;
+        this.userDetailsService = userDetailsService;
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Login response entity.
+     *
+     * @param loginDto the login dto
+     * @param request  the request
+     * @return the response entity
+     */
+    @PostMapping(value = "/login", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseTokenDto> login(@RequestBody @Valid RequestLoginDto loginDto, HttpServletRequest request) {
+        final UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(loginDto.getEmail(), loginDto.getPassword());
+        authentication.setDetails(authenticationDetailsSource.buildDetails(request));
+
+        final CustomUserDetails userDetails =
+                (CustomUserDetails) authenticationManager.authenticate(authentication).getPrincipal();
+        return new ResponseEntity<>(createTokens(userDetails), HttpStatus.OK);
+    }
+
+    /**
+     * Refresh response entity.
+     *
+     * @param refreshTokenDto the refresh token dto
+     * @return the response entity
+     */
+    @PostMapping(value = "/refresh", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseTokenDto> refresh(@RequestBody @Valid RequestRefreshTokenDto refreshTokenDto) {
+        final Claims claims = parse(refreshTokenDto.getRefreshToken(), JwtTokenService.REFRESH_TOKEN);
+        // The refresh token is spent before new tokens are issued, a concurrent refresh with it loses
+        if (!tokenService.revoke(claims)) {
+            throw new BadCredentialsException("Invalid refresh token.");
+        }
+
+        // Refresh is rare, so the current email, role and status are taken from the database rather than the old token
+        final CustomUserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserById(Integer.valueOf(claims.getSubject()));
+        } catch (UsernameNotFoundException | NumberFormatException e) {
+            throw new BadCredentialsException("Invalid refresh token.", e);
+        }
+        return new ResponseEntity<>(createTokens(userDetails), HttpStatus.OK);
+    }
+
+    /**
+     * Logout response entity.
+     *
+     * @param authorization   the authorization header with the access token
+     * @param refreshTokenDto the refresh token dto
+     * @return the response entity
+     */
+    @PostMapping(value = "/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody(required = false) RequestRefreshTokenDto refreshTokenDto) {
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            tokenService.revoke(parse(authorization.substring(BEARER_PREFIX.length()), JwtTokenService.ACCESS_TOKEN));
+        }
+        if (refreshTokenDto != null && refreshTokenDto.getRefreshToken() != null) {
+            tokenService.revoke(parse(refreshTokenDto.getRefreshToken(), JwtTokenService.REFRESH_TOKEN));
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    private Claims parse(String token, String type) {
+        try {
+            return tokenService.parse(token, type);
+        } catch (JwtException e) {
+            throw new BadCredentialsException("Invalid " + type + " token.", e);
+        }
+    }
+
+    private ResponseTokenDto createTokens(CustomUserDetails userDetails) {
+        if (!userDetails.isEnabled()) {
+            throw new AccessDeniedException("The account is not active.");
+        }
+
+        final ResponseTokenDto response = new ResponseTokenDto();
+        response.setAccessToken(tokenService.createAccessToken(userDetails));
+        response.setRefreshToken(tokenService.createRefreshToken(userDetails));
+        response.setExpiresIn(tokenService.getAccessTokenTtl().toSeconds());
+        return response;
+    }
+}
@@ -1,5 +1,8 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.exception.NotFoundException;
 import dev.mikita.rolt.exception.ValidationException;
@@ -8,9 +11,9 @@ import dev.mikita.rolt.service.CityService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -47,6 +50,9 @@ public class CityController {
      *
      * @param page the page
      * @param size the size
+     * @param cursor the cursor, switches to keyset pagination when present
+     * @param total false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
      * @param name the name
      * @return the cities
      */
@@ -54,11 +60,39 @@ public class CityController {
     public ResponseEntity<Map<String, Object>> getCities(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) String name) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(
                 Sort.Order.asc("name")));
-        Page<City> pageCities = cityService.findAll(pageable, name);
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<City> cursorPageCities = cityService.findAll(pageable, Cursor.decode(cursor), name);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("cities", cursorPageCities.getContent());
+            response.put("nextCursor", cursorPageCities.getNextCursor());
+            response.put("prevCursor", cursorPageCities.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<City> sliceCities = cityService.findSlice(pageable, name);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("cities", sliceCities.getContent());
+            response.put("currentPage", sliceCities.getNumber());
+            response.put("hasNext", sliceCities.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<City> pageCities = cityService.findAll(pageable, name, approximate);
         List<City> cities = pageCities.getContent();
 
         Map<String, Object> response = new HashMap<>();
@@ -66,6 +100,7 @@ public class CityController {
         response.put("currentPage", pageCities.getNumber());
         response.put("totalItems", pageCities.getTotalElements());
         response.put("totalPages", pageCities.getTotalPages());
+        response.put("totalExact", pageCities.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
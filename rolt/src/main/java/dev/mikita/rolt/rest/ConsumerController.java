@@ -1,9 +1,17 @@
 package dev.mikita.rolt.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.ReviewFilter;
+import dev.mikita.rolt.dao.ContractFilter;
+import dev.mikita.rolt.dto.consumer.ResponseExportConsumerDto;
 import dev.mikita.rolt.dto.contract.ResponsePublicContractDto;
 import dev.mikita.rolt.dto.review.ResponsePublicReviewDto;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.exception.NotFoundException;
+import dev.mikita.rolt.rest.util.ExportFormat;
 import dev.mikita.rolt.security.model.CustomUserDetails;
 import dev.mikita.rolt.service.ConsumerService;
 import dev.mikita.rolt.service.ContractService;
@@ -12,10 +20,12 @@ import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -23,12 +33,12 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * The type Consumer controller.
@@ -41,6 +51,7 @@ public class ConsumerController {
     private ConsumerService consumerService;
     private ReviewService reviewService;
     private ContractService contractService;
+    private ObjectMapper objectMapper;
 
     /**
      * Instantiates a new Consumer controller.
@@ -48,24 +59,56 @@ public class ConsumerController {
      * @param consumerService the consumer service
      * @param reviewService   the review service
      * @param contractService the contract service
+     * @param objectMapper    the object mapper
      */
     @Autowired
     public ConsumerController(
             ConsumerService consumerService,
             ReviewService reviewService,
-            ContractService contractService) {
+            ContractService contractService,
+            ObjectMapper objectMapper) {
         this.consumerService = consumerService;
         this.reviewService = reviewService;
         this.contractService = contractService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exports all consumers, writing each one to the response as soon as it is read.
+     *
+     * @param format   the format, ndjson or csv
+     * @param response the response
+     * @throws IOException if the response cannot be written
+     */
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_MODERATOR')")
+    @GetMapping("/export")
+    public void exportConsumers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        final ExportFormat exportFormat = ExportFormat.of(format);
+        final ModelMapper modelMapper = new ModelMapper();
+
+        response.setContentType(exportFormat.getMediaType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"consumers." + exportFormat.getExtension() + "\"");
+        try (ExportFormat.RowWriter writer = exportFormat.open(response.getOutputStream(), objectMapper)) {
+            final long count = consumerService.forEach(
+                    consumer -> writer.write(modelMapper.map(consumer, ResponseExportConsumerDto.class)));
+            LOG.debug("Exported {} consumers.", count);
+        }
     }
 
     /**
      * Gets reviews.
      *
-     * @param principal the principal
-     * @param id        the id
-     * @param page      the page
-     * @param size      the size
+     * @param principal   the principal
+     * @param id          the id
+     * @param page        the page
+     * @param size        the size
+     * @param cursor      the cursor, switches to keyset pagination when present
+     * @param total       false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
      * @return the reviews
      */
     @GetMapping(value = "/{id}/reviews", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -73,31 +116,58 @@ public class ConsumerController {
             Principal principal,
             @PathVariable Integer id,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate) {
 
         final Consumer consumer = consumerService.find(id);
         if (consumer == null)
             throw NotFoundException.create("Consumer", id);
 
-        ModelMapper modelMapper = new ModelMapper();
-
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("status", PublicationStatus.PUBLISHED);
-        filters.put("reviewedId", consumer.getId());
+        ReviewFilter filter = ReviewFilter.builder()
+                .status(PublicationStatus.PUBLISHED)
+                .reviewedId(consumer.getId())
+                .build();
 
-        // Pagination and sorting
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Review> pageReviews = reviewService.findAll(pageable, filters);
-        List<Review> reviews = pageReviews.getContent();
+        // Pagination and sorting, newest first along the subject index
+        Pageable pageable = PageRequest.of(page, size, Sort.by(
+                Sort.Order.desc("createdOn"),
+                Sort.Order.desc("id")));
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicReviewDto> cursorPageReviews = reviewService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("reviews", cursorPageReviews.getContent());
+            response.put("nextCursor", cursorPageReviews.getNextCursor());
+            response.put("prevCursor", cursorPageReviews.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicReviewDto> sliceReviews = reviewService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("reviews", sliceReviews.getContent());
+            response.put("currentPage", sliceReviews.getNumber());
+            response.put("hasNext", sliceReviews.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicReviewDto> pageReviews = reviewService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("reviews", reviews.stream()
-                .map(review -> modelMapper.map(review, ResponsePublicReviewDto.class))
-                .collect(Collectors.toList()));
+        response.put("reviews", pageReviews.getContent());
         response.put("currentPage", pageReviews.getNumber());
         response.put("totalItems", pageReviews.getTotalElements());
         response.put("totalPages", pageReviews.getTotalPages());
+        response.put("totalExact", pageReviews.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -105,12 +175,15 @@ public class ConsumerController {
     /**
      * Gets contracts.
      *
-     * @param principal the principal
-     * @param id        the id
-     * @param page      the page
-     * @param size      the size
-     * @param fromDate  the fromDate
-     * @param toDate    the toDate
+     * @param principal   the principal
+     * @param id          the id
+     * @param page        the page
+     * @param size        the size
+     * @param cursor      the cursor, switches to keyset pagination when present
+     * @param total       false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
+     * @param fromDate    the fromDate
+     * @param toDate      the toDate
      * @return the contracts
      */
     @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_TENANT', 'ROLE_MODERATOR', 'ROLE_ADMIN')")
@@ -120,17 +193,19 @@ public class ConsumerController {
             @PathVariable Integer id,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN
-                || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN
+                || userDetails.getRole() != Role.MODERATOR)
+                && !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot view another consumer's contracts.");
         }
 
@@ -138,31 +213,53 @@ public class ConsumerController {
         if (consumer == null)
             throw NotFoundException.create("Consumer", id);
 
-        ModelMapper modelMapper = new ModelMapper();
-
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (fromDate != null) filters.put("fromDate", fromDate);
-        if (toDate != null) filters.put("toDate", toDate);
+        ContractFilter.ContractFilterBuilder filterBuilder = ContractFilter.builder()
+                .fromDate(fromDate)
+                .toDate(toDate);
 
         if (consumer.getRole() == Role.LANDLORD) {
-            filters.put("landlordId", id);
+            filterBuilder.landlordId(id);
         } else if (consumer.getRole() == Role.TENANT) {
-            filters.put("tenantId", id);
+            filterBuilder.tenantId(id);
         }
+        ContractFilter filter = filterBuilder.build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Contract> pageContracts = contractService.findAll(pageable, filters);
-        List<Contract> contracts = pageContracts.getContent();
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicContractDto> cursorPageContracts = contractService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("contracts", cursorPageContracts.getContent());
+            response.put("nextCursor", cursorPageContracts.getNextCursor());
+            response.put("prevCursor", cursorPageContracts.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicContractDto> sliceContracts = contractService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("contracts", sliceContracts.getContent());
+            response.put("currentPage", sliceContracts.getNumber());
+            response.put("hasNext", sliceContracts.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicContractDto> pageContracts = contractService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("contracts", contracts.stream()
-                .map(contract -> modelMapper.map(contract, ResponsePublicContractDto.class))
-                .collect(Collectors.toList()));
+        response.put("contracts", pageContracts.getContent());
         response.put("currentPage", pageContracts.getNumber());
         response.put("totalItems", pageContracts.getTotalElements());
         response.put("totalPages", pageContracts.getTotalPages());
+        response.put("totalExact", pageContracts.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -181,4 +278,17 @@ public class ConsumerController {
 
         return new ResponseEntity<>(consumerService.getRating(consumer), HttpStatus.OK);
     }
+
+    /**
+     * Repairs ratings of all consumers.
+     *
+     * @return the number of repaired ratings
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/ratings/repair", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Long> repairRatings() {
+        final long repaired = consumerService.repairRatings();
+        LOG.debug("Repaired ratings of {} consumers.", repaired);
+        return new ResponseEntity<>(repaired, HttpStatus.OK);
+    }
 }
@@ -1,5 +1,9 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.ContractFilter;
 import dev.mikita.rolt.dto.contract.RequestCreateContractDto;
 import dev.mikita.rolt.dto.contract.RequestUpdateContractDto;
 import dev.mikita.rolt.dto.contract.ResponsePublicContractDto;
@@ -11,12 +15,13 @@ import dev.mikita.rolt.security.model.CustomUserDetails;
 import dev.mikita.rolt.service.ContractService;
 import dev.mikita.rolt.service.PropertyService;
 import dev.mikita.rolt.service.TenantService;
+import dev.mikita.rolt.service.security.OwnershipService;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -30,9 +35,7 @@ import javax.validation.Valid;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * The type Contract controller.
@@ -45,20 +48,24 @@ public class ContractController {
     private final ContractService contractService;
     private final PropertyService propertyService;
     private final TenantService tenantService;
+    private final OwnershipService ownershipService;
 
     /**
      * Instantiates a new Contract controller.
      *
-     * @param contractService the contract service
-     * @param propertyService the property service
-     * @param tenantService the tenant service
+     * @param contractService  the contract service
+     * @param propertyService  the property service
+     * @param tenantService    the tenant service
+     * @param ownershipService the ownership service
      */
     public ContractController(ContractService contractService,
                               PropertyService propertyService,
-                              TenantService tenantService) {
+                              TenantService tenantService,
+                              OwnershipService ownershipService) {
         this.contractService = contractService;
         this.propertyService = propertyService;
         this.tenantService = tenantService;
+        this.ownershipService = ownershipService;
     }
 
     /**
@@ -66,6 +73,9 @@ public class ContractController {
      *
      * @param page the page
      * @param size the size
+     * @param cursor the cursor, switches to keyset pagination when present
+     * @param total false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
      * @param fromDate the fromDate
      * @param toDate the toDate
      * @return the contracts
@@ -75,30 +85,55 @@ public class ContractController {
     public ResponseEntity<Map<String, Object>> getContracts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
 
-        ModelMapper modelMapper = new ModelMapper();
-
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (fromDate != null) filters.put("fromDate", fromDate);
-        if (toDate != null) filters.put("toDate", toDate);
+        ContractFilter filter = ContractFilter.builder()
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Contract> pageContracts = contractService.findAll(pageable, filters);
-        List<Contract> contracts = pageContracts.getContent();
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicContractDto> cursorPageContracts = contractService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("contracts", cursorPageContracts.getContent());
+            response.put("nextCursor", cursorPageContracts.getNextCursor());
+            response.put("prevCursor", cursorPageContracts.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicContractDto> sliceContracts = contractService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("contracts", sliceContracts.getContent());
+            response.put("currentPage", sliceContracts.getNumber());
+            response.put("hasNext", sliceContracts.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicContractDto> pageContracts = contractService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("contracts", contracts.stream()
-                .map(contract -> modelMapper.map(contract, ResponsePublicContractDto.class))
-                .collect(Collectors.toList()));
+        response.put("contracts", pageContracts.getContent());
         response.put("currentPage", pageContracts.getNumber());
         response.put("totalItems", pageContracts.getTotalElements());
         response.put("totalPages", pageContracts.getTotalPages());
+        response.put("totalExact", pageContracts.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -110,24 +145,25 @@ public class ContractController {
      * @param id the id
      * @return the contract
      */
-    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_MODERATOR', 'ROLE_TENANT', 'ROLE_MODERATOR')")
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_MODERATOR', 'ROLE_TENANT', 'ROLE_LANDLORD')")
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponsePublicContractDto getContract(Principal principal, @PathVariable Integer id) {
-        final Contract contract = contractService.find(id);
-
-        if (contract == null) {
+        if (ownershipService.findContractPartyIds(id) == null) {
             throw NotFoundException.create("Contract", id);
         }
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-            && (!contract.getTenant().getId().equals(user.getId())
-            || !contract.getProperty().getOwner().getId().equals(user.getId()))) {
+        if (userDetails.getRole() != Role.ADMIN && userDetails.getRole() != Role.MODERATOR
+            && !ownershipService.isContractParty(userDetails.getId(), id)) {
             throw new AccessDeniedException("Cannot access contract of another customer.");
         }
 
+        final Contract contract = contractService.find(id);
+        if (contract == null) {
+            throw NotFoundException.create("Contract", id);
+        }
+
         return new ModelMapper().map(contract, ResponsePublicContractDto.class);
     }
 
@@ -142,28 +178,27 @@ public class ContractController {
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Void> createContract(Principal principal, @RequestBody @Valid RequestCreateContractDto contractDto) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(contractDto.getTenantId())) {
+        if (userDetails.getRole() != Role.ADMIN && userDetails.getRole() != Role.MODERATOR
+                && !userDetails.getId().equals(contractDto.getTenantId())) {
             throw new AccessDeniedException("You cannot create contracts for other users.");
         }
 
         ModelMapper modelMapper = new ModelMapper();
         modelMapper.getConfiguration().setAmbiguityIgnored(true);
 
-        final Property property = propertyService.find(contractDto.getPropertyId());
+        final Property property = propertyService.getReference(contractDto.getPropertyId());
         if (property == null)
             throw NotFoundException.create("Property", contractDto.getPropertyId());
 
-        final Tenant tenant = tenantService.find(contractDto.getTenantId());
+        final Tenant tenant = tenantService.getReference(contractDto.getTenantId());
         if (tenant == null)
             throw NotFoundException.create("Tenant", contractDto.getTenantId());
 
         Contract contract = modelMapper.map(contractDto, Contract.class);
         contract.setProperty(property);
         contract.setTenant(tenant);
-        contractService.persist(modelMapper.map(contractDto, Contract.class));
+        contractService.persist(contract);
 
         final HttpHeaders headers = RestUtils.createLocationHeaderFromCurrentUri("/{id}", contract.getId());
         return new ResponseEntity<>(headers, HttpStatus.CREATED);
@@ -190,11 +225,11 @@ public class ContractController {
             throw new ValidationException("Contract identifier in the data does not match the one in the request URL.");
         }
 
-        final Property property = propertyService.find(contractDto.getPropertyId());
+        final Property property = propertyService.getReference(contractDto.getPropertyId());
         if (property == null)
             throw NotFoundException.create("Property", contractDto.getPropertyId());
 
-        final Tenant tenant = tenantService.find(contractDto.getTenantId());
+        final Tenant tenant = tenantService.getReference(contractDto.getTenantId());
         if (tenant == null)
             throw NotFoundException.create("Tenant", contractDto.getTenantId());
 
@@ -1,5 +1,10 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.PropertyFilter;
+import dev.mikita.rolt.dao.LandlordFilter;
 import dev.mikita.rolt.dto.landlord.RequestCreateLandlordDto;
 import dev.mikita.rolt.dto.landlord.RequestUpdateLandlordDto;
 import dev.mikita.rolt.dto.landlord.ResponsePublicLandlordDto;
@@ -15,9 +20,9 @@ import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -93,6 +98,9 @@ public class LandlordController {
      *
      * @param page the page
      * @param size the size
+     * @param cursor the cursor, switches to keyset pagination when present
+     * @param total false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
      * @param gender the gender
      * @return the landlords
      */
@@ -100,18 +108,51 @@ public class LandlordController {
     public ResponseEntity<Map<String, Object>> getLandlords(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) ConsumerGender gender) {
 
         ModelMapper modelMapper = new ModelMapper();
 
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (gender != null) filters.put("gender", gender);
-        filters.put("status", ConsumerStatus.ACTIVE);
+        LandlordFilter filter = LandlordFilter.builder()
+                .gender(gender)
+                .status(ConsumerStatus.ACTIVE)
+                .build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Landlord> pageLandlords = landlordService.findAll(pageable, filters);
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<Landlord> cursorPageLandlords = landlordService.findAll(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("landlords", cursorPageLandlords.getContent().stream()
+                    .map(landlord -> modelMapper.map(landlord, ResponsePublicLandlordDto.class))
+                    .collect(Collectors.toList()));
+            response.put("nextCursor", cursorPageLandlords.getNextCursor());
+            response.put("prevCursor", cursorPageLandlords.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<Landlord> sliceLandlords = landlordService.findSlice(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("landlords", sliceLandlords.getContent().stream()
+                    .map(landlord -> modelMapper.map(landlord, ResponsePublicLandlordDto.class))
+                    .collect(Collectors.toList()));
+            response.put("currentPage", sliceLandlords.getNumber());
+            response.put("hasNext", sliceLandlords.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<Landlord> pageLandlords = landlordService.findAll(pageable, filter, approximate);
         List<Landlord> landlords = pageLandlords.getContent();
 
         Map<String, Object> response = new HashMap<>();
@@ -121,6 +162,7 @@ public class LandlordController {
         response.put("currentPage", pageLandlords.getNumber());
         response.put("totalItems", pageLandlords.getTotalElements());
         response.put("totalPages", pageLandlords.getTotalPages());
+        response.put("totalExact", pageLandlords.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -137,11 +179,10 @@ public class LandlordController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateLandlord(Principal principal, @PathVariable Integer id, @RequestBody @Valid RequestUpdateLandlordDto landlordDto) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN
-                || user.getRole() != Role.MODERATOR) &&
-                !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN
+                || userDetails.getRole() != Role.MODERATOR) &&
+                !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot update another landlord.");
         }
 
@@ -171,11 +212,10 @@ public class LandlordController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteLandlord(Principal principal, @PathVariable Integer id) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN
-                || user.getRole() != Role.MODERATOR) &&
-                !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN
+                || userDetails.getRole() != Role.MODERATOR) &&
+                !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot delete another landlord.");
         }
 
@@ -194,6 +234,9 @@ public class LandlordController {
      * @param id           the id
      * @param page         the page
      * @param size         the size
+     * @param cursor       the cursor, switches to keyset pagination when present
+     * @param total        false to skip the total and only tell whether there is a next page
+     * @param approximate  true to estimate large totals from planner statistics
      * @param cityId       the city id
      * @param propertyType the property type
      * @param minSquare    the min square
@@ -206,6 +249,9 @@ public class LandlordController {
             @PathVariable Integer id,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) Integer cityId,
             @RequestParam(required = false) PropertyType propertyType,
             @RequestParam(required = false) Double minSquare,
@@ -216,30 +262,52 @@ public class LandlordController {
         if (landlord == null)
             throw NotFoundException.create("Landlord", id);
 
-        ModelMapper modelMapper = new ModelMapper();
-
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (cityId != null) filters.put("cityId", cityId);
-        if (propertyType != null) filters.put("propertyType", propertyType);
-        if (minSquare != null) filters.put("minSquare", minSquare);
-        if (maxSquare != null) filters.put("maxSquare", maxSquare);
-        if (isAvailable != null) filters.put("isAvailable", isAvailable);
-        filters.put("status", PublicationStatus.PUBLISHED);
-        filters.put("ownerId", landlord.getId());
+        PropertyFilter filter = PropertyFilter.builder()
+                .cityId(cityId)
+                .propertyType(propertyType)
+                .minSquare(minSquare)
+                .maxSquare(maxSquare)
+                .isAvailable(isAvailable)
+                .status(PublicationStatus.PUBLISHED)
+                .ownerId(landlord.getId())
+                .build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Property> pageProperties = propertyService.findAll(pageable, filters);
-        List<Property> properties = pageProperties.getContent();
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicPropertyDto> cursorPageProperties = propertyService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("properties", cursorPageProperties.getContent());
+            response.put("nextCursor", cursorPageProperties.getNextCursor());
+            response.put("prevCursor", cursorPageProperties.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicPropertyDto> sliceProperties = propertyService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("properties", sliceProperties.getContent());
+            response.put("currentPage", sliceProperties.getNumber());
+            response.put("hasNext", sliceProperties.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicPropertyDto> pageProperties = propertyService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("properties", properties.stream()
-                .map(property -> modelMapper.map(property, ResponsePublicPropertyDto.class))
-                .collect(Collectors.toList()));
+        response.put("properties", pageProperties.getContent());
         response.put("currentPage", pageProperties.getNumber());
         response.put("totalItems", pageProperties.getTotalElements());
         response.put("totalPages", pageProperties.getTotalPages());
+        response.put("totalExact", pageProperties.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -1,5 +1,9 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.PropertyFilter;
 import dev.mikita.rolt.dto.property.RequestCreatePropertyDto;
 import dev.mikita.rolt.dto.property.RequestUpdatePropertyDto;
 import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
@@ -11,13 +15,15 @@ import dev.mikita.rolt.security.model.CustomUserDetails;
 import dev.mikita.rolt.service.CityService;
 import dev.mikita.rolt.service.LandlordService;
 import dev.mikita.rolt.service.PropertyService;
+import dev.mikita.rolt.service.security.OwnershipService;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -28,10 +34,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * The type Property controller.
@@ -44,68 +49,107 @@ public class PropertyController {
     private final PropertyService propertyService;
     private final LandlordService landlordService;
     private final CityService cityService;
+    private final OwnershipService ownershipService;
 
     /**
      * Instantiates a new Property controller.
      *
-     * @param propertyService the property service
-     * @param landlordService the landlord service
-     * @param cityService     the city service
+     * @param propertyService  the property service
+     * @param landlordService  the landlord service
+     * @param cityService      the city service
+     * @param ownershipService the ownership service
      */
     @Autowired
     public PropertyController(PropertyService propertyService,
                               LandlordService landlordService,
-                              CityService cityService) {
+                              CityService cityService,
+                              OwnershipService ownershipService) {
         this.propertyService = propertyService;
         this.landlordService = landlordService;
         this.cityService = cityService;
+        this.ownershipService = ownershipService;
     }
 
     /**
      * Gets properties.
      *
-     * @param page         the page
-     * @param size         the size
-     * @param cityId       the city id
-     * @param propertyType the property type
-     * @param minSquare    the min square
-     * @param maxSquare    the max square
-     * @param isAvailable  the is available
+     * @param page          the page
+     * @param size          the size
+     * @param cursor        the cursor, switches to keyset pagination when present
+     * @param total         false to skip the total and only tell whether there is a next page
+     * @param approximate   true to estimate large totals from planner statistics
+     * @param cityId        the city id
+     * @param propertyType  the property type
+     * @param minSquare     the min square
+     * @param maxSquare     the max square
+     * @param isAvailable   the is available
+     * @param availableFrom the first day the property must be free of contracts
+     * @param availableTo   the last day the property must be free of contracts
      * @return the properties
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Map<String, Object>> getProperties(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) Integer cityId,
             @RequestParam(required = false) PropertyType propertyType,
             @RequestParam(required = false) Double minSquare,
             @RequestParam(required = false) Double maxSquare,
-            @RequestParam(required = false) Boolean isAvailable) {
-
-        ModelMapper modelMapper = new ModelMapper();
+            @RequestParam(required = false) Boolean isAvailable,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate availableFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate availableTo) {
 
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (cityId != null) filters.put("cityId", cityId);
-        if (propertyType != null) filters.put("propertyType", propertyType);
-        if (minSquare != null) filters.put("minSquare", minSquare);
-        if (maxSquare != null) filters.put("maxSquare", maxSquare);
-        if (isAvailable != null) filters.put("isAvailable", isAvailable);
-        filters.put("status", PublicationStatus.PUBLISHED);
+        PropertyFilter filter = PropertyFilter.builder()
+                .cityId(cityId)
+                .propertyType(propertyType)
+                .minSquare(minSquare)
+                .maxSquare(maxSquare)
+                .isAvailable(isAvailable)
+                .status(PublicationStatus.PUBLISHED)
+                .build();
+        if (availableFrom != null || availableTo != null) {
+            filter = propertyService.availableBetween(filter, availableFrom, availableTo);
+        }
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Property> pageProperties = propertyService.findAll(pageable, filters);
-        List<Property> properties = pageProperties.getContent();
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicPropertyDto> cursorPageProperties = propertyService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("properties", cursorPageProperties.getContent());
+            response.put("nextCursor", cursorPageProperties.getNextCursor());
+            response.put("prevCursor", cursorPageProperties.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicPropertyDto> sliceProperties = propertyService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("properties", sliceProperties.getContent());
+            response.put("currentPage", sliceProperties.getNumber());
+            response.put("hasNext", sliceProperties.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicPropertyDto> pageProperties = propertyService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("properties", properties.stream()
-                .map(property -> modelMapper.map(property, ResponsePublicPropertyDto.class))
-                .collect(Collectors.toList()));
+        response.put("properties", pageProperties.getContent());
         response.put("currentPage", pageProperties.getNumber());
         response.put("totalItems", pageProperties.getTotalElements());
         response.put("totalPages", pageProperties.getTotalPages());
+        response.put("totalExact", pageProperties.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -136,21 +180,20 @@ public class PropertyController {
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Void> createProperty(Principal principal, @RequestBody @Valid RequestCreatePropertyDto propertyDto) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(propertyDto.getOwnerId())) {
+        if (userDetails.getRole() != Role.ADMIN && userDetails.getRole() != Role.MODERATOR
+                && !userDetails.getId().equals(propertyDto.getOwnerId())) {
             throw new AccessDeniedException("You cannot create properties for other users.");
         }
 
         ModelMapper modelMapper = new ModelMapper();
         modelMapper.getConfiguration().setAmbiguityIgnored(true);
 
-        final Landlord landlord = landlordService.find(propertyDto.getOwnerId());
+        final Landlord landlord = landlordService.getReference(propertyDto.getOwnerId());
         if (landlord == null)
             throw NotFoundException.create("Landlord", propertyDto.getOwnerId());
 
-        final City city = cityService.find(propertyDto.getCityId());
+        final City city = cityService.getReference(propertyDto.getCityId());
         if (city == null)
             throw NotFoundException.create("City", propertyDto.getCityId());
 
@@ -171,7 +214,7 @@ public class PropertyController {
      * @param id          the id
      * @param propertyDto the property dto
      */
-    @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_LANDLORD', 'ROLE_MODERATOR')")
+    @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_ADMIN', 'ROLE_MODERATOR')")
     @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateProperty(
@@ -179,30 +222,35 @@ public class PropertyController {
             @PathVariable Integer id,
             @RequestBody @Valid RequestUpdatePropertyDto propertyDto) {
 
-        final Property original = propertyService.find(id);
-        if (original == null) {
-            throw NotFoundException.create("Property", id);
+        if (!id.equals(propertyDto.getId())) {
+            throw new ValidationException("Property identifier in the data does not match the one in the request URL.");
         }
 
-        if (!original.getId().equals(propertyDto.getId())) {
-            throw new ValidationException("Property identifier in the data does not match the one in the request URL.");
+        // Ownership is checked on the owner id alone, the property is loaded only for authorized callers
+        final Integer ownerId = ownershipService.findPropertyOwnerId(id);
+        if (ownerId == null) {
+            throw NotFoundException.create("Property", id);
         }
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(original.getOwner().getId())) {
+        if (userDetails.getRole() != Role.ADMIN && userDetails.getRole() != Role.MODERATOR
+                && !userDetails.getId().equals(ownerId)) {
             throw new AccessDeniedException("You cannot update properties for other users.");
         }
 
-        final City city = cityService.find(propertyDto.getCityId());
+        final Property original = propertyService.find(id);
+        if (original == null) {
+            throw NotFoundException.create("Property", id);
+        }
+
+        final City city = cityService.getReference(propertyDto.getCityId());
         if (city == null)
             throw NotFoundException.create("City", propertyDto.getCityId());
 
         Property property = new ModelMapper().map(propertyDto, Property.class);
         property.setCity(city);
-        property.setOwner(original.getOwner());
+        property.setOwner(landlordService.getReference(ownerId));
         property.setStatus(original.getStatus());
 
         propertyService.update(property);
@@ -218,21 +266,25 @@ public class PropertyController {
      */
     @DeleteMapping(value = "/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_LANDLORD', 'ROLE_MODERATOR')")
+    @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_ADMIN', 'ROLE_MODERATOR')")
     public void deleteProperty(Principal principal, @PathVariable Integer id) {
-        final Property toRemove = propertyService.find(id);
-        if (toRemove == null) {
+        final Integer ownerId = ownershipService.findPropertyOwnerId(id);
+        if (ownerId == null) {
             return;
         }
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(toRemove.getOwner().getId())) {
+        if (userDetails.getRole() != Role.ADMIN && userDetails.getRole() != Role.MODERATOR
+                && !userDetails.getId().equals(ownerId)) {
             throw new AccessDeniedException("You cannot delete properties for other users.");
         }
 
+        final Property toRemove = propertyService.find(id);
+        if (toRemove == null) {
+            return;
+        }
+
         propertyService.remove(toRemove);
         LOG.debug("Removed property {}.", toRemove);
     }
@@ -1,5 +1,9 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.ReviewFilter;
 import dev.mikita.rolt.dto.review.RequestCreateReviewDto;
 import dev.mikita.rolt.dto.review.RequestUpdateReviewDto;
 import dev.mikita.rolt.dto.review.ResponsePublicReviewDto;
@@ -11,14 +15,15 @@ import dev.mikita.rolt.security.model.CustomUserDetails;
 import dev.mikita.rolt.service.ConsumerService;
 import dev.mikita.rolt.service.ContractService;
 import dev.mikita.rolt.service.ReviewService;
+import dev.mikita.rolt.service.security.OwnershipService;
 import org.modelmapper.ModelMapper;
 import org.modelmapper.PropertyMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -30,9 +35,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
 import java.security.Principal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * The type Review controller.
@@ -45,21 +48,25 @@ public class ReviewController {
     private final ReviewService reviewService;
     private final ContractService contractService;
     private final ConsumerService consumerService;
+    private final OwnershipService ownershipService;
 
     /**
      * Instantiates a new Review controller.
      *
-     * @param reviewService   the review service
-     * @param contractService the contract service
-     * @param consumerService the consumer service
+     * @param reviewService    the review service
+     * @param contractService  the contract service
+     * @param consumerService  the consumer service
+     * @param ownershipService the ownership service
      */
     @Autowired
     public ReviewController(ReviewService reviewService,
                             ContractService contractService,
-                            ConsumerService consumerService) {
+                            ConsumerService consumerService,
+                            OwnershipService ownershipService) {
         this.reviewService = reviewService;
         this.contractService = contractService;
         this.consumerService = consumerService;
+        this.ownershipService = ownershipService;
     }
 
     /**
@@ -79,12 +86,15 @@ public class ReviewController {
     /**
      * Gets reviews.
      *
-     * @param page       the page
-     * @param size       the size
-     * @param status     the status
-     * @param authorId   the author id
-     * @param reviewedId the reviewed id
-     * @param contractId the contract id
+     * @param page        the page
+     * @param size        the size
+     * @param cursor      the cursor, switches to keyset pagination when present
+     * @param total       false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
+     * @param status      the status
+     * @param authorId    the author id
+     * @param reviewedId  the reviewed id
+     * @param contractId  the contract id
      * @return the reviews
      */
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_MODERATOR')")
@@ -92,42 +102,71 @@ public class ReviewController {
     public ResponseEntity<Map<String, Object>> getReviews(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) PublicationStatus status,
             @RequestParam(required = false) Integer authorId,
             @RequestParam(required = false) Integer reviewedId,
             @RequestParam(required = false) Integer contractId) {
 
-        ModelMapper modelMapper = new ModelMapper();
-
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (status != null) filters.put("status", status);
-        if (authorId != null) filters.put("authorId", authorId);
-        if (reviewedId != null) filters.put("reviewedId", reviewedId);
-        if (contractId != null) filters.put("contractId", contractId);
+        ReviewFilter filter = ReviewFilter.builder()
+                .status(status)
+                .authorId(authorId)
+                .reviewedId(reviewedId)
+                .contractId(contractId)
+                .build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Review> pageReviews = reviewService.findAll(pageable, filters);
-        List<Review> reviews = pageReviews.getContent();
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<ResponsePublicReviewDto> cursorPageReviews = reviewService.findAllPublic(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("reviews", cursorPageReviews.getContent());
+            response.put("nextCursor", cursorPageReviews.getNextCursor());
+            response.put("prevCursor", cursorPageReviews.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<ResponsePublicReviewDto> sliceReviews = reviewService.findSlicePublic(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("reviews", sliceReviews.getContent());
+            response.put("currentPage", sliceReviews.getNumber());
+            response.put("hasNext", sliceReviews.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<ResponsePublicReviewDto> pageReviews = reviewService.findAllPublic(pageable, filter, approximate);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("reviews", reviews.stream()
-                .map(review -> modelMapper.map(review, ResponsePublicReviewDto.class))
-                .collect(Collectors.toList()));
+        response.put("reviews", pageReviews.getContent());
         response.put("currentPage", pageReviews.getNumber());
         response.put("totalItems", pageReviews.getTotalElements());
         response.put("totalPages", pageReviews.getTotalPages());
+        response.put("totalExact", pageReviews.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /**
      * Add review response entity.
+     * <p>
+     * The author must be the caller and a party of the reviewed contract, its tenant or the owner of its property.
      *
      * @param principal the principal
      * @param reviewDto the review dto
      * @return the response entity
+     * @throws AccessDeniedException if the author is not the caller or the caller is not a party of the contract
+     * @throws NotFoundException     if the contract or the author does not exist
      */
     @PreAuthorize("hasAnyRole('ROLE_LANDLORD', 'ROLE_TENANT', 'ROLE_ADMIN', 'ROLE_MODERATOR')")
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -136,17 +175,24 @@ public class ReviewController {
             @RequestBody @Valid RequestCreateReviewDto reviewDto) {
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if (!user.getId().equals(reviewDto.getAuthorId())) {
+        if (!userDetails.getId().equals(reviewDto.getAuthorId())) {
             throw new AccessDeniedException("You cannot add review from other users.");
         }
 
-        final Contract contract = contractService.find(reviewDto.getContractId());
+        if (ownershipService.findContractPartyIds(reviewDto.getContractId()) == null) {
+            throw NotFoundException.create("Contract", reviewDto.getContractId());
+        }
+
+        if (!ownershipService.isContractParty(userDetails.getId(), reviewDto.getContractId())) {
+            throw new AccessDeniedException("You cannot review contracts of other users.");
+        }
+
+        final Contract contract = contractService.getReference(reviewDto.getContractId());
         if (contract == null)
             throw NotFoundException.create("Contract", reviewDto.getContractId());
 
-        final Consumer consumer = consumerService.find(reviewDto.getAuthorId());
+        final Consumer consumer = consumerService.getReference(reviewDto.getAuthorId());
         if (consumer == null)
             throw NotFoundException.create("Consumer", reviewDto.getAuthorId());
 
@@ -189,11 +235,11 @@ public class ReviewController {
             throw new ValidationException("Review identifier in the data does not match the one in the request URL.");
         }
 
-        final Contract contract = contractService.find(reviewDto.getContractId());
+        final Contract contract = contractService.getReference(reviewDto.getContractId());
         if (contract == null)
             throw NotFoundException.create("Contract", reviewDto.getContractId());
 
-        final Consumer consumer = consumerService.find(reviewDto.getAuthorId());
+        final Consumer consumer = consumerService.getReference(reviewDto.getAuthorId());
         if (consumer == null)
             throw NotFoundException.create("Consumer", reviewDto.getAuthorId());
 
@@ -1,5 +1,9 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.TenantFilter;
 import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
 import dev.mikita.rolt.dto.tenant.RequestCreateTenantDto;
 import dev.mikita.rolt.dto.tenant.RequestUpdateTenantDto;
@@ -15,9 +19,9 @@ import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -76,30 +80,66 @@ public class TenantController {
     /**
      * Gets tenants.
      *
-     * @param page     the page
-     * @param size     the size
-     * @param gender   the gender
-     * @param inSearch the in search
+     * @param page        the page
+     * @param size        the size
+     * @param cursor      the cursor, switches to keyset pagination when present
+     * @param total       false to skip the total and only tell whether there is a next page
+     * @param approximate true to estimate large totals from planner statistics
+     * @param gender      the gender
+     * @param inSearch    the in search
      * @return the tenants
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Map<String, Object>> getTenants(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean total,
+            @RequestParam(defaultValue = "false") boolean approximate,
             @RequestParam(required = false) ConsumerGender gender,
             @RequestParam(required = false) Boolean inSearch) {
 
         ModelMapper modelMapper = new ModelMapper();
 
         // Filters
-        Map<String, Object> filters = new HashMap<>();
-        if (inSearch != null) filters.put("inSearch", inSearch);
-        if (gender != null) filters.put("gender", gender);
-        filters.put("status", ConsumerStatus.ACTIVE);
+        TenantFilter filter = TenantFilter.builder()
+                .inSearch(inSearch)
+                .gender(gender)
+                .status(ConsumerStatus.ACTIVE)
+                .build();
 
         // Pagination and sorting
         Pageable pageable = PageRequest.of(page, size);
-        Page<Tenant> pageTenants = tenantService.findAll(pageable, filters);
+
+        // Keyset pagination, an empty cursor requests the first page
+        if (cursor != null) {
+            CursorPage<Tenant> cursorPageTenants = tenantService.findAll(pageable, Cursor.decode(cursor), filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tenants", cursorPageTenants.getContent().stream()
+                    .map(landlord -> modelMapper.map(landlord, ResponsePublicTenantDto.class))
+                    .collect(Collectors.toList()));
+            response.put("nextCursor", cursorPageTenants.getNextCursor());
+            response.put("prevCursor", cursorPageTenants.getPreviousCursor());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        // Without the total, one extra row tells whether there is a next page
+        if (!total) {
+            Slice<Tenant> sliceTenants = tenantService.findSlice(pageable, filter);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tenants", sliceTenants.getContent().stream()
+                    .map(landlord -> modelMapper.map(landlord, ResponsePublicTenantDto.class))
+                    .collect(Collectors.toList()));
+            response.put("currentPage", sliceTenants.getNumber());
+            response.put("hasNext", sliceTenants.hasNext());
+
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+
+        CountedPage<Tenant> pageTenants = tenantService.findAll(pageable, filter, approximate);
         List<Tenant> tenants = pageTenants.getContent();
 
         Map<String, Object> response = new HashMap<>();
@@ -109,6 +149,7 @@ public class TenantController {
         response.put("currentPage", pageTenants.getNumber());
         response.put("totalItems", pageTenants.getTotalElements());
         response.put("totalPages", pageTenants.getTotalPages());
+        response.put("totalExact", pageTenants.isTotalExact());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
@@ -140,10 +181,9 @@ public class TenantController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateTenant(Principal principal, @PathVariable Integer id, @RequestBody @Valid RequestUpdateTenantDto tenantDto) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR) &&
-                !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN || userDetails.getRole() != Role.MODERATOR) &&
+                !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot update another tenant.");
         }
 
@@ -172,10 +212,9 @@ public class TenantController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteTenant(Principal principal, @PathVariable Integer id) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR)
-                && !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN || userDetails.getRole() != Role.MODERATOR)
+                && !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot delete another tenant.");
         }
 
@@ -202,10 +241,9 @@ public class TenantController {
             @PathVariable Integer id) {
 
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if ((user.getRole() != Role.ADMIN || user.getRole() != Role.MODERATOR) &&
-                !user.getId().equals(id)) {
+        if ((userDetails.getRole() != Role.ADMIN || userDetails.getRole() != Role.MODERATOR) &&
+                !userDetails.getId().equals(id)) {
             throw new AccessDeniedException("Cannot access favorites of another tenant.");
         }
 
@@ -232,9 +270,8 @@ public class TenantController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void addFavorite(Principal principal, @PathVariable Integer user_id, @PathVariable Integer property_id) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if (!user.getId().equals(user_id)) {
+        if (!userDetails.getId().equals(user_id)) {
             throw new AccessDeniedException("Cannot access favorites of another tenant.");
         }
 
@@ -261,9 +298,8 @@ public class TenantController {
     @DeleteMapping(value = "/{user_id}/favorites/{property_id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public void removeFavorite(Principal principal, @PathVariable Integer user_id, @PathVariable Integer property_id) {
         final CustomUserDetails userDetails = (CustomUserDetails) ((Authentication) principal).getPrincipal();
-        final User user = userDetails.getUser();
 
-        if (!user.getId().equals(user_id)) {
+        if (!userDetails.getId().equals(user_id)) {
             throw new AccessDeniedException("Cannot access favorites of another tenant.");
         }
 
@@ -1,11 +1,13 @@
 package dev.mikita.rolt.rest.handler;
 
+import dev.mikita.rolt.exception.LoginRejectedException;
 import dev.mikita.rolt.exception.NotFoundException;
 import dev.mikita.rolt.exception.PersistenceException;
 
 import dev.mikita.rolt.security.SecurityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -120,4 +122,19 @@ public class RestExceptionHandler {
         logException(e);
         return new ResponseEntity<>(errorInfo(request, e), HttpStatus.UNAUTHORIZED);
     }
+
+    /**
+     * Login rejected response entity.
+     *
+     * @param request the request
+     * @param e       the e
+     * @return the response entity
+     */
+    @ExceptionHandler(LoginRejectedException.class)
+    public ResponseEntity<ErrorInfo> loginRejected(HttpServletRequest request, LoginRejectedException e) {
+        // Rejections are expected under load and are counted by the metrics, so they are not logged
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+        return new ResponseEntity<>(errorInfo(request, e), headers, e.getStatus());
+    }
 }
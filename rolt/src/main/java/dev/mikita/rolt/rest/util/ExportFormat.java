@@ -0,0 +1,178 @@
+package dev.mikita.rolt.rest.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.mikita.rolt.exception.ValidationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formats of exports written row by row as the rows are read.
+ */
+public enum ExportFormat {
+    /**
+     * One JSON object per line.
+     */
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        public RowWriter open(OutputStream out, ObjectMapper mapper) {
+            final Writer writer = writer(out);
+            return new RowWriter() {
+                @Override
+                protected void doWrite(Object row) throws IOException {
+                    writer.write(mapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    },
+
+    /**
+     * A header line with the property names, then one record per line.
+     */
+    CSV("text/csv", "csv") {
+        @Override
+        public RowWriter open(OutputStream out, ObjectMapper mapper) {
+            final Writer writer = writer(out);
+            // Null properties must still produce a column
+            final ObjectMapper csvMapper = mapper.copy().setSerializationInclusion(JsonInclude.Include.ALWAYS);
+            return new RowWriter() {
+                private boolean header = true;
+
+                @Override
+                @SuppressWarnings("unchecked")
+                protected void doWrite(Object row) throws IOException {
+                    final Map<String, Object> values = csvMapper.convertValue(row, LinkedHashMap.class);
+                    if (header) {
+                        writeRecord(values.keySet());
+                        header = false;
+                    }
+                    writeRecord(values.values());
+                }
+
+                private void writeRecord(Iterable<?> fields) throws IOException {
+                    boolean first = true;
+                    for (Object field : fields) {
+                        if (!first) {
+                            writer.write(',');
+                        }
+                        writer.write(escape(field));
+                        first = false;
+                    }
+                    writer.write("\r\n");
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    };
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * Finds the format by its file extension.
+     *
+     * @param extension the extension, case insensitive
+     * @return the format
+     * @throws ValidationException if there is no such format
+     */
+    public static ExportFormat of(String extension) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        throw new ValidationException("Unsupported export format " + extension + ".");
+    }
+
+    /**
+     * Opens a writer of rows in this format. Closing the writer flushes it but leaves the stream open.
+     *
+     * @param out    the stream to write to
+     * @param mapper the mapper serializing the rows
+     * @return the row writer
+     */
+    public abstract RowWriter open(OutputStream out, ObjectMapper mapper);
+
+    /**
+     * Gets the media type of the export.
+     *
+     * @return the media type
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Gets the file extension of the export, also the value of the format request parameter.
+     *
+     * @return the extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    private static Writer writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private static String escape(Object field) {
+        if (field == null) {
+            return "";
+        }
+        String value = field.toString();
+        // Spreadsheets evaluate text starting like a formula, numbers are written as they are
+        if (field instanceof CharSequence && !value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            value = '\'' + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writer of rows of an export.
+     */
+    public abstract static class RowWriter implements Closeable {
+        /**
+         * Writes a row.
+         *
+         * @param row the row
+         * @throws UncheckedIOException if writing fails, e.g. because the client went away
+         */
+        public void write(Object row) {
+            try {
+                doWrite(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes a row.
+         *
+         * @param row the row
+         * @throws IOException if writing fails
+         */
+        protected abstract void doWrite(Object row) throws IOException;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.cache.BoundedCache;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Cache of already verified credentials.
+ * <p>
+ * Entries are keyed by an HMAC of the email and the raw password with a key generated on startup,
+ * so neither the password nor a reusable hash of it is kept in memory.
+ * <p>
+ * Every invalidation starts a new generation. Credentials verified against user details loaded in an earlier
+ * generation are not stored, so a login racing a password change or a ban cannot cache the old credentials. The
+ * user is not known before being loaded, so the generation is shared by all users.
+ */
+@Component
+public class CredentialCache {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final BoundedCache<String, CustomUserDetails> cache;
+    private final SecretKeySpec key;
+    // Guarded by this
+    private long generation;
+
+    /**
+     * Instantiates a new Credential cache.
+     *
+     * @param maxSize the maximum number of cached credentials
+     * @param ttl     the time to live of a cached credential
+     */
+    public CredentialCache(@Value("${rolt.security.credential-cache.max-size:10000}") int maxSize,
+                           @Value("${rolt.security.credential-cache.ttl:PT5M}") Duration ttl) {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.cache = new BoundedCache<>("credentials", maxSize, ttl);
+    }
+
+    /**
+     * Finds verified user details.
+     *
+     * @param email    the email
+     * @param password the raw password
+     * @return the user details or null, if the credentials were not verified recently
+     */
+    public CustomUserDetails find(String email, String password) {
+        return cache.get(digest(email, password));
+    }
+
+    /**
+     * Gets the current generation, read before the user details are loaded.
+     *
+     * @return the generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores verified user details, unless credentials were invalidated since they were loaded.
+     *
+     * @param email       the email
+     * @param password    the raw password
+     * @param userDetails the user details with erased credentials
+     * @param generation  the generation read before the user details were loaded
+     * @return true if the credentials were stored
+     */
+    public synchronized boolean put(String email, String password, CustomUserDetails userDetails, long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        cache.put(digest(email, password), userDetails);
+        return true;
+    }
+
+    /**
+     * Invalidates all credentials of the user.
+     *
+     * @param userId the user id
+     */
+    public synchronized void invalidate(Integer userId) {
+        generation++;
+        cache.invalidateIf((digest, userDetails) -> userId.equals(userDetails.getId()));
+    }
+
+    /**
+     * Invalidates all credentials of the user after the changing transaction commits.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    /**
+     * Gets the underlying cache.
+     *
+     * @return the cache
+     */
+    BoundedCache<String, CustomUserDetails> getCache() {
+        return cache;
+    }
+
+    private String digest(String email, String password) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(email.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
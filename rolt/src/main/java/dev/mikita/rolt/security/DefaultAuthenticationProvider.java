@@ -7,11 +7,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Service;
 
 /**
@@ -22,18 +23,27 @@ public class DefaultAuthenticationProvider implements AuthenticationProvider {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultAuthenticationProvider.class);
 
     private final UserDetailsService userDetailsService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
+    private final CredentialCache credentialCache;
+    private final LoginAttemptLimiter loginAttemptLimiter;
 
     /**
      * Instantiates a new Default authentication provider.
      *
-     * @param userDetailsService the user details service
-     * @param passwordEncoder    the password encoder
+     * @param userDetailsService  the user details service
+     * @param passwordVerifier    the password verifier
+     * @param credentialCache     the credential cache
+     * @param loginAttemptLimiter the login attempt limiter
      */
     @Autowired
-    public DefaultAuthenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+    public DefaultAuthenticationProvider(UserDetailsService userDetailsService,
+                                         PasswordVerifier passwordVerifier,
+                                         CredentialCache credentialCache,
+                                         LoginAttemptLimiter loginAttemptLimiter) {
         this.userDetailsService = userDetailsService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
+        this.credentialCache = credentialCache;
+        this.loginAttemptLimiter = loginAttemptLimiter;
     }
 
     /**
@@ -50,13 +60,35 @@ public class DefaultAuthenticationProvider implements AuthenticationProvider {
             LOG.debug("Authenticating user {}", username);
         }
 
-        final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
         final String password = (String) authentication.getCredentials();
-        if (!passwordEncoder.matches(password, userDetails.getPassword())) {
+        final CustomUserDetails cached = credentialCache.find(username, password);
+        if (cached != null) {
+            return SecurityUtils.setCurrentUser(cached);
+        }
+
+        // Only attempts that would reach the password hash are limited
+        loginAttemptLimiter.acquire(username, clientAddress(authentication));
+
+        // Read before loading, so an invalidation committed meanwhile keeps the old credentials out of the cache
+        final long generation = credentialCache.getGeneration();
+        final CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(username);
+        // Banned and deleted users are rejected before the costly verification and never cached
+        if (!userDetails.isEnabled()) {
+            throw new DisabledException("The account is not active.");
+        }
+        if (!passwordVerifier.matches(password, userDetails.getPassword())) {
             throw new BadCredentialsException("Provided credentials don't match.");
         }
-        userDetails.eraseCredentials();
-        return SecurityUtils.setCurrentUser(userDetails);
+        loginAttemptLimiter.reset(username);
+        final CustomUserDetails verified = userDetails.withoutCredentials();
+        credentialCache.put(username, password, verified, generation);
+        return SecurityUtils.setCurrentUser(verified);
+    }
+
+    private static String clientAddress(Authentication authentication) {
+        return authentication.getDetails() instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress()
+                : null;
     }
 
     /**
@@ -0,0 +1,153 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.exception.LoginRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits password verifications per email and per client in a sliding window.
+ * <p>
+ * Each key keeps only two counters, the current and the previous fixed window; the previous one is weighted by
+ * how much of it still overlaps the sliding window. The number of tracked keys is bounded, beyond it the least
+ * recently attempted key is forgotten in constant time, so a flood of distinct keys neither grows the memory nor
+ * slows down attempts.
+ */
+@Component
+public class LoginAttemptLimiter {
+    private final SlidingWindow emails;
+    private final SlidingWindow clients;
+    private final Duration window;
+
+    private final Counter throttledEmails;
+    private final Counter throttledClients;
+
+    /**
+     * Instantiates a new Login attempt limiter.
+     *
+     * @param window               the window length
+     * @param maxAttemptsPerEmail  the max attempts per email within the window
+     * @param maxAttemptsPerClient the max attempts per client within the window
+     * @param maxTrackedKeys       the maximum number of tracked keys per email and per client
+     */
+    @Autowired
+    public LoginAttemptLimiter(@Value("${rolt.security.login-limit.window:PT1M}") Duration window,
+                               @Value("${rolt.security.login-limit.max-attempts-per-email:10}") int maxAttemptsPerEmail,
+                               @Value("${rolt.security.login-limit.max-attempts-per-client:100}") int maxAttemptsPerClient,
+                               @Value("${rolt.security.login-limit.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.window = window;
+        this.emails = new SlidingWindow(window.toMillis(), maxAttemptsPerEmail, maxTrackedKeys);
+        this.clients = new SlidingWindow(window.toMillis(), maxAttemptsPerClient, maxTrackedKeys);
+
+        this.throttledEmails = Counter.builder("rolt.auth.throttled").tag("key", "email").register(Metrics.globalRegistry);
+        this.throttledClients = Counter.builder("rolt.auth.throttled").tag("key", "client").register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Records a login attempt.
+     *
+     * @param email  the email
+     * @param client the client address, may be null
+     * @throws LoginRejectedException if the email or the client exceeded its attempts
+     */
+    public void acquire(String email, String client) {
+        final long now = System.currentTimeMillis();
+        if (client != null && !clients.tryAcquire(client, now)) {
+            throttledClients.increment();
+            throw LoginRejectedException.throttled(window);
+        }
+        if (!emails.tryAcquire(email, now)) {
+            throttledEmails.increment();
+            throw LoginRejectedException.throttled(window);
+        }
+    }
+
+    /**
+     * Forgets the attempts for an email after a successful login.
+     *
+     * @param email the email
+     */
+    public void reset(String email) {
+        emails.reset(email);
+    }
+
+    /**
+     * Gets the number of tracked emails.
+     *
+     * @return the number of tracked emails
+     */
+    int getTrackedEmails() {
+        return emails.size();
+    }
+
+    private static final class SlidingWindow {
+        private final long windowMillis;
+        private final int limit;
+        // Guarded by itself, in the order of the last attempt
+        private final LinkedHashMap<String, Counts> counts;
+
+        private SlidingWindow(long windowMillis, int limit, int maxKeys) {
+            this.windowMillis = windowMillis;
+            this.limit = limit;
+            this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Counts> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+
+        private boolean tryAcquire(String key, long now) {
+            synchronized (counts) {
+                return counts.computeIfAbsent(key, k -> new Counts(now - now % windowMillis))
+                        .tryAcquire(now, windowMillis, limit);
+            }
+        }
+
+        private void reset(String key) {
+            synchronized (counts) {
+                counts.remove(key);
+            }
+        }
+
+        private int size() {
+            synchronized (counts) {
+                return counts.size();
+            }
+        }
+    }
+
+    private static final class Counts {
+        private long windowStart;
+        private int current;
+        private int previous;
+
+        private Counts(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        private synchronized boolean tryAcquire(long now, long windowMillis, int limit) {
+            roll(now, windowMillis);
+            final double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+            if (previous * previousWeight + current >= limit) {
+                return false;
+            }
+            current++;
+            return true;
+        }
+
+        private void roll(long now, long windowMillis) {
+            final long elapsedWindows = (now - windowStart) / windowMillis;
+            if (elapsedWindows >= 1) {
+                previous = elapsedWindows == 1 ? current : 0;
+                current = 0;
+                windowStart += elapsedWindows * windowMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.exception.LoginRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies passwords on a dedicated, bounded executor.
+ * <p>
+ * Hashing is CPU bound, so only a fixed number of threads ever run it and only a limited number of
+ * verifications may wait for them. Anything beyond that is rejected immediately with a 503, which keeps
+ * request threads free for everything else during a login storm.
+ */
+@Component
+public class PasswordVerifier {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    private final Timer latency;
+    private final Counter rejections;
+
+    /**
+     * Instantiates a new Password verifier.
+     *
+     * @param passwordEncoder the password encoder
+     * @param threads         the number of hashing threads, half of the processors when not positive
+     * @param queueCapacity   the maximum number of verifications waiting for a thread
+     * @param timeout         the maximum time a request waits for its verification
+     */
+    @Autowired
+    public PasswordVerifier(PasswordEncoder passwordEncoder,
+                            @Value("${rolt.security.hashing.threads:0}") int threads,
+                            @Value("${rolt.security.hashing.queue-capacity:64}") int queueCapacity,
+                            @Value("${rolt.security.hashing.timeout:PT5S}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+
+        final int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    final Thread thread = new Thread(r, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.latency = Timer.builder("rolt.auth.hash.latency").register(Metrics.globalRegistry);
+        this.rejections = Counter.builder("rolt.auth.hash.rejections").register(Metrics.globalRegistry);
+        Gauge.builder("rolt.auth.hash.queue.depth", executor, e -> e.getQueue().size()).register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Verifies a raw password against a hash.
+     *
+     * @param rawPassword     the raw password
+     * @param encodedPassword the password hash
+     * @return bool
+     * @throws LoginRejectedException if the verification capacity is exhausted
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        final Future<Boolean> result;
+        try {
+            result = executor.submit(() -> latency.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw LoginRejectedException.overloaded(Duration.ofSeconds(1));
+        }
+
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejections.increment();
+            throw LoginRejectedException.overloaded(Duration.ofSeconds(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw LoginRejectedException.overloaded(Duration.ofSeconds(1));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Gets queue depth.
+     *
+     * @return the number of verifications waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Shuts down the executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
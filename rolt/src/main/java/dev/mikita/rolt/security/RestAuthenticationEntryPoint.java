@@ -0,0 +1,33 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.exception.LoginRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Authentication entry point answering rejected logins with 429 or 503 and everything else with a Basic challenge.
+ */
+@Component
+public class RestAuthenticationEntryPoint implements AuthenticationEntryPoint {
+    private static final String REALM = "Realm";
+
+    @Override
+    public void commence(HttpServletRequest request,
+                         HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+        if (authException instanceof LoginRejectedException) {
+            final LoginRejectedException rejected = (LoginRejectedException) authException;
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, rejected.getRetryAfter().toSeconds())));
+            response.sendError(rejected.getStatus().value(), rejected.getMessage());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"" + REALM + "\"");
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, authException.getMessage());
+    }
+}
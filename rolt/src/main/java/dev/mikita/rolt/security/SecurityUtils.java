@@ -1,6 +1,5 @@
 package dev.mikita.rolt.security;
 
-import dev.mikita.rolt.entity.User;
 import dev.mikita.rolt.security.model.AuthenticationToken;
 import dev.mikita.rolt.security.model.CustomUserDetails;
 import org.springframework.security.core.context.SecurityContext;
@@ -12,18 +11,6 @@ import org.springframework.security.core.context.SecurityContextImpl;
  */
 public class SecurityUtils {
 
-    /**
-     * Gets the currently authenticated user.
-     *
-     * @return Current user
-     */
-    public static User getCurrentUser() {
-        final SecurityContext context = SecurityContextHolder.getContext();
-        assert context != null;
-        final CustomUserDetails userDetails = (CustomUserDetails) context.getAuthentication().getDetails();
-        return userDetails.getUser();
-    }
-
     /**
      * Gets details of the currently authenticated user.
      *
@@ -0,0 +1,44 @@
+package dev.mikita.rolt.security.event;
+
+import java.util.Objects;
+
+/**
+ * Published when the owner of a property or the parties of a contract may have changed.
+ * <p>
+ * Everything that caches ownership of the entity must drop it on this event.
+ */
+public class OwnershipChangedEvent {
+    private final Class<?> type;
+    private final Integer id;
+
+    /**
+     * Instantiates a new Ownership changed event.
+     *
+     * @param type the entity type
+     * @param id   the entity id
+     */
+    public OwnershipChangedEvent(Class<?> type, Integer id) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(id);
+        this.type = type;
+        this.id = id;
+    }
+
+    /**
+     * Gets type.
+     *
+     * @return the entity type
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Gets id.
+     *
+     * @return the entity id
+     */
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.mikita.rolt.security.event;
+
+import java.util.Objects;
+
+/**
+ * Published when the password, role or status of a user may have changed.
+ * <p>
+ * Everything that caches the authentication state of a user must drop it on this event.
+ */
+public class UserSecurityChangedEvent {
+    private final Integer userId;
+
+    /**
+     * Instantiates a new User security changed event.
+     *
+     * @param userId the user id
+     */
+    public UserSecurityChangedEvent(Integer userId) {
+        Objects.requireNonNull(userId);
+        this.userId = userId;
+    }
+
+    /**
+     * Gets user id.
+     *
+     * @return the user id
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,60 @@
+package dev.mikita.rolt.security.jwt;
+
+import dev.mikita.rolt.security.SecurityUtils;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import io.jsonwebtoken.JwtException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Authenticates requests carrying a bearer access token.
+ * <p>
+ * The principal is built from the token claims alone, neither the user nor the password hash is loaded.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenService tokenService;
+
+    /**
+     * Instantiates a new Jwt authentication filter.
+     *
+     * @param tokenService the token service
+     */
+    public JwtAuthenticationFilter(JwtTokenService tokenService) {
+        this.tokenService = Objects.requireNonNull(tokenService);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        final String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            final CustomUserDetails userDetails = tokenService.toUserDetails(
+                    tokenService.parse(header.substring(BEARER_PREFIX.length()), JwtTokenService.ACCESS_TOKEN));
+            if (!userDetails.isEnabled()) {
+                throw new JwtException("The account is not active.");
+            }
+            SecurityUtils.setCurrentUser(userDetails);
+        } catch (JwtException | IllegalArgumentException e) {
+            SecurityContextHolder.clearContext();
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,177 @@
+package dev.mikita.rolt.security.jwt;
+
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Role;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Issues and validates signed bearer tokens.
+ * <p>
+ * Access tokens carry everything needed to authenticate a request: the user id, email, role and status.
+ * Refresh tokens are only accepted by the refresh endpoint.
+ */
+@Service
+public class JwtTokenService {
+    private static final Logger LOG = LoggerFactory.getLogger(JwtTokenService.class);
+
+    /**
+     * Type of access tokens.
+     */
+    public static final String ACCESS_TOKEN = "access";
+    /**
+     * Type of refresh tokens.
+     */
+    public static final String REFRESH_TOKEN = "refresh";
+
+    private static final String CLAIM_TYPE = "type";
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_STATUS = "status";
+
+    private final Key key;
+    private final Duration accessTokenTtl;
+    private final Duration refreshTokenTtl;
+    private final TokenRevocationList revocationList;
+
+    /**
+     * Instantiates a new Jwt token service.
+     *
+     * @param secret          the base64 encoded signing secret, a random one is generated when empty
+     * @param accessTokenTtl  the access token ttl
+     * @param refreshTokenTtl the refresh token ttl
+     * @param revocationList  the revocation list
+     */
+    @Autowired
+    public JwtTokenService(@Value("${rolt.security.jwt.secret:}") String secret,
+                           @Value("${rolt.security.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl,
+                           @Value("${rolt.security.jwt.refresh-token-ttl:P7D}") Duration refreshTokenTtl,
+                           TokenRevocationList revocationList) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            LOG.warn("No token secret configured, tokens will not survive a restart.");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+        }
+
+        this.key = new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        this.accessTokenTtl = accessTokenTtl;
+        this.refreshTokenTtl = refreshTokenTtl;
+        this.revocationList = revocationList;
+    }
+
+    /**
+     * Creates an access token.
+     *
+     * @param userDetails the user details
+     * @return the token
+     */
+    public String createAccessToken(CustomUserDetails userDetails) {
+        return createToken(userDetails, ACCESS_TOKEN, accessTokenTtl);
+    }
+
+    /**
+     * Creates a refresh token.
+     *
+     * @param userDetails the user details
+     * @return the token
+     */
+    public String createRefreshToken(CustomUserDetails userDetails) {
+        return createToken(userDetails, REFRESH_TOKEN, refreshTokenTtl);
+    }
+
+    /**
+     * Parses and validates a token.
+     *
+     * @param token the token
+     * @param type  the expected token type
+     * @return the claims
+     * @throws JwtException if the token is malformed, expired, revoked or of another type
+     */
+    public Claims parse(String token, String type) {
+        final Claims claims;
+        try {
+            claims = Jwts.parser().setSigningKey(key).parseClaimsJws(token).getBody();
+        } catch (IllegalArgumentException e) {
+            throw new JwtException("Token is empty.", e);
+        }
+
+        if (!type.equals(claims.get(CLAIM_TYPE, String.class))) {
+            throw new JwtException("Unexpected token type.");
+        }
+        if (revocationList.isRevoked(claims)) {
+            throw new JwtException("Token has been revoked.");
+        }
+        return claims;
+    }
+
+    /**
+     * Revokes a token.
+     *
+     * @param claims the claims of the token
+     * @return true if the token was revoked by this call, false if it had been revoked before
+     */
+    public boolean revoke(Claims claims) {
+        return revocationList.revoke(claims);
+    }
+
+    /**
+     * Builds user details from access token claims.
+     *
+     * @param claims the claims
+     * @return the user details
+     */
+    public CustomUserDetails toUserDetails(Claims claims) {
+        final Role role = Role.valueOf(claims.get(CLAIM_ROLE, String.class));
+        final String status = claims.get(CLAIM_STATUS, String.class);
+
+        return new CustomUserDetails(
+                Integer.valueOf(claims.getSubject()),
+                claims.get(CLAIM_EMAIL, String.class),
+                null,
+                role,
+                status == null ? null : ConsumerStatus.valueOf(status));
+    }
+
+    /**
+     * Gets access token ttl.
+     *
+     * @return the access token ttl
+     */
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    private String createToken(CustomUserDetails userDetails, String type, Duration ttl) {
+        final long now = System.currentTimeMillis();
+
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(String.valueOf(userDetails.getId()))
+                .claim(CLAIM_TYPE, type)
+                .claim(CLAIM_EMAIL, userDetails.getUsername())
+                .claim(CLAIM_ROLE, userDetails.getRole().name())
+                .claim(CLAIM_STATUS, userDetails.getStatus() == null ? null : userDetails.getStatus().name())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + ttl.toMillis()))
+                .signWith(SignatureAlgorithm.HS256, key)
+                .compact();
+    }
+}
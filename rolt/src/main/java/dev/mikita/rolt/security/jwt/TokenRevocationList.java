@@ -0,0 +1,103 @@
+package dev.mikita.rolt.security.jwt;
+
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory list of revoked tokens.
+ * <p>
+ * Single tokens are revoked by their id, all tokens of a user by the time before which they were issued.
+ * Entries are dropped as soon as the tokens they refer to would have expired anyway, so the list stays small.
+ */
+@Component
+public class TokenRevocationList {
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> revokedUsers = new ConcurrentHashMap<>();
+    private final long maxTokenTtlMillis;
+
+    /**
+     * Instantiates a new Token revocation list.
+     *
+     * @param refreshTokenTtl the refresh token ttl, the longest lifetime of an issued token
+     */
+    public TokenRevocationList(@Value("${rolt.security.jwt.refresh-token-ttl:P7D}") Duration refreshTokenTtl) {
+        this.maxTokenTtlMillis = refreshTokenTtl.toMillis();
+    }
+
+    /**
+     * Revokes a single token.
+     * <p>
+     * Only one of concurrent callers revoking the same token is told it revoked it, so a single-use token is
+     * spent at most once.
+     *
+     * @param claims the claims of the token
+     * @return true if the token was revoked by this call, false if it had been revoked before
+     */
+    public boolean revoke(Claims claims) {
+        Objects.requireNonNull(claims.getId());
+        purge();
+        return revokedTokens.putIfAbsent(claims.getId(), claims.getExpiration().getTime()) == null;
+    }
+
+    /**
+     * Revokes all tokens of the user issued until now.
+     *
+     * @param userId the user id
+     */
+    public void revokeAll(Integer userId) {
+        Objects.requireNonNull(userId);
+        purge();
+        // Token timestamps have a precision of seconds, so tokens issued in the current second are revoked too
+        final long issuedBefore = (System.currentTimeMillis() / 1000 + 1) * 1000;
+        revokedUsers.merge(userId, issuedBefore, Math::max);
+    }
+
+    /**
+     * Checks if the token is revoked.
+     *
+     * @param claims the claims of the token
+     * @return bool
+     */
+    public boolean isRevoked(Claims claims) {
+        if (claims.getId() != null && revokedTokens.containsKey(claims.getId())) {
+            return true;
+        }
+
+        final Long issuedBefore = revokedUsers.get(Integer.valueOf(claims.getSubject()));
+        final Date issuedAt = claims.getIssuedAt();
+        return issuedBefore != null && (issuedAt == null || issuedAt.getTime() < issuedBefore);
+    }
+
+    /**
+     * Revokes all tokens of the user after the changing transaction commits.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        revokeAll(event.getUserId());
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return revokedTokens.size() + revokedUsers.size();
+    }
+
+    private void purge() {
+        final long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(issuedBefore -> issuedBefore + maxTokenTtlMillis <= now);
+    }
+}
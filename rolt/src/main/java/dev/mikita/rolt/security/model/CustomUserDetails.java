@@ -1,5 +1,8 @@
 package dev.mikita.rolt.security.model;
 
+import dev.mikita.rolt.entity.Consumer;
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Role;
 import dev.mikita.rolt.entity.User;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -7,22 +10,38 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.*;
 
 /**
- * The type Custom user details.
+ * Immutable principal of an authenticated user.
+ * <p>
+ * Holds only the scalar attributes needed for authentication and authorization, never the user entity.
  */
-public class CustomUserDetails implements UserDetails {
-    private User user;
+public final class CustomUserDetails implements UserDetails {
+    private final Integer id;
+    private final String email;
+    private final String password;
+    private final Role role;
+    private final ConsumerStatus status;
     private final Set<GrantedAuthority> authorities;
 
+    /**
+     * Instantiates a new Custom user details.
+     *
+     * @param id       the id
+     * @param email    the email
+     * @param password the password hash
+     * @param role     the role
+     * @param status   the status, null for users who are not consumers
+     */
+    public CustomUserDetails(Integer id, String email, String password, Role role, ConsumerStatus status) {
+        this(id, email, password, role, status, Collections.emptySet());
+    }
+
     /**
      * Instantiates a new Custom user details.
      *
      * @param user the user
      */
     public CustomUserDetails(User user) {
-        Objects.requireNonNull(user);
-        this.user = user;
-        this.authorities = new HashSet<>();
-        addUserRole();
+        this(user, Collections.emptySet());
     }
 
     /**
@@ -32,19 +51,31 @@ public class CustomUserDetails implements UserDetails {
      * @param authorities the authorities
      */
     public CustomUserDetails(User user, Collection<GrantedAuthority> authorities) {
-        Objects.requireNonNull(user);
-        Objects.requireNonNull(authorities);
-        this.user = user;
-        this.authorities = new HashSet<>();
-        addUserRole();
-        this.authorities.addAll(authorities);
+        this(Objects.requireNonNull(user).getId(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getRole(),
+                user instanceof Consumer ? ((Consumer) user).getStatus() : null,
+                authorities);
     }
 
-    /**
-     * Adds a user role.
-     */
-    private void addUserRole() {
-        authorities.add(new SimpleGrantedAuthority(user.getRole().toString()));
+    private CustomUserDetails(Integer id,
+                              String email,
+                              String password,
+                              Role role,
+                              ConsumerStatus status,
+                              Collection<? extends GrantedAuthority> authorities) {
+        Objects.requireNonNull(role);
+        Objects.requireNonNull(authorities);
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.role = role;
+        this.status = status;
+
+        final Set<GrantedAuthority> all = new HashSet<>(authorities);
+        all.add(new SimpleGrantedAuthority(role.toString()));
+        this.authorities = Collections.unmodifiableSet(all);
     }
 
     /**
@@ -53,7 +84,7 @@ public class CustomUserDetails implements UserDetails {
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.unmodifiableCollection(authorities);
+        return authorities;
     }
 
     /**
@@ -62,7 +93,7 @@ public class CustomUserDetails implements UserDetails {
      */
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     /**
@@ -71,7 +102,7 @@ public class CustomUserDetails implements UserDetails {
      */
     @Override
     public String getUsername() {
-        return user.getEmail();
+        return email;
     }
 
     /**
@@ -107,22 +138,42 @@ public class CustomUserDetails implements UserDetails {
      */
     @Override
     public boolean isEnabled() {
-        return true;
+        return status == null || status == ConsumerStatus.ACTIVE;
     }
 
     /**
-     * Gets user.
+     * Gets id.
      *
-     * @return the user
+     * @return the id
      */
-    public User getUser() {
-        return user;
+    public Integer getId() {
+        return id;
     }
 
     /**
-     * Erase credentials.
+     * Gets role.
+     *
+     * @return the role
+     */
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * Gets status.
+     *
+     * @return the status, null for users who are not consumers
+     */
+    public ConsumerStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns a copy without the password hash.
+     *
+     * @return the user details
      */
-    public void eraseCredentials() {
-        user.erasePassword();
+    public CustomUserDetails withoutCredentials() {
+        return new CustomUserDetails(id, email, null, role, status, authorities);
     }
 }
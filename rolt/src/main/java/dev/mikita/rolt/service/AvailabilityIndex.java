@@ -0,0 +1,255 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.event.ContractChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Answers which properties are booked by contracts on given days without a query.
+ * <p>
+ * The date ranges of all contracts are loaded on startup and kept per property, sorted by their first day together
+ * with the latest last day so far, so an overlap is found by a single binary search. A change is applied as soon as
+ * the contract is saved or removed and undone if the transaction does not commit, so a pending contract already
+ * blocks competing ones. Contracts committed while the index is rebuilt are replayed on the loaded ones, as the
+ * snapshot may have been read before they committed. The index lives in this application instance and only sees
+ * changes made through it.
+ */
+@Service
+public class AvailabilityIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    private final ContractDao contractDao;
+
+    // Guarded by this, readers only look at the immutable bookings of a property
+    private final Map<Integer, Booking> contracts = new HashMap<>();
+    private final ConcurrentMap<Integer, Bookings> properties = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // Guarded by this, contracts committed during a rebuild by their ids, null for removed ones
+    private Map<Integer, Booking> committedDuringRebuild;
+
+    /**
+     * Instantiates a new Availability index.
+     *
+     * @param contractDao the contract dao
+     */
+    @Autowired
+    public AvailabilityIndex(ContractDao contractDao) {
+        this.contractDao = contractDao;
+    }
+
+    /**
+     * Rebuilds the index from all contracts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (this) {
+            committedDuringRebuild = new HashMap<>();
+        }
+        final List<Object[]> rows;
+        try {
+            rows = contractDao.findAllDateRanges();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                committedDuringRebuild = null;
+            }
+            throw e;
+        }
+        final Map<Integer, List<Booking>> byProperty = new HashMap<>();
+        synchronized (this) {
+            contracts.clear();
+            for (Object[] row : rows) {
+                final Booking booking = new Booking((Integer) row[0], (Integer) row[1], (LocalDate) row[2], (LocalDate) row[3]);
+                contracts.put(booking.contractId, booking);
+                byProperty.computeIfAbsent(booking.propertyId, id -> new ArrayList<>()).add(booking);
+            }
+            properties.clear();
+            byProperty.forEach((propertyId, bookings) -> properties.put(propertyId, Bookings.of(bookings)));
+            ready = true;
+            // Replaying a contract the snapshot already holds changes nothing
+            committedDuringRebuild.forEach(this::apply);
+            committedDuringRebuild = null;
+        }
+        LOG.info("Availability index rebuilt with {} contracts of {} properties.", rows.size(), byProperty.size());
+    }
+
+    /**
+     * Checks if the index has been built.
+     *
+     * @return bool
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Checks if no contract of the property overlaps the days.
+     *
+     * @param propertyId the property id
+     * @param start      the first day
+     * @param end        the last day
+     * @return bool
+     */
+    public boolean isFree(Integer propertyId, LocalDate start, LocalDate end) {
+        Objects.requireNonNull(propertyId);
+        final Bookings bookings = properties.get(propertyId);
+        return bookings == null || !bookings.overlaps(start.toEpochDay(), end.toEpochDay());
+    }
+
+    /**
+     * Finds the properties with a contract overlapping the days among the given ones.
+     *
+     * @param propertyIds the ids of the properties to check
+     * @param start       the first day
+     * @param end         the last day
+     * @return the ids of the booked properties
+     */
+    public Set<Integer> findBooked(Collection<Integer> propertyIds, LocalDate start, LocalDate end) {
+        final Set<Integer> booked = new HashSet<>();
+        for (Integer propertyId : propertyIds) {
+            if (!isFree(propertyId, start, end)) {
+                booked.add(propertyId);
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Applies a change of a contract and undoes it if the changing transaction does not commit.
+     *
+     * @param event the event
+     */
+    @EventListener
+    public void onContractChanged(ContractChangedEvent event) {
+        final Booking booking = event.isRemoved() ? null : new Booking(
+                event.getContractId(), event.getPropertyId(), event.getStartDate(), event.getEndDate());
+        final Booking previous = apply(event.getContractId(), booking);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(event.getContractId(), booking);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    committed(event.getContractId(), booking);
+                } else if (previous != Booking.UNAPPLIED) {
+                    apply(event.getContractId(), previous);
+                }
+            }
+        });
+    }
+
+    private synchronized void committed(Integer contractId, Booking booking) {
+        if (committedDuringRebuild != null) {
+            committedDuringRebuild.put(contractId, booking);
+        } else {
+            // A rebuild may have replaced the bookings the change was applied to before it committed
+            apply(contractId, booking);
+        }
+    }
+
+    private synchronized Booking apply(Integer contractId, Booking booking) {
+        if (!ready) {
+            // The rebuild reads or replays the contract once it commits
+            return Booking.UNAPPLIED;
+        }
+        final Booking previous = booking == null ? contracts.remove(contractId) : contracts.put(contractId, booking);
+        if (previous != null) {
+            properties.computeIfPresent(previous.propertyId, (id, bookings) -> bookings.without(contractId));
+        }
+        if (booking != null) {
+            properties.compute(booking.propertyId, (id, bookings) -> Bookings.with(bookings, booking));
+        }
+        return previous;
+    }
+
+    private static final class Booking {
+        // Returned for a change made before the index is built, which has nothing to undo
+        private static final Booking UNAPPLIED = new Booking(0, 0, LocalDate.MIN, LocalDate.MIN);
+
+        private final int contractId;
+        private final int propertyId;
+        private final long start;
+        private final long end;
+
+        private Booking(Integer contractId, Integer propertyId, LocalDate start, LocalDate end) {
+            this.contractId = contractId;
+            this.propertyId = propertyId;
+            this.start = start.toEpochDay();
+            this.end = end.toEpochDay();
+        }
+    }
+
+    /**
+     * Bookings of a property, sorted by their first day. Instances are immutable and replaced on change.
+     */
+    private static final class Bookings {
+        private static final Comparator<Booking> BY_START = Comparator.comparingLong(b -> b.start);
+
+        private final Booking[] byStart;
+        private final long[] maxEnd;
+
+        private Bookings(Booking[] byStart) {
+            Arrays.sort(byStart, BY_START);
+            this.byStart = byStart;
+            this.maxEnd = new long[byStart.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < byStart.length; i++) {
+                max = Math.max(max, byStart[i].end);
+                maxEnd[i] = max;
+            }
+        }
+
+        private static Bookings of(List<Booking> bookings) {
+            return new Bookings(bookings.toArray(new Booking[0]));
+        }
+
+        private static Bookings with(Bookings bookings, Booking booking) {
+            if (bookings == null) {
+                return new Bookings(new Booking[]{booking});
+            }
+            final Booking[] copy = Arrays.copyOf(bookings.byStart, bookings.byStart.length + 1);
+            copy[copy.length - 1] = booking;
+            return new Bookings(copy);
+        }
+
+        /**
+         * Returns the bookings without the contract, or null if none is left.
+         */
+        private Bookings without(int contractId) {
+            final Booking[] rest = Arrays.stream(byStart).filter(b -> b.contractId != contractId).toArray(Booking[]::new);
+            return rest.length == 0 ? null : new Bookings(rest);
+        }
+
+        private boolean overlaps(long start, long end) {
+            // The last booking starting on or before the end overlaps if any booking up to it lasts until the start
+            int low = 0;
+            int high = byStart.length - 1;
+            int last = -1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                if (byStart[middle].start <= end) {
+                    last = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return last >= 0 && maxEnd[last] >= start;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package dev.mikita.rolt.service;
 
 import dev.mikita.rolt.dao.CityDao;
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
 import dev.mikita.rolt.entity.City;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -15,27 +21,58 @@ import java.util.List;
 @Service
 public class CityService {
     private final CityDao cityDao;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new City service.
      *
-     * @param cityDao the city dao
+     * @param cityDao        the city dao
+     * @param eventPublisher the event publisher
      */
     @Autowired
-    public CityService(CityDao cityDao) {
+    public CityService(CityDao cityDao, ApplicationEventPublisher eventPublisher) {
         this.cityDao = cityDao;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Find all page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows.
+     *
+     * @param pageable    the pageable
+     * @param name        the name
+     * @param approximate true to estimate large totals from planner statistics
+     * @return the page
+     */
+    @Transactional(readOnly = true)
+    public CountedPage<City> findAll(Pageable pageable, String name, boolean approximate) {
+        return cityDao.findAll(pageable, name, approximate ? CountMode.APPROXIMATE : CountMode.CACHED);
+    }
+
+    /**
+     * Find all slice without counting the total.
      *
      * @param pageable the pageable
      * @param name     the name
-     * @return the page
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<City> findSlice(Pageable pageable, String name) {
+        return cityDao.findSlice(pageable, name);
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param name     the name
+     * @return the cursor page
      */
     @Transactional(readOnly = true)
-    public Page<City> findAll(Pageable pageable, String name) {
-        return cityDao.findAll(pageable, name);
+    public CursorPage<City> findAll(Pageable pageable, Cursor cursor, String name) {
+        return cityDao.findAll(pageable, cursor, name);
     }
 
     /**
@@ -49,6 +86,17 @@ public class CityService {
         return cityDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing city without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the city does not exist
+     */
+    @Transactional(readOnly = true)
+    public City getReference(Integer id) {
+        return cityDao.getReference(id);
+    }
+
     /**
      * Persist.
      *
@@ -57,6 +105,7 @@ public class CityService {
     @Transactional
     public void persist(City city) {
         cityDao.persist(city);
+        eventPublisher.publishEvent(new ListingChangedEvent(City.class));
     }
 
     /**
@@ -67,6 +116,7 @@ public class CityService {
     @Transactional
     public void update(City city) {
         cityDao.update(city);
+        eventPublisher.publishEvent(new ListingChangedEvent(City.class));
     }
 
     /**
@@ -77,5 +127,6 @@ public class CityService {
     @Transactional
     public void remove(City city) {
         cityDao.remove(city);
+        eventPublisher.publishEvent(new ListingChangedEvent(City.class));
     }
 }
@@ -0,0 +1,262 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.ConsumerDao;
+import dev.mikita.rolt.dao.ConsumerRatingDao;
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.ReviewDao;
+import dev.mikita.rolt.entity.ConsumerRating;
+import dev.mikita.rolt.entity.PublicationStatus;
+import dev.mikita.rolt.entity.Review;
+import dev.mikita.rolt.exception.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keeps the ratings of consumers, aggregated from published reviews.
+ * <p>
+ * Every change of a review adds its difference to the ratings of the reviewed parties within the changing
+ * transaction, so a rating is read by its key. The repair recomputes all ratings from the reviews, it runs at startup
+ * when a consumer has no rating yet, e.g. for consumers registered before the ratings were kept.
+ */
+@Service
+public class ConsumerRatingService implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(ConsumerRatingService.class);
+
+    private final ConsumerRatingDao consumerRatingDao;
+    private final ConsumerDao consumerDao;
+    private final ContractDao contractDao;
+    private final ReviewDao reviewDao;
+    private final TransactionTemplate transaction;
+    private final int repairChunkSize;
+    private final int repairThreads;
+
+    /**
+     * Instantiates a new Consumer rating service.
+     *
+     * @param consumerRatingDao  the consumer rating dao
+     * @param consumerDao        the consumer dao
+     * @param contractDao        the contract dao
+     * @param reviewDao          the review dao
+     * @param transactionManager the transaction manager
+     * @param repairChunkSize    the number of consumer ids repaired by one transaction
+     * @param repairThreads      the number of chunks repaired in parallel
+     */
+    @Autowired
+    public ConsumerRatingService(ConsumerRatingDao consumerRatingDao,
+                                 ConsumerDao consumerDao,
+                                 ContractDao contractDao,
+                                 ReviewDao reviewDao,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${rolt.rating.repair.chunk-size:1000}") int repairChunkSize,
+                                 @Value("${rolt.rating.repair.threads:4}") int repairThreads) {
+        this.consumerRatingDao = consumerRatingDao;
+        this.consumerDao = consumerDao;
+        this.contractDao = contractDao;
+        this.reviewDao = reviewDao;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.repairChunkSize = repairChunkSize;
+        this.repairThreads = repairThreads;
+    }
+
+    /**
+     * Repairs the ratings when a consumer has none, before the web server accepts requests changing them.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        final Long missing = transaction.execute(status -> consumerDao.countWithoutRating());
+        if (missing != null && missing > 0) {
+            LOG.info("Ratings of {} consumers are missing.", missing);
+            repair();
+        }
+    }
+
+    /**
+     * Find rating.
+     *
+     * @param consumerId the consumer id
+     * @return the rating, or null if the consumer has none
+     */
+    @Transactional(readOnly = true)
+    public ConsumerRating find(Integer consumerId) {
+        return consumerRatingDao.find(consumerId);
+    }
+
+    /**
+     * Creates the rating of a new consumer, so reviews of the consumer only update it.
+     *
+     * @param consumerId the consumer id
+     */
+    @Transactional
+    public void create(Integer consumerId) {
+        consumerRatingDao.persist(new ConsumerRating(consumerId));
+    }
+
+    /**
+     * Adds the difference of a changed review to the ratings.
+     * <p>
+     * Only published reviews are counted, so a review changing its status is added or removed.
+     *
+     * @param previous the review before the change, null for a new review
+     * @param current  the review after the change
+     */
+    @Transactional
+    public void update(Rated previous, Rated current) {
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        final Map<Integer, ConsumerRating> deltas = new HashMap<>();
+        add(deltas, previous, -1);
+        add(deltas, current, 1);
+        deltas.values().forEach(consumerRatingDao::add);
+    }
+
+    /**
+     * Removes the published reviews of an author from the ratings, before they are removed in bulk.
+     *
+     * @param authorId the author id
+     */
+    @Transactional
+    public void removeAllByAuthor(Integer authorId) {
+        final Map<Integer, ConsumerRating> deltas = new HashMap<>();
+        for (Object[] row : reviewDao.findRatingsByAuthor(authorId, PublicationStatus.PUBLISHED)) {
+            add(deltas, new Integer[]{(Integer) row[0], (Integer) row[1]}, authorId, (Integer) row[2], -1);
+        }
+        deltas.values().forEach(consumerRatingDao::add);
+    }
+
+    /**
+     * Recomputes the ratings of all consumers from their reviews.
+     * <p>
+     * Consumers are split into ranges of ids repaired in parallel, each in its own transaction. A review changed
+     * while its range is repaired may be missed, the repair is meant for quiet periods.
+     *
+     * @return the number of repaired ratings
+     */
+    public long repair() {
+        final Integer[] range = consumerDao.findIdRange();
+        if (range == null) {
+            return 0;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(repairThreads);
+        try {
+            final List<Future<Integer>> chunks = new ArrayList<>();
+            for (long first = range[0]; first <= range[1]; first += repairChunkSize) {
+                final int from = (int) first;
+                final int to = (int) Math.min(first + repairChunkSize - 1, range[1]);
+                chunks.add(executor.submit(() -> transaction.execute(status -> repair(from, to))));
+            }
+
+            long repaired = 0;
+            for (Future<Integer> chunk : chunks) {
+                repaired += chunk.get();
+            }
+            LOG.info("Repaired ratings of {} consumers.", repaired);
+            return repaired;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The repair of ratings was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PersistenceException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int repair(int first, int last) {
+        final Map<Integer, ConsumerRating> ratings = new HashMap<>();
+        for (Integer consumerId : consumerDao.findIds(first, last)) {
+            ratings.put(consumerId, new ConsumerRating(consumerId));
+        }
+        for (Object[] row : reviewDao.countRatings(first, last, PublicationStatus.PUBLISHED)) {
+            final ConsumerRating rating = ratings.get((Integer) row[0]);
+            if (rating != null) {
+                rating.add((Integer) row[1], ((Number) row[2]).longValue());
+            }
+        }
+        consumerRatingDao.replaceRange(first, last, ratings.values());
+        return ratings.size();
+    }
+
+    private void add(Map<Integer, ConsumerRating> deltas, Rated review, int delta) {
+        if (review != null && review.isCounted()) {
+            add(deltas, contractDao.findPartyIds(review.contractId), review.authorId, review.rating, delta);
+        }
+    }
+
+    private static void add(Map<Integer, ConsumerRating> deltas, Integer[] partyIds, Integer authorId, int rating, int delta) {
+        if (partyIds == null) {
+            return;
+        }
+        for (Integer consumerId : partyIds) {
+            // A review rates the other party of the contract, never its author
+            if (consumerId != null && !consumerId.equals(authorId)) {
+                deltas.computeIfAbsent(consumerId, ConsumerRating::new).add(rating, delta);
+            }
+        }
+    }
+
+    /**
+     * The part of a review the ratings depend on.
+     */
+    public static final class Rated {
+        private final Integer contractId;
+        private final Integer authorId;
+        private final Integer rating;
+        private final PublicationStatus status;
+
+        private Rated(Integer contractId, Integer authorId, Integer rating, PublicationStatus status) {
+            this.contractId = contractId;
+            this.authorId = authorId;
+            this.rating = rating;
+            this.status = status;
+        }
+
+        /**
+         * Takes the part of a review the ratings depend on.
+         *
+         * @param review the review
+         * @return the rated part, or null if the review is null
+         */
+        public static Rated of(Review review) {
+            if (review == null) {
+                return null;
+            }
+            return new Rated(
+                    review.getContract() == null ? null : review.getContract().getId(),
+                    review.getAuthor() == null ? null : review.getAuthor().getId(),
+                    review.getRating(),
+                    review.getStatus());
+        }
+
+        private boolean isCounted() {
+            return status == PublicationStatus.PUBLISHED && contractId != null && rating != null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Rated)) return false;
+            Rated rated = (Rated) o;
+            return Objects.equals(contractId, rated.contractId) && Objects.equals(authorId, rated.authorId)
+                    && Objects.equals(rating, rated.rating) && status == rated.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(contractId, authorId, rating, status);
+        }
+    }
+}
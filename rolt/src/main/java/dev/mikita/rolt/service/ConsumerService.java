@@ -1,9 +1,15 @@
 package dev.mikita.rolt.service;
 
 import dev.mikita.rolt.dao.ConsumerDao;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
 import dev.mikita.rolt.entity.Consumer;
+import dev.mikita.rolt.entity.ConsumerRating;
 import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Landlord;
+import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -15,15 +21,31 @@ import java.util.Objects;
 @Service
 public class ConsumerService {
     private final ConsumerDao consumerDao;
+    private final LandlordService landlordService;
+    private final TenantService tenantService;
+    private final ConsumerRatingService consumerRatingService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Consumer service.
      *
-     * @param consumerDao the consumer dao
+     * @param consumerDao           the consumer dao
+     * @param landlordService       the landlord service
+     * @param tenantService         the tenant service
+     * @param consumerRatingService the consumer rating service
+     * @param eventPublisher        the event publisher
      */
     @Autowired
-    public ConsumerService(ConsumerDao consumerDao) {
+    public ConsumerService(ConsumerDao consumerDao,
+                           LandlordService landlordService,
+                           TenantService tenantService,
+                           ConsumerRatingService consumerRatingService,
+                           ApplicationEventPublisher eventPublisher) {
         this.consumerDao = consumerDao;
+        this.landlordService = landlordService;
+        this.tenantService = tenantService;
+        this.consumerRatingService = consumerRatingService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -36,6 +58,17 @@ public class ConsumerService {
         return consumerDao.findAll();
     }
 
+    /**
+     * Passes all consumers to the action one at a time without holding them in memory.
+     *
+     * @param action the action receiving the consumers
+     * @return the number of consumers
+     */
+    @Transactional(readOnly = true)
+    public long forEach(java.util.function.Consumer<? super Consumer> action) {
+        return consumerDao.forEach(action);
+    }
+
     /**
      * Find consumer.
      *
@@ -47,15 +80,38 @@ public class ConsumerService {
         return consumerDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing consumer without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the consumer does not exist
+     */
+    @Transactional(readOnly = true)
+    public Consumer getReference(Integer id) {
+        return consumerDao.getReference(id);
+    }
+
     /**
      * Gets rating.
+     * <p>
+     * The rating is read from the aggregate kept by the consumer rating service.
      *
      * @param consumer the consumer
-     * @return the rating
+     * @return the average rating of the published reviews of the consumer, or null if there is none
      */
     @Transactional(readOnly = true)
     public Double getRating(Consumer consumer) {
-        return consumerDao.getRating(consumer);
+        final ConsumerRating rating = consumerRatingService.find(consumer.getId());
+        return rating == null ? null : rating.getAverage();
+    }
+
+    /**
+     * Recomputes the ratings of all consumers from their reviews.
+     *
+     * @return the number of repaired ratings
+     */
+    public long repairRatings() {
+        return consumerRatingService.repair();
     }
 
     /**
@@ -66,6 +122,7 @@ public class ConsumerService {
     @Transactional
     public void persist(Consumer city) {
         consumerDao.persist(city);
+        eventPublisher.publishEvent(new ListingChangedEvent(Consumer.class));
     }
 
     /**
@@ -75,7 +132,13 @@ public class ConsumerService {
      */
     @Transactional
     public void update(Consumer city) {
+        // Only changes of how the user signs in end their sessions, the stored state is read before it is overwritten
+        final boolean securityChanged = !city.hasSameSecurity(consumerDao.find(city.getId()));
         consumerDao.update(city);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(city.getId()));
+        }
+        eventPublisher.publishEvent(new ListingChangedEvent(Consumer.class));
     }
 
     /**
@@ -88,18 +151,26 @@ public class ConsumerService {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.DELETED);
         consumerDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Consumer.class));
     }
 
     /**
      * Block.
+     * <p>
+     * A landlord is blocked by {@link LandlordService#block(Landlord)}, a tenant by
+     * {@link TenantService#block(Tenant)}.
      *
      * @param user the user
      */
     @Transactional
     public void block(Consumer user) {
         Objects.requireNonNull(user);
-        user.setStatus(ConsumerStatus.BANNED);
-        consumerDao.update(user);
+        if (user instanceof Landlord) {
+            landlordService.block((Landlord) user);
+        } else {
+            tenantService.block((Tenant) user);
+        }
     }
 
     /**
@@ -112,5 +183,7 @@ public class ConsumerService {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.ACTIVE);
         consumerDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Consumer.class));
     }
 }
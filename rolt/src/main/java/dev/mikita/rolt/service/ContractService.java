@@ -1,15 +1,24 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
 import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.ContractFilter;
+import dev.mikita.rolt.dao.event.ContractChangedEvent;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
+import dev.mikita.rolt.dto.contract.ResponsePublicContractDto;
 import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.exception.PersistenceException;
 import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.security.event.OwnershipChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.List;
-import java.util.Map;
 
 /**
  * The type Contract service.
@@ -17,27 +26,67 @@ import java.util.Map;
 @Service
 public class ContractService {
     private final ContractDao contractDao;
+    private final AvailabilityIndex availabilityIndex;
+    private final PropertyLocks propertyLocks;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Contract service.
      *
-     * @param contractDao the contract dao
+     * @param contractDao       the contract dao
+     * @param availabilityIndex the availability index
+     * @param propertyLocks     the property locks
+     * @param eventPublisher    the event publisher
      */
     @Autowired
-    public ContractService(ContractDao contractDao) {
+    public ContractService(ContractDao contractDao,
+                           AvailabilityIndex availabilityIndex,
+                           PropertyLocks propertyLocks,
+                           ApplicationEventPublisher eventPublisher) {
         this.contractDao = contractDao;
+        this.availabilityIndex = availabilityIndex;
+        this.propertyLocks = propertyLocks;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Find all page.
+     * Find all public page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows.
      *
-     * @param pageable the pageable
-     * @param filters  the filters
+     * @param pageable    the pageable
+     * @param filter      the filter
+     * @param approximate true to estimate large totals from planner statistics
      * @return the page
      */
     @Transactional(readOnly = true)
-    public Page<Contract> findAll(Pageable pageable, Map<String, Object> filters) {
-        return contractDao.findAll(pageable, filters);
+    public CountedPage<ResponsePublicContractDto> findAllPublic(Pageable pageable, ContractFilter filter, boolean approximate) {
+        return contractDao.findAllPublic(pageable, filter, approximate ? CountMode.APPROXIMATE : CountMode.CACHED);
+    }
+
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<ResponsePublicContractDto> findSlicePublic(Pageable pageable, ContractFilter filter) {
+        return contractDao.findSlicePublic(pageable, filter);
+    }
+
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ResponsePublicContractDto> findAllPublic(Pageable pageable, Cursor cursor, ContractFilter filter) {
+        return contractDao.findAllPublic(pageable, cursor, filter);
     }
 
     /**
@@ -51,20 +100,50 @@ public class ContractService {
         return contractDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing contract without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the contract does not exist
+     */
+    @Transactional(readOnly = true)
+    public Contract getReference(Integer id) {
+        return contractDao.getReference(id);
+    }
+
     /**
      * Persist.
+     * <p>
+     * The property is locked until the transaction completes, so contracts of the same property are created one
+     * after another while other properties are booked in parallel. Overlapping contracts are then looked up in the
+     * availability index, the database is queried only before it is built. A contract overlapping one the index
+     * has not seen, e.g. created by another instance, is rejected by the exclusion constraint of the database.
      *
      * @param contract the contract
      */
     @Transactional
     public void persist(Contract contract) {
-        List<Contract> intersections = contractDao.findIntersectionsByDateRange(contract.getProperty(), contract.getStartDate(), contract.getEndDate());
+        propertyLocks.lock(contract.getProperty().getId());
+
+        final boolean free = availabilityIndex.isReady()
+                ? availabilityIndex.isFree(contract.getProperty().getId(), contract.getStartDate(), contract.getEndDate())
+                : contractDao.findIntersectionsByDateRange(contract.getProperty(), contract.getStartDate(), contract.getEndDate()).isEmpty();
 
-        if (intersections.size() > 0) {
+        if (!free) {
             throw new ValidationException("Contracts already exist in this date range.");
         }
 
-        contractDao.persist(contract);
+        try {
+            contractDao.persist(contract);
+            contractDao.flush();
+        } catch (PersistenceException e) {
+            if (e.isExclusionViolation()) {
+                throw new ValidationException("Contracts already exist in this date range.");
+            }
+            throw e;
+        }
+        eventPublisher.publishEvent(saved(contract));
+        eventPublisher.publishEvent(new ListingChangedEvent(Contract.class));
     }
 
     /**
@@ -75,6 +154,9 @@ public class ContractService {
     @Transactional
     public void update(Contract contract) {
         contractDao.update(contract);
+        eventPublisher.publishEvent(saved(contract));
+        eventPublisher.publishEvent(new OwnershipChangedEvent(Contract.class, contract.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Contract.class));
     }
 
     /**
@@ -85,5 +167,13 @@ public class ContractService {
     @Transactional
     public void remove(Contract contract) {
         contractDao.remove(contract);
+        eventPublisher.publishEvent(ContractChangedEvent.removed(contract.getId()));
+        eventPublisher.publishEvent(new OwnershipChangedEvent(Contract.class, contract.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Contract.class));
+    }
+
+    private static ContractChangedEvent saved(Contract contract) {
+        return ContractChangedEvent.saved(contract.getId(), contract.getProperty().getId(),
+                contract.getStartDate(), contract.getEndDate());
     }
 }
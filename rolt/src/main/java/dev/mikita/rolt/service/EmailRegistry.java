@@ -0,0 +1,88 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.cache.BloomFilter;
+import dev.mikita.rolt.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Answers whether an email is already registered.
+ * <p>
+ * A Bloom filter of registered emails, rebuilt on startup, rules out most new emails without a query.
+ * Possible matches are confirmed by an index-only existence check. The unique constraint on the email
+ * column stays the final arbiter for concurrent registrations.
+ */
+@Service
+public class EmailRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(EmailRegistry.class);
+
+    private final UserDao userDao;
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+    private volatile BloomFilter filter;
+
+    /**
+     * Instantiates a new Email registry.
+     *
+     * @param userDao                  the user dao
+     * @param expectedInsertions       the expected number of registered emails
+     * @param falsePositiveProbability the false positive probability of the filter
+     */
+    @Autowired
+    public EmailRegistry(UserDao userDao,
+                         @Value("${rolt.registration.email-filter.expected-insertions:100000}") int expectedInsertions,
+                         @Value("${rolt.registration.email-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.userDao = userDao;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Rebuilds the filter from all registered emails.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        final List<String> emails = userDao.findAllEmails();
+        final BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, emails.size()), falsePositiveProbability);
+        emails.forEach(rebuilt::add);
+        filter = rebuilt;
+        LOG.info("Email filter rebuilt with {} registered emails.", emails.size());
+    }
+
+    /**
+     * Checks if the email is registered.
+     *
+     * @param email the email
+     * @return bool
+     */
+    @Transactional(readOnly = true)
+    public boolean isRegistered(String email) {
+        Objects.requireNonNull(email);
+        final BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            return false;
+        }
+        return userDao.existsByEmail(email);
+    }
+
+    /**
+     * Records a newly registered email.
+     *
+     * @param email the email
+     */
+    public void add(String email) {
+        final BloomFilter current = filter;
+        if (current != null) {
+            current.add(email);
+        }
+    }
+}
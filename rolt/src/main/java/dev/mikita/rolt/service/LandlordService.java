@@ -1,16 +1,25 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
 import dev.mikita.rolt.dao.LandlordDao;
-import dev.mikita.rolt.dao.UserDao;
+import dev.mikita.rolt.dao.LandlordFilter;
+import dev.mikita.rolt.dao.PropertyDao;
+import dev.mikita.rolt.dao.ReviewDao;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
 import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.exception.PersistenceException;
 import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -19,36 +28,80 @@ import java.util.Objects;
 @Service
 public class LandlordService {
     private final LandlordDao landlordDao;
-    private final UserDao userDao;
+    private final PropertyDao propertyDao;
+    private final ReviewDao reviewDao;
+    private final ConsumerRatingService consumerRatingService;
+    private final EmailRegistry emailRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Landlord service.
      *
-     * @param landlordDao     the landlord dao
-     * @param passwordEncoder the password encoder
-     * @param userDao         the user dao
+     * @param landlordDao           the landlord dao
+     * @param propertyDao           the property dao
+     * @param reviewDao             the review dao
+     * @param consumerRatingService the consumer rating service
+     * @param passwordEncoder       the password encoder
+     * @param emailRegistry         the email registry
+     * @param eventPublisher        the event publisher
      */
     @Autowired
     public LandlordService(
             LandlordDao landlordDao,
+            PropertyDao propertyDao,
+            ReviewDao reviewDao,
+            ConsumerRatingService consumerRatingService,
             PasswordEncoder passwordEncoder,
-            UserDao userDao) {
+            EmailRegistry emailRegistry,
+            ApplicationEventPublisher eventPublisher) {
         this.landlordDao = landlordDao;
+        this.propertyDao = propertyDao;
+        this.reviewDao = reviewDao;
+        this.consumerRatingService = consumerRatingService;
         this.passwordEncoder = passwordEncoder;
-        this.userDao = userDao;
+        this.emailRegistry = emailRegistry;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Find all page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows.
      *
-     * @param pageable the pageable
-     * @param filters  the filters
+     * @param pageable    the pageable
+     * @param filter      the filter
+     * @param approximate true to estimate large totals from planner statistics
      * @return the page
      */
     @Transactional(readOnly = true)
-    public Page<Landlord> findAll(Pageable pageable, Map<String, Object> filters) {
-        return landlordDao.findAll(pageable, filters);
+    public CountedPage<Landlord> findAll(Pageable pageable, LandlordFilter filter, boolean approximate) {
+        return landlordDao.findAll(pageable, filter, approximate ? CountMode.APPROXIMATE : CountMode.CACHED);
+    }
+
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<Landlord> findSlice(Pageable pageable, LandlordFilter filter) {
+        return landlordDao.findSlice(pageable, filter);
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Landlord> findAll(Pageable pageable, Cursor cursor, LandlordFilter filter) {
+        return landlordDao.findAll(pageable, cursor, filter);
     }
 
     /**
@@ -62,6 +115,17 @@ public class LandlordService {
         return landlordDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing landlord without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the landlord does not exist
+     */
+    @Transactional(readOnly = true)
+    public Landlord getReference(Integer id) {
+        return landlordDao.getReference(id);
+    }
+
     /**
      * Persist.
      *
@@ -70,13 +134,24 @@ public class LandlordService {
     @Transactional
     public void persist(Landlord user) {
         Objects.requireNonNull(user);
-        if (userDao.findByEmail(user.getEmail()) != null) {
+        if (emailRegistry.isRegistered(user.getEmail())) {
             throw new ValidationException("A user with this email already exists.");
         }
 
         user.setRole(Role.LANDLORD);
         user.encodePassword(passwordEncoder);
-        landlordDao.persist(user);
+        try {
+            landlordDao.persist(user);
+            landlordDao.flush();
+        } catch (PersistenceException e) {
+            if (e.isConstraintViolation()) {
+                throw new ValidationException("A user with this email already exists.");
+            }
+            throw e;
+        }
+        consumerRatingService.create(user.getId());
+        emailRegistry.add(user.getEmail());
+        eventPublisher.publishEvent(new ListingChangedEvent(Landlord.class));
     }
 
     /**
@@ -86,7 +161,13 @@ public class LandlordService {
      */
     @Transactional
     public void update(Landlord user) {
+        // Only changes of how the user signs in end their sessions, the stored state is read before it is overwritten
+        final boolean securityChanged = !user.hasSameSecurity(landlordDao.find(user.getId()));
         landlordDao.update(user);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        }
+        eventPublisher.publishEvent(new ListingChangedEvent(Landlord.class));
     }
 
     /**
@@ -99,10 +180,14 @@ public class LandlordService {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.DELETED);
         landlordDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Landlord.class));
     }
 
     /**
      * Block.
+     * <p>
+     * Properties and reviews of the landlord are removed by one statement each, however many there are.
      *
      * @param user the user
      */
@@ -110,8 +195,19 @@ public class LandlordService {
     public void block(Landlord user) {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.BANNED);
-        user.getProperties().forEach(p -> p.setStatus(PublicationStatus.DELETED));
         landlordDao.update(user);
+        // Written before the bulk updates, so a merge cascading to loaded properties cannot overwrite them
+        landlordDao.flush();
+
+        if (propertyDao.removeAllByOwner(user.getId()) > 0) {
+            eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
+        }
+        consumerRatingService.removeAllByAuthor(user.getId());
+        if (reviewDao.removeAllByAuthor(user.getId()) > 0) {
+            eventPublisher.publishEvent(new ListingChangedEvent(Review.class));
+        }
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Landlord.class));
     }
 
     /**
@@ -124,5 +220,7 @@ public class LandlordService {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.ACTIVE);
         landlordDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Landlord.class));
     }
 }
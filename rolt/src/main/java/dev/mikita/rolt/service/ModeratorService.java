@@ -1,11 +1,13 @@
 package dev.mikita.rolt.service;
 
 import dev.mikita.rolt.dao.ModeratorDao;
-import dev.mikita.rolt.dao.UserDao;
 import dev.mikita.rolt.entity.Moderator;
 import dev.mikita.rolt.entity.Role;
+import dev.mikita.rolt.exception.PersistenceException;
 import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,23 +20,27 @@ import java.util.Objects;
 @Service
 public class ModeratorService {
     private final ModeratorDao moderatorDao;
-    private final UserDao userDao;
+    private final EmailRegistry emailRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Moderator service.
      *
      * @param moderatorDao    the moderator dao
      * @param passwordEncoder the password encoder
-     * @param userDao         the user dao
+     * @param emailRegistry   the email registry
+     * @param eventPublisher  the event publisher
      */
     @Autowired
     public ModeratorService(ModeratorDao moderatorDao,
                             PasswordEncoder passwordEncoder,
-                            UserDao userDao) {
+                            EmailRegistry emailRegistry,
+                            ApplicationEventPublisher eventPublisher) {
         this.moderatorDao = moderatorDao;
-        this.userDao = userDao;
+        this.emailRegistry = emailRegistry;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -66,13 +72,22 @@ public class ModeratorService {
     @Transactional
     public void persist(Moderator user) {
         Objects.requireNonNull(user);
-        if (userDao.findByEmail(user.getEmail()) != null) {
+        if (emailRegistry.isRegistered(user.getEmail())) {
             throw new ValidationException("A user with this email already exists.");
         }
 
         user.setRole(Role.MODERATOR);
         user.encodePassword(passwordEncoder);
-        moderatorDao.persist(user);
+        try {
+            moderatorDao.persist(user);
+            moderatorDao.flush();
+        } catch (PersistenceException e) {
+            if (e.isConstraintViolation()) {
+                throw new ValidationException("A user with this email already exists.");
+            }
+            throw e;
+        }
+        emailRegistry.add(user.getEmail());
     }
 
     /**
@@ -82,7 +97,12 @@ public class ModeratorService {
      */
     @Transactional
     public void update(Moderator user) {
+        // Only changes of how the user signs in end their sessions, the stored state is read before it is overwritten
+        final boolean securityChanged = !user.hasSameSecurity(moderatorDao.find(user.getId()));
         moderatorDao.update(user);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        }
     }
 
     /**
@@ -93,5 +113,6 @@ public class ModeratorService {
     @Transactional
     public void remove(Moderator user) {
         moderatorDao.remove(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
     }
 }
@@ -0,0 +1,64 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.ContractDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes changes of the contracts of a property, so a check for overlapping contracts and the insert
+ * following it are not interleaved with those of another booking.
+ * <p>
+ * Within the application instance a property is locked by one of a fixed number of stripes picked by its id,
+ * bookings of properties on different stripes never wait for each other. The database additionally holds an
+ * advisory lock on the property for instances sharing it. Both are held until the transaction completes, so
+ * the next booking sees the committed contract.
+ */
+@Service
+public class PropertyLocks {
+    private final ContractDao contractDao;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Instantiates new Property locks.
+     *
+     * @param contractDao the contract dao
+     * @param stripes     the number of in-memory locks properties are spread over
+     */
+    @Autowired
+    public PropertyLocks(ContractDao contractDao, @Value("${rolt.contract.lock-stripes:256}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("At least one lock stripe is required.");
+        }
+        this.contractDao = contractDao;
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the contracts of a property until the current transaction completes.
+     *
+     * @param propertyId the property id
+     */
+    public void lock(Integer propertyId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A property can only be locked within a transaction.");
+        }
+
+        final ReentrantLock stripe = stripes[Math.floorMod(propertyId, stripes.length)];
+        stripe.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+        // Taken while holding the stripe, so threads of this instance queue in memory rather than on connections
+        contractDao.lockProperty(propertyId);
+    }
+}
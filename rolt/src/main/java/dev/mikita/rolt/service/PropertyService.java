@@ -1,15 +1,30 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
 import dev.mikita.rolt.dao.PropertyDao;
+import dev.mikita.rolt.dao.PropertyFilter;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
+import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
 import dev.mikita.rolt.entity.Property;
 import dev.mikita.rolt.entity.PublicationStatus;
+import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.security.event.OwnershipChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.Map;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * The type Property service.
@@ -17,27 +32,109 @@ import java.util.Objects;
 @Service
 public class PropertyService {
     private final PropertyDao propertyDao;
+    private final ContractDao contractDao;
+    private final AvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Property service.
      *
-     * @param propertyDao the property dao
+     * @param propertyDao       the property dao
+     * @param contractDao       the contract dao
+     * @param availabilityIndex the availability index
+     * @param eventPublisher    the event publisher
      */
     @Autowired
-    public PropertyService(PropertyDao propertyDao) {
+    public PropertyService(PropertyDao propertyDao,
+                           ContractDao contractDao,
+                           AvailabilityIndex availabilityIndex,
+                           ApplicationEventPublisher eventPublisher) {
         this.propertyDao = propertyDao;
+        this.contractDao = contractDao;
+        this.availabilityIndex = availabilityIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Find all page.
+     * Restricts a filter to properties without a contract on any of the days.
+     * <p>
+     * Only the properties matching the rest of the filter are checked, each against the availability index, and the
+     * shorter of the lists of free and booked properties is added to the filter. The database is asked for the booked
+     * properties only before the index is built.
      *
-     * @param pageable the pageable
-     * @param filters  the filters
+     * @param filter the filter
+     * @param from   the first day
+     * @param to     the last day
+     * @return the restricted filter
+     */
+    @Transactional(readOnly = true)
+    public PropertyFilter availableBetween(PropertyFilter filter, LocalDate from, LocalDate to) {
+        Objects.requireNonNull(filter);
+        if (from == null || to == null) {
+            throw new ValidationException("Both the first and the last day of availability must be given.");
+        }
+        if (from.isAfter(to)) {
+            throw new ValidationException("The first day of availability must not be after the last one.");
+        }
+        final List<Integer> candidates = propertyDao.findIds(filter);
+        final Set<Integer> booked;
+        if (availabilityIndex.isReady()) {
+            booked = availabilityIndex.findBooked(candidates, from, to);
+        } else {
+            booked = new HashSet<>(contractDao.findBookedPropertyIds(from, to));
+            booked.retainAll(candidates);
+        }
+
+        // Sorted, so that equal sets give equal queries
+        final Set<Integer> free = new TreeSet<>(candidates);
+        free.removeAll(booked);
+        if (!free.isEmpty() && free.size() < booked.size()) {
+            return filter.toBuilder().ids(free).build();
+        }
+        return filter.toBuilder().excludedIds(booked.isEmpty() ? null : new TreeSet<>(booked)).build();
+    }
+
+    /**
+     * Find all public page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows. Totals of availability
+     * searches change with every contract and are not cached.
+     *
+     * @param pageable    the pageable
+     * @param filter      the filter
+     * @param approximate true to estimate large totals from planner statistics
      * @return the page
      */
     @Transactional(readOnly = true)
-    public Page<Property> findAll(Pageable pageable, Map<String, Object> filters) {
-        return propertyDao.findAll(pageable, filters);
+    public CountedPage<ResponsePublicPropertyDto> findAllPublic(Pageable pageable, PropertyFilter filter, boolean approximate) {
+        final CountMode countMode = filter.getIds() != null || filter.getExcludedIds() != null ? CountMode.WINDOW
+                : approximate ? CountMode.APPROXIMATE : CountMode.CACHED;
+        return propertyDao.findAllPublic(pageable, filter, countMode);
+    }
+
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<ResponsePublicPropertyDto> findSlicePublic(Pageable pageable, PropertyFilter filter) {
+        return propertyDao.findSlicePublic(pageable, filter);
+    }
+
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ResponsePublicPropertyDto> findAllPublic(Pageable pageable, Cursor cursor, PropertyFilter filter) {
+        return propertyDao.findAllPublic(pageable, cursor, filter);
     }
 
     /**
@@ -51,6 +148,17 @@ public class PropertyService {
         return propertyDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing property without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the property does not exist
+     */
+    @Transactional(readOnly = true)
+    public Property getReference(Integer id) {
+        return propertyDao.getReference(id);
+    }
+
     /**
      * Persist.
      *
@@ -59,6 +167,7 @@ public class PropertyService {
     @Transactional
     public void persist(Property property) {
         propertyDao.persist(property);
+        eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
     }
 
     /**
@@ -70,6 +179,8 @@ public class PropertyService {
     public void update(Property property) {
         Objects.requireNonNull(property);
         propertyDao.update(property);
+        eventPublisher.publishEvent(new OwnershipChangedEvent(Property.class, property.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
     }
 
     /**
@@ -83,6 +194,7 @@ public class PropertyService {
         property.setAvailable(false);
         property.setStatus(PublicationStatus.DELETED);
         propertyDao.update(property);
+        eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
     }
 
     /**
@@ -95,6 +207,7 @@ public class PropertyService {
         Objects.requireNonNull(property);
         property.setStatus(PublicationStatus.PUBLISHED);
         propertyDao.update(property);
+        eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
     }
 
     /**
@@ -107,5 +220,6 @@ public class PropertyService {
         Objects.requireNonNull(property);
         property.setStatus(PublicationStatus.MODERATION);
         propertyDao.update(property);
+        eventPublisher.publishEvent(new ListingChangedEvent(Property.class));
     }
 }
@@ -1,16 +1,27 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.ConsumerDao;
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
 import dev.mikita.rolt.dao.ReviewDao;
+import dev.mikita.rolt.dao.ReviewFilter;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
+import dev.mikita.rolt.dto.review.ResponsePublicReviewDto;
+import dev.mikita.rolt.entity.Consumer;
 import dev.mikita.rolt.entity.PublicationStatus;
 import dev.mikita.rolt.entity.Review;
 import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.service.ConsumerRatingService.Rated;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -19,27 +30,71 @@ import java.util.Objects;
 @Service
 public class ReviewService {
     private final ReviewDao reviewDao;
+    private final ContractDao contractDao;
+    private final ConsumerDao consumerDao;
+    private final ConsumerRatingService consumerRatingService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Review service.
      *
-     * @param reviewDao the review dao
+     * @param reviewDao             the review dao
+     * @param contractDao           the contract dao
+     * @param consumerDao           the consumer dao
+     * @param consumerRatingService the consumer rating service
+     * @param eventPublisher        the event publisher
      */
     @Autowired
-    public ReviewService(ReviewDao reviewDao) {
+    public ReviewService(ReviewDao reviewDao,
+                         ContractDao contractDao,
+                         ConsumerDao consumerDao,
+                         ConsumerRatingService consumerRatingService,
+                         ApplicationEventPublisher eventPublisher) {
         this.reviewDao = reviewDao;
+        this.contractDao = contractDao;
+        this.consumerDao = consumerDao;
+        this.consumerRatingService = consumerRatingService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Find all page.
+     * Find all public page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows.
      *
-     * @param pageable the pageable
-     * @param filters  the filters
+     * @param pageable    the pageable
+     * @param filter      the filter
+     * @param approximate true to estimate large totals from planner statistics
      * @return the page
      */
     @Transactional(readOnly = true)
-    public Page<Review> findAll(Pageable pageable, Map<String, Object> filters) {
-        return reviewDao.findAll(pageable, filters);
+    public CountedPage<ResponsePublicReviewDto> findAllPublic(Pageable pageable, ReviewFilter filter, boolean approximate) {
+        return reviewDao.findAllPublic(pageable, filter, approximate ? CountMode.APPROXIMATE : CountMode.CACHED);
+    }
+
+    /**
+     * Find all public slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<ResponsePublicReviewDto> findSlicePublic(Pageable pageable, ReviewFilter filter) {
+        return reviewDao.findSlicePublic(pageable, filter);
+    }
+
+    /**
+     * Find all public cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ResponsePublicReviewDto> findAllPublic(Pageable pageable, Cursor cursor, ReviewFilter filter) {
+        return reviewDao.findAllPublic(pageable, cursor, filter);
     }
 
     /**
@@ -67,6 +122,8 @@ public class ReviewService {
         }
 
         reviewDao.persist(review);
+        consumerRatingService.update(null, Rated.of(review));
+        eventPublisher.publishEvent(new ListingChangedEvent(Review.class));
     }
 
     /**
@@ -77,7 +134,13 @@ public class ReviewService {
     @Transactional
     public void update(Review review) {
         Objects.requireNonNull(review);
+        // The subject is merged with the rest of the review, so it follows a changed contract or author
+        review.setSubject(findSubject(review));
+        // The stored review is locked and read before it is overwritten, so concurrent changes are rated in turn
+        final Rated previous = Rated.of(reviewDao.findForUpdate(review.getId()));
         reviewDao.update(review);
+        consumerRatingService.update(previous, Rated.of(review));
+        eventPublisher.publishEvent(new ListingChangedEvent(Review.class));
     }
 
     /**
@@ -87,9 +150,7 @@ public class ReviewService {
      */
     @Transactional
     public void remove(Review review) {
-        Objects.requireNonNull(review);
-        review.setStatus(PublicationStatus.DELETED);
-        reviewDao.update(review);
+        changeStatus(review, PublicationStatus.DELETED);
     }
 
     /**
@@ -99,9 +160,7 @@ public class ReviewService {
      */
     @Transactional
     public void publish(Review review) {
-        Objects.requireNonNull(review);
-        review.setStatus(PublicationStatus.PUBLISHED);
-        reviewDao.update(review);
+        changeStatus(review, PublicationStatus.PUBLISHED);
     }
 
     /**
@@ -111,8 +170,31 @@ public class ReviewService {
      */
     @Transactional
     public void moderate(Review review) {
+        changeStatus(review, PublicationStatus.MODERATION);
+    }
+
+    private Consumer findSubject(Review review) {
+        final Integer[] partyIds = contractDao.findPartyIds(review.getContract().getId());
+        if (partyIds == null) {
+            throw new ValidationException("The reviewed contract does not exist.");
+        }
+        // The subject is the party other than the author
+        return consumerDao.getReference(partyIds[0].equals(review.getAuthor().getId()) ? partyIds[1] : partyIds[0]);
+    }
+
+    private void changeStatus(Review review, PublicationStatus status) {
         Objects.requireNonNull(review);
-        review.setStatus(PublicationStatus.MODERATION);
-        reviewDao.update(review);
+        // The review given may have been read by an earlier transaction, the ratings follow the stored one,
+        // locked so that of concurrent changes only the first sees the old status
+        final Review stored = reviewDao.findForUpdate(review.getId());
+        final Rated previous = Rated.of(stored);
+        final boolean changed = stored != null && stored.getStatus() != status;
+        review.setStatus(status);
+        if (!changed) {
+            return;
+        }
+        stored.setStatus(status);
+        consumerRatingService.update(previous, Rated.of(stored));
+        eventPublisher.publishEvent(new ListingChangedEvent(Review.class));
     }
 }
@@ -1,21 +1,31 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.CountMode;
+import dev.mikita.rolt.dao.CountedPage;
+import dev.mikita.rolt.dao.Cursor;
+import dev.mikita.rolt.dao.CursorPage;
+import dev.mikita.rolt.dao.PropertyDao;
+import dev.mikita.rolt.dao.ReviewDao;
 import dev.mikita.rolt.dao.TenantDao;
-import dev.mikita.rolt.dao.UserDao;
+import dev.mikita.rolt.dao.TenantFilter;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
 import dev.mikita.rolt.entity.ConsumerStatus;
 import dev.mikita.rolt.entity.Property;
+import dev.mikita.rolt.entity.Review;
 import dev.mikita.rolt.entity.Role;
 import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.exception.PersistenceException;
 import dev.mikita.rolt.exception.ValidationException;
-import org.springframework.data.domain.Page;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * The type Tenant service.
@@ -23,35 +33,79 @@ import java.util.Set;
 @Service
 public class TenantService {
     private final TenantDao tenantDao;
-    private final UserDao userDao;
+    private final PropertyDao propertyDao;
+    private final ReviewDao reviewDao;
+    private final ConsumerRatingService consumerRatingService;
+    private final EmailRegistry emailRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new Tenant service.
      *
-     * @param tenantDao       the tenant dao
-     * @param passwordEncoder the password encoder
-     * @param userDao         the user dao
+     * @param tenantDao             the tenant dao
+     * @param propertyDao           the property dao
+     * @param reviewDao             the review dao
+     * @param consumerRatingService the consumer rating service
+     * @param passwordEncoder       the password encoder
+     * @param emailRegistry         the email registry
+     * @param eventPublisher        the event publisher
      */
     @Autowired
     public TenantService(TenantDao tenantDao,
+                         PropertyDao propertyDao,
+                         ReviewDao reviewDao,
+                         ConsumerRatingService consumerRatingService,
                          PasswordEncoder passwordEncoder,
-                         UserDao userDao) {
+                         EmailRegistry emailRegistry,
+                         ApplicationEventPublisher eventPublisher) {
         this.tenantDao = tenantDao;
+        this.propertyDao = propertyDao;
+        this.reviewDao = reviewDao;
+        this.consumerRatingService = consumerRatingService;
         this.passwordEncoder = passwordEncoder;
-        this.userDao = userDao;
+        this.emailRegistry = emailRegistry;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Find all page.
+     * <p>
+     * The total is taken from the count cache or fetched by the same statement as the rows.
      *
-     * @param pageable the pageable
-     * @param filters  the filters
+     * @param pageable    the pageable
+     * @param filter      the filter
+     * @param approximate true to estimate large totals from planner statistics
      * @return the page
      */
     @Transactional(readOnly = true)
-    public Page<Tenant> findAll(Pageable pageable, Map<String, Object> filters) {
-        return tenantDao.findAll(pageable, filters);
+    public CountedPage<Tenant> findAll(Pageable pageable, TenantFilter filter, boolean approximate) {
+        return tenantDao.findAll(pageable, filter, approximate ? CountMode.APPROXIMATE : CountMode.CACHED);
+    }
+
+    /**
+     * Find all slice without counting the total.
+     *
+     * @param pageable the pageable
+     * @param filter   the filter
+     * @return the slice
+     */
+    @Transactional(readOnly = true)
+    public Slice<Tenant> findSlice(Pageable pageable, TenantFilter filter) {
+        return tenantDao.findSlice(pageable, filter);
+    }
+
+    /**
+     * Find all cursor page.
+     *
+     * @param pageable the pageable providing the size and the sort
+     * @param cursor   the cursor, null for the first page
+     * @param filter   the filter
+     * @return the cursor page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Tenant> findAll(Pageable pageable, Cursor cursor, TenantFilter filter) {
+        return tenantDao.findAll(pageable, cursor, filter);
     }
 
     /**
@@ -65,6 +119,17 @@ public class TenantService {
         return tenantDao.find(id);
     }
 
+    /**
+     * Gets a reference to an existing tenant without loading it.
+     *
+     * @param id the id
+     * @return the reference, or null if the tenant does not exist
+     */
+    @Transactional(readOnly = true)
+    public Tenant getReference(Integer id) {
+        return tenantDao.getReference(id);
+    }
+
     /**
      * Persist.
      *
@@ -73,13 +138,24 @@ public class TenantService {
     @Transactional
     public void persist(Tenant user) {
         Objects.requireNonNull(user);
-        if (userDao.findByEmail(user.getEmail()) != null) {
+        if (emailRegistry.isRegistered(user.getEmail())) {
             throw new ValidationException("A user with this email already exists.");
         }
 
         user.setRole(Role.TENANT);
         user.encodePassword(passwordEncoder);
-        tenantDao.persist(user);
+        try {
+            tenantDao.persist(user);
+            tenantDao.flush();
+        } catch (PersistenceException e) {
+            if (e.isConstraintViolation()) {
+                throw new ValidationException("A user with this email already exists.");
+            }
+            throw e;
+        }
+        consumerRatingService.create(user.getId());
+        emailRegistry.add(user.getEmail());
+        eventPublisher.publishEvent(new ListingChangedEvent(Tenant.class));
     }
 
     /**
@@ -89,7 +165,13 @@ public class TenantService {
      */
     @Transactional
     public void update(Tenant user) {
+        // Only changes of how the user signs in end their sessions, the stored state is read before it is overwritten
+        final boolean securityChanged = !user.hasSameSecurity(tenantDao.find(user.getId()));
         tenantDao.update(user);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        }
+        eventPublisher.publishEvent(new ListingChangedEvent(Tenant.class));
     }
 
     /**
@@ -103,6 +185,8 @@ public class TenantService {
         user.setInSearch(false);
         user.setStatus(ConsumerStatus.DELETED);
         tenantDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Tenant.class));
     }
 
     /**
@@ -111,10 +195,10 @@ public class TenantService {
      * @param user the user
      * @return the favorites
      */
-    @Transactional
-    public Set<Property> getFavorites(Tenant user) {
+    @Transactional(readOnly = true)
+    public List<Property> getFavorites(Tenant user) {
         Objects.requireNonNull(user);
-        return user.getFavorites();
+        return propertyDao.findFavorites(user.getId());
     }
 
     /**
@@ -147,6 +231,8 @@ public class TenantService {
 
     /**
      * Block.
+     * <p>
+     * Reviews of the user are removed by a single statement, however many there are.
      *
      * @param user the user
      */
@@ -156,6 +242,14 @@ public class TenantService {
         user.setInSearch(false);
         user.setStatus(ConsumerStatus.BANNED);
         tenantDao.update(user);
+        tenantDao.flush();
+
+        consumerRatingService.removeAllByAuthor(user.getId());
+        if (reviewDao.removeAllByAuthor(user.getId()) > 0) {
+            eventPublisher.publishEvent(new ListingChangedEvent(Review.class));
+        }
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Tenant.class));
     }
 
     /**
@@ -168,5 +262,7 @@ public class TenantService {
         Objects.requireNonNull(user);
         user.setStatus(ConsumerStatus.ACTIVE);
         tenantDao.update(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(Tenant.class));
     }
 }
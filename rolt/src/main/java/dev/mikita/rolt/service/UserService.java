@@ -1,8 +1,11 @@
 package dev.mikita.rolt.service;
 
 import dev.mikita.rolt.dao.UserDao;
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
 import dev.mikita.rolt.entity.User;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -13,15 +16,18 @@ import java.util.List;
 @Service
 public class UserService {
     private final UserDao userDao;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Instantiates a new User service.
      *
-     * @param userDao the user dao
+     * @param userDao        the user dao
+     * @param eventPublisher the event publisher
      */
     @Autowired
-    public UserService(UserDao userDao) {
+    public UserService(UserDao userDao, ApplicationEventPublisher eventPublisher) {
         this.userDao = userDao;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -53,6 +59,7 @@ public class UserService {
     @Transactional
     public void persist(User user) {
         userDao.persist(user);
+        eventPublisher.publishEvent(new ListingChangedEvent(User.class));
     }
 
     /**
@@ -62,7 +69,13 @@ public class UserService {
      */
     @Transactional
     public void update(User user) {
+        // Only changes of how the user signs in end their sessions, the stored state is read before it is overwritten
+        final boolean securityChanged = !user.hasSameSecurity(userDao.find(user.getId()));
         userDao.update(user);
+        if (securityChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        }
+        eventPublisher.publishEvent(new ListingChangedEvent(User.class));
     }
 
     /**
@@ -73,6 +86,8 @@ public class UserService {
     @Transactional
     public void remove(User user) {
         userDao.remove(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+        eventPublisher.publishEvent(new ListingChangedEvent(User.class));
     }
 
     /**
@@ -83,6 +98,6 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public boolean exists(String email) {
-        return userDao.findByEmail(email) != null;
+        return userDao.existsByEmail(email);
     }
 }
@@ -1,7 +1,6 @@
 package dev.mikita.rolt.service.security;
 
 import dev.mikita.rolt.dao.UserDao;
-import dev.mikita.rolt.entity.User;
 import dev.mikita.rolt.security.model.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -34,10 +33,24 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        final User user = userDao.findByEmail(email);
-        if (user == null) {
+        final CustomUserDetails userDetails = userDao.findPrincipalByEmail(email);
+        if (userDetails == null) {
             throw new UsernameNotFoundException("User with email " + email + " not found.");
         }
-        return new CustomUserDetails(user);
+        return userDetails;
+    }
+
+    /**
+     * Loads by id.
+     * @param id the user id
+     * @return the user details
+     * @throws UsernameNotFoundException the exception
+     */
+    public CustomUserDetails loadUserById(Integer id) throws UsernameNotFoundException {
+        final CustomUserDetails userDetails = userDao.findPrincipalById(id);
+        if (userDetails == null) {
+            throw new UsernameNotFoundException("User with id " + id + " not found.");
+        }
+        return userDetails;
     }
 }
@@ -0,0 +1,123 @@
+package dev.mikita.rolt.service.security;
+
+import dev.mikita.rolt.cache.BoundedCache;
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.PropertyDao;
+import dev.mikita.rolt.entity.Contract;
+import dev.mikita.rolt.entity.Property;
+import dev.mikita.rolt.security.event.OwnershipChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Answers who owns a property or contract.
+ * <p>
+ * Each answer is a single scalar query over foreign keys, so authorization never loads the entity graph.
+ * Answers are kept in bounded caches of id to owner id that are dropped whenever the ownership may change.
+ * Missing entities and owners read inside a read-write transaction, which may still roll back, are never cached.
+ */
+@Service
+public class OwnershipService {
+    private final PropertyDao propertyDao;
+    private final ContractDao contractDao;
+
+    private final BoundedCache<Integer, Integer> propertyOwners;
+    private final BoundedCache<Integer, Integer[]> contractParties;
+
+    /**
+     * Instantiates a new Ownership service.
+     *
+     * @param propertyDao the property dao
+     * @param contractDao the contract dao
+     * @param maxSize     the maximum number of cached owners per entity type
+     * @param ttl         the time to live of a cached owner
+     */
+    @Autowired
+    public OwnershipService(PropertyDao propertyDao,
+                            ContractDao contractDao,
+                            @Value("${rolt.security.ownership-cache.max-size:10000}") int maxSize,
+                            @Value("${rolt.security.ownership-cache.ttl:PT10M}") Duration ttl) {
+        this.propertyDao = propertyDao;
+        this.contractDao = contractDao;
+        this.propertyOwners = new BoundedCache<>("ownership.property", maxSize, ttl);
+        this.contractParties = new BoundedCache<>("ownership.contract", maxSize, ttl);
+    }
+
+    /**
+     * Find the id of the property owner.
+     *
+     * @param propertyId the property id
+     * @return the owner id or null, if the property does not exist
+     */
+    @Transactional(readOnly = true)
+    public Integer findPropertyOwnerId(Integer propertyId) {
+        Objects.requireNonNull(propertyId);
+        Integer ownerId = propertyOwners.get(propertyId);
+        if (ownerId == null) {
+            ownerId = propertyDao.findOwnerId(propertyId);
+            if (ownerId != null && isCacheable()) {
+                propertyOwners.put(propertyId, ownerId);
+            }
+        }
+        return ownerId;
+    }
+
+    /**
+     * Find the ids of the contract parties.
+     *
+     * @param contractId the contract id
+     * @return the tenant id and the landlord id or null, if the contract does not exist
+     */
+    @Transactional(readOnly = true)
+    public Integer[] findContractPartyIds(Integer contractId) {
+        Objects.requireNonNull(contractId);
+        Integer[] partyIds = contractParties.get(contractId);
+        if (partyIds == null) {
+            partyIds = contractDao.findPartyIds(contractId);
+            if (partyIds != null && isCacheable()) {
+                contractParties.put(contractId, partyIds);
+            }
+        }
+        return partyIds == null ? null : partyIds.clone();
+    }
+
+    /**
+     * Checks if the user is the tenant or the landlord of the contract.
+     *
+     * @param userId     the user id
+     * @param contractId the contract id
+     * @return bool
+     */
+    @Transactional(readOnly = true)
+    public boolean isContractParty(Integer userId, Integer contractId) {
+        final Integer[] partyIds = findContractPartyIds(contractId);
+        return partyIds != null && (Objects.equals(partyIds[0], userId) || Objects.equals(partyIds[1], userId));
+    }
+
+    private static boolean isCacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * Drops cached ownership after the changing transaction commits.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOwnershipChanged(OwnershipChangedEvent event) {
+        if (event.getType() == Property.class) {
+            propertyOwners.invalidate(event.getId());
+            // The landlord of a contract is the owner of its property
+            contractParties.invalidateAll();
+        } else if (event.getType() == Contract.class) {
+            contractParties.invalidate(event.getId());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dev.mikita.rolt.cache;
+
+import org.junit.jupiter.api.Test;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+    @Test
+    public void mightContainReturnsTrueForAllAddedValues() {
+        final BloomFilter sut = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> sut.add("user" + i + "@gmail.com"));
+
+        assertTrue(IntStream.range(0, 1000).allMatch(i -> sut.mightContain("user" + i + "@gmail.com")));
+    }
+
+    @Test
+    public void mightContainRejectsMostUnknownValues() {
+        final BloomFilter sut = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> sut.add("user" + i + "@gmail.com"));
+
+        final long falsePositives = IntStream.range(0, 10000)
+                .filter(i -> sut.mightContain("other" + i + "@gmail.com"))
+                .count();
+        assertTrue(falsePositives < 300, "Too many false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.mikita.rolt.config;
+
+import dev.mikita.rolt.exception.PersistenceException;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class SequenceAlignmentTest {
+    private static final String SEQUENCE = "rolt_city_seq";
+    private static final int EXISTING_ID = 1_000_000;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private SequenceAlignment sut;
+
+    private Session session;
+
+    @BeforeEach
+    public void setUp() {
+        session = emf.unwrap(JpaEntityManagerFactory.class).getServerSession();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        session.executeNonSelectingSQL("DELETE FROM rolt_city WHERE id = " + EXISTING_ID);
+        session.executeNonSelectingSQL("ALTER SEQUENCE " + SEQUENCE + " INCREMENT BY " + size());
+    }
+
+    @Test
+    public void alignmentMovesSequencePastExistingRows() {
+        // A row stored before the sequence
+        session.executeNonSelectingSQL("INSERT INTO rolt_city (id, name) VALUES (" + EXISTING_ID + ", 'existingCity')");
+
+        sut.afterSingletonsInstantiated();
+
+        final int size = size();
+        final long first = nextValue(size);
+        final long second = nextValue(size);
+        assertTrue(first - size + 1 > EXISTING_ID);
+        assertEquals(size, second - first);
+    }
+
+    @Test
+    public void alignmentRefusesSequenceIncrementedByAnotherSize() {
+        // A sequence created with another allocation size, it is not changed under nodes still using it
+        session.executeNonSelectingSQL("ALTER SEQUENCE " + SEQUENCE + " INCREMENT BY 7");
+
+        final PersistenceException e = assertThrows(PersistenceException.class, sut::afterSingletonsInstantiated);
+        assertTrue(e.getMessage().contains("incremented by 7"));
+    }
+
+    private int size() {
+        return ((DatasourcePlatform) session.getDatasourcePlatform()).getSequence(SEQUENCE).getPreallocationSize();
+    }
+
+    private long nextValue(int size) {
+        final DatasourcePlatform platform = (DatasourcePlatform) session.getDatasourcePlatform();
+        return ((Number) session.executeQuery(platform.buildSelectQueryForSequenceObject(SEQUENCE, size))).longValue();
+    }
+}
@@ -1,17 +1,33 @@
 package dev.mikita.rolt.dao;
 
 import dev.mikita.rolt.App;
-import dev.mikita.rolt.entity.City;
+import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.StatementCounter;
 import dev.mikita.rolt.environment.TestConfiguration;
 import dev.mikita.rolt.exception.PersistenceException;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.jpa.JpaEntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,6 +41,18 @@ public class BaseDaoTest {
     @Autowired
     private CityDao cityDao;
 
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Autowired
+    private ConsumerDao consumerDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${rolt.persistence.bulk-chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Test
     public void persistSavesSpecifiedInstance() {
         final City city = Generator.generateCity();
@@ -37,6 +65,72 @@ public class BaseDaoTest {
         assertEquals(city.getName(), result.getName());
     }
 
+    @Test
+    public void persistInChunksSavesAllInstancesAndClearsPersistenceContext() {
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        final City city = Generator.generateCity();
+        em.persist(city);
+
+        final List<Property> properties = IntStream.range(0, 2500).mapToObj(i -> {
+            final Property property = Generator.generateProperty();
+            property.setOwner(owner);
+            property.setCity(city);
+            return property;
+        }).collect(Collectors.toList());
+
+        assertEquals(2500, propertyDao.persistInChunks(properties));
+        assertFalse(em.getEntityManager().contains(properties.get(0)));
+        assertFalse(em.getEntityManager().contains(owner));
+        assertEquals(2500, em.getEntityManager()
+                .createQuery("SELECT COUNT(p) FROM Property p WHERE p.owner.id = :id", Long.class)
+                .setParameter("id", owner.getId())
+                .getSingleResult());
+    }
+
+    @Test
+    public void forEachPassesAllInstancesAndClearsPersistenceContextAfterEachChunk() {
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        final City city = Generator.generateCity();
+        em.persist(city);
+        propertyDao.persistInChunks(() -> IntStream.range(0, 2500).mapToObj(i -> {
+            final Property property = Generator.generateProperty();
+            property.setOwner(owner);
+            property.setCity(city);
+            return property;
+        }).iterator());
+
+        final Set<Integer> ids = new HashSet<>();
+        final long count = propertyDao.forEach(property -> {
+            ids.add(property.getId());
+            assertTrue(activeUnitOfWork().getCloneMapping().size() <= bulkChunkSize * 3);
+        });
+
+        assertEquals(2500, count);
+        assertEquals(2500, ids.size());
+        assertTrue(activeUnitOfWork().getCloneMapping().isEmpty());
+    }
+
+    @Test
+    public void forEachWritesPendingChangesBeforeClearingPersistenceContext() {
+        final City changedBefore = Generator.generateCity();
+        em.persistAndFlush(changedBefore);
+        final City changedByAction = Generator.generateCity();
+        em.persistAndFlush(changedByAction);
+        changedBefore.setName("changedBefore");
+
+        cityDao.forEach(city -> {
+            if (city.getId().equals(changedByAction.getId())) {
+                city.setName("changedByAction");
+            }
+        });
+        em.clear();
+
+        assertEquals("changedBefore", cityDao.find(changedBefore.getId()).getName());
+        assertEquals("changedByAction", cityDao.find(changedByAction.getId()).getName());
+    }
+
     @Test
     public void findRetrievesInstanceByIdentifier() {
         final City city = Generator.generateCity();
@@ -114,4 +208,95 @@ public class BaseDaoTest {
         assertTrue(cityDao.exists(city.getId()));
         assertFalse(cityDao.exists(-1));
     }
+
+    @Test
+    public void existsDoesNotLoadEntity() {
+        final City city = Generator.generateCity();
+        em.persistAndFlush(city);
+        em.clear();
+        em.getEntityManager().getEntityManagerFactory().getCache().evictAll();
+
+        assertTrue(cityDao.exists(city.getId()));
+        assertFalse(em.getEntityManager().getEntityManagerFactory().getCache().contains(City.class, city.getId()));
+    }
+
+    @Test
+    public void getReferenceReturnsUnloadedReferenceOfConcreteType() {
+        final Landlord landlord = Generator.generateLandlord();
+        em.persistAndFlush(landlord);
+        em.clear();
+        em.getEntityManager().getEntityManagerFactory().getCache().evictAll();
+
+        final Consumer result;
+        try (StatementCounter counter = StatementCounter.start(em.getEntityManager())) {
+            result = consumerDao.getReference(landlord.getId());
+            assertEquals(1, counter.getCount());
+        }
+        assertTrue(result instanceof Landlord);
+        assertEquals(landlord.getId(), result.getId());
+        assertFalse(em.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(result, "email"));
+        assertNull(consumerDao.getReference(-1));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void referencesFromAnotherTransactionAreUsableAsAssociations() {
+        final TransactionTemplate writes = new TransactionTemplate(transactionManager);
+        final TransactionTemplate reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+
+        final Landlord owner = writes.execute(status -> {
+            final Landlord landlord = Generator.generateLandlord();
+            em.persist(landlord);
+            return landlord;
+        });
+        final City city = writes.execute(status -> {
+            final City c = Generator.generateCity();
+            em.persist(c);
+            return c;
+        });
+        try {
+            final Property property = Generator.generateProperty();
+            property.setOwner((Landlord) reads.execute(status -> consumerDao.getReference(owner.getId())));
+            property.setCity(reads.execute(status -> cityDao.getReference(city.getId())));
+            writes.executeWithoutResult(status -> propertyDao.persist(property));
+
+            writes.executeWithoutResult(status -> {
+                final Property result = em.find(Property.class, property.getId());
+                assertEquals(owner.getEmail(), result.getOwner().getEmail());
+                assertEquals(city.getName(), result.getCity().getName());
+            });
+        } finally {
+            writes.executeWithoutResult(status -> {
+                final EntityManager manager = em.getEntityManager();
+                manager.createQuery("DELETE FROM Property p WHERE p.owner.id = :id")
+                        .setParameter("id", owner.getId()).executeUpdate();
+                manager.remove(manager.find(City.class, city.getId()));
+                manager.remove(manager.find(Landlord.class, owner.getId()));
+            });
+        }
+    }
+
+    @Test
+    public void sqlPredicatePrintsConditionWithPathsAndParameters() {
+        final City city = Generator.generateCity();
+        city.setName("Brno");
+        em.persist(city);
+        final City other = Generator.generateCity();
+        other.setName("Praha");
+        em.persistAndFlush(other);
+
+        final CriteriaBuilder cb = em.getEntityManager().getCriteriaBuilder();
+        final CriteriaQuery<City> cq = cb.createQuery(City.class);
+        final Root<City> root = cq.from(City.class);
+        cq.select(root).where(cityDao.sqlPredicate(cb, "LOWER(?) = ?",
+                root.get(City_.name), cb.parameter(String.class, "name")));
+
+        final List<City> result = em.getEntityManager().createQuery(cq).setParameter("name", "brno").getResultList();
+        assertEquals(List.of(city.getId()), result.stream().map(City::getId).collect(Collectors.toList()));
+    }
+
+    private UnitOfWorkImpl activeUnitOfWork() {
+        return (UnitOfWorkImpl) em.getEntityManager().unwrap(JpaEntityManager.class).getActiveSession();
+    }
 }
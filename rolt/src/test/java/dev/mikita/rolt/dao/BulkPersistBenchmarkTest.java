@@ -0,0 +1,106 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.TestConfiguration;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.databaseaccess.DatasourceAccessor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inserts 100k properties in chunks with and without JDBC batch writing and compares the write round trips and
+ * the throughput.
+ * <p>
+ * Only the round trips are asserted, the throughput is logged. The H2 driver executes the statements of a batch one by one, so the
+ * throughput gain shows only against a networked database whose driver sends a batch at once, like PostgreSQL.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class BulkPersistBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkPersistBenchmarkTest.class);
+    private static final int WARMUP = 20_000;
+    private static final int ROWS = 100_000;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Test
+    public void batchWritingReducesBulkInsertRoundTrips() {
+        final DatabasePlatform platform = (DatabasePlatform) em.getEntityManager()
+                .unwrap(JpaEntityManager.class).getServerSession().getPlatform();
+        assertTrue(platform.usesBatchWriting());
+
+        final long[] batched;
+        final long[] unbatched;
+        try {
+            for (boolean batching : new boolean[]{true, false}) {
+                platform.setUsesBatchWriting(batching);
+                measure(WARMUP);
+            }
+            platform.setUsesBatchWriting(true);
+            batched = measure(ROWS);
+            platform.setUsesBatchWriting(false);
+            unbatched = measure(ROWS);
+        } finally {
+            platform.setUsesBatchWriting(true);
+        }
+
+        LOG.info("Bulk insert of {} rows: {} round trips and {} rows/s with batch writing, "
+                        + "{} round trips and {} rows/s without",
+                ROWS, batched[0], batched[1], unbatched[0], unbatched[1]);
+        assertTrue(batched[0] * 10 < unbatched[0]);
+    }
+
+    /**
+     * Returns the write round trips and the rows per second.
+     */
+    private long[] measure(int rows) {
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        final City city = Generator.generateCity();
+        em.persist(city);
+        em.flush();
+
+        final long roundTrips = writeStatements();
+        final long start = System.nanoTime();
+        final long count = propertyDao.persistInChunks(() -> IntStream.range(0, rows).mapToObj(i -> {
+            final Property property = Generator.generateProperty();
+            property.setOwner(owner);
+            property.setCity(city);
+            return property;
+        }).iterator());
+        final long elapsed = System.nanoTime() - start;
+
+        assertEquals(rows, count);
+        return new long[]{writeStatements() - roundTrips, count * 1_000_000_000L / elapsed};
+    }
+
+    private long writeStatements() {
+        final Collection<Accessor> accessors = ((AbstractSession) em.getEntityManager()
+                .unwrap(JpaEntityManager.class).getActiveSession()).getAccessors();
+        return accessors.stream().mapToLong(a -> ((DatasourceAccessor) a).getWriteStatementsCount()).sum();
+    }
+}
@@ -15,9 +15,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -56,8 +54,6 @@ public class ContractDaoTest {
         properties.forEach(em::persist);
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-
         final List<Contract> contracts = IntStream.range(0, 10).mapToObj(i -> {
             final Property p = properties.get(Generator.randomInt(0, properties.size() - 1));
             Contract contract = new Contract();
@@ -67,15 +63,14 @@ public class ContractDaoTest {
             contract.setTenant(tenants.get(Generator.randomInt(0, tenants.size() - 1)));
             contract.setProperty(p);
 
-            filters.put("property", p);
-
             return contract;
         }).collect(Collectors.toList());
 
         contracts.forEach(em::persist);
 
         final Property randomProperty = properties.get(Generator.randomInt(0, properties.size() - 1));
-        final Page<Contract> result = contractDao.findAll(pageable, filters);
+        final ContractFilter filter = ContractFilter.builder().propertyId(randomProperty.getId()).build();
+        final Page<Contract> result = contractDao.findAll(pageable, filter);
         result.forEach(c -> assertEquals(randomProperty, c.getProperty()));
     }
 
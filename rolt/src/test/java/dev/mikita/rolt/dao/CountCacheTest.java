@@ -0,0 +1,37 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.dao.event.ListingChangedEvent;
+import dev.mikita.rolt.entity.*;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountCacheTest {
+    private final CountCache sut = new CountCache(100, Duration.ofMinutes(1));
+
+    @Test
+    public void getReturnsTotalForEquallyNormalizedFilters() {
+        sut.put(Property.class, Map.of("status", PublicationStatus.PUBLISHED, "cityId", 1), 42);
+
+        assertEquals(42L, sut.get(Property.class, Map.of("cityId", "1", "status", "PUBLISHED")));
+        assertNull(sut.get(Property.class, Map.of("status", PublicationStatus.PUBLISHED)));
+        assertNull(sut.get(Contract.class, Map.of("status", PublicationStatus.PUBLISHED, "cityId", 1)));
+    }
+
+    @Test
+    public void onListingChangedDropsTotalsOfRelatedTypesOnly() {
+        sut.put(Tenant.class, Map.of("status", ConsumerStatus.ACTIVE), 10);
+        sut.put(Landlord.class, Map.of("status", ConsumerStatus.ACTIVE), 20);
+        sut.put(Property.class, Map.of(), 30);
+
+        sut.onListingChanged(new ListingChangedEvent(Tenant.class));
+        assertNull(sut.get(Tenant.class, Map.of("status", ConsumerStatus.ACTIVE)));
+        assertEquals(20L, sut.get(Landlord.class, Map.of("status", ConsumerStatus.ACTIVE)));
+
+        sut.onListingChanged(new ListingChangedEvent(Consumer.class));
+        assertNull(sut.get(Landlord.class, Map.of("status", ConsumerStatus.ACTIVE)));
+        assertEquals(30L, sut.get(Property.class, Map.of()));
+    }
+}
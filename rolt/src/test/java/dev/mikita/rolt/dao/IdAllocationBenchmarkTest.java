@@ -0,0 +1,148 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.City;
+import dev.mikita.rolt.environment.TestConfiguration;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the throughput of concurrent inserts with identifiers reserved in blocks and one at a time.
+ * <p>
+ * Only the sequence round trips are asserted, read from the H2 sequence metadata, the throughput is logged.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class IdAllocationBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(IdAllocationBenchmarkTest.class);
+    private static final int THREADS = 16;
+    private static final int TRANSACTIONS = 200;
+    private static final int ROWS_PER_TRANSACTION = 10;
+    private static final String NAME_PREFIX = "Benchmark City ";
+
+    private final AtomicInteger names = new AtomicInteger();
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private CityDao cityDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void pooledAllocationReducesSequenceRoundTrips() throws Exception {
+        final Sequence sequence = emf.unwrap(JpaEntityManagerFactory.class)
+                .getServerSession().getDescriptor(City.class).getSequence();
+        final int allocationSize = sequence.getPreallocationSize();
+        assertTrue(allocationSize > 1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final long pooled;
+        final long single;
+        final long pooledRoundTrips;
+        final long singleRoundTrips;
+        try {
+            for (int size : new int[]{allocationSize, 1}) {
+                sequence.setPreallocationSize(size);
+                measure(executor);
+            }
+            sequence.setPreallocationSize(allocationSize);
+            long value = sequenceValue(sequence);
+            pooled = measure(executor);
+            pooledRoundTrips = roundTrips(sequence, value);
+            sequence.setPreallocationSize(1);
+            value = sequenceValue(sequence);
+            single = measure(executor);
+            singleRoundTrips = roundTrips(sequence, value);
+        } finally {
+            sequence.setPreallocationSize(allocationSize);
+            executor.shutdown();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    em.getEntityManager().createQuery("DELETE FROM City c WHERE c.name LIKE :prefix")
+                            .setParameter("prefix", NAME_PREFIX + "%").executeUpdate());
+        }
+
+        LOG.info("Concurrent insert throughput: {} rows/s and {} sequence round trips with blocks of {} identifiers, "
+                + "{} rows/s and {} round trips one at a time", pooled, pooledRoundTrips, allocationSize, single,
+                singleRoundTrips);
+        // Threads racing for the next block may each fetch one, so the pooled round trips are not exact
+        assertTrue(pooledRoundTrips * 10 < singleRoundTrips);
+    }
+
+    /**
+     * Returns the number of values taken from the database sequence since the given value.
+     */
+    private long roundTrips(Sequence sequence, long since) {
+        return (sequenceValue(sequence) - since) / sequenceMetadata(sequence, "INCREMENT");
+    }
+
+    /**
+     * Returns the value the database sequence hands out next.
+     */
+    private long sequenceValue(Sequence sequence) {
+        return sequenceMetadata(sequence, "BASE_VALUE");
+    }
+
+    private long sequenceMetadata(Sequence sequence, String column) {
+        final Number value = new TransactionTemplate(transactionManager).execute(status ->
+                (Number) em.getEntityManager().createNativeQuery(
+                                "SELECT " + column + " FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = UPPER(?1)")
+                        .setParameter(1, sequence.getName()).getSingleResult());
+        return value.longValue();
+    }
+
+    private long measure(ExecutorService executor) throws Exception {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Callable<Void> task = () -> {
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                transaction.executeWithoutResult(status -> {
+                    for (int j = 0; j < ROWS_PER_TRANSACTION; j++) {
+                        final City city = new City();
+                        city.setName(NAME_PREFIX + names.incrementAndGet());
+                        cityDao.persist(city);
+                    }
+                });
+            }
+            return null;
+        };
+
+        final long start = System.nanoTime();
+        final List<Future<Void>> futures = executor.invokeAll(Collections.nCopies(THREADS, task));
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        return (long) THREADS * TRANSACTIONS * ROWS_PER_TRANSACTION * 1_000_000_000L / elapsed;
+    }
+}
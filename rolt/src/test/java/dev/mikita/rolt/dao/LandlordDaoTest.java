@@ -14,9 +14,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -44,10 +42,9 @@ public class LandlordDaoTest {
         landlords.forEach(em::persist);
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("status", ConsumerStatus.ACTIVE);
+        LandlordFilter filter = LandlordFilter.builder().status(ConsumerStatus.ACTIVE).build();
 
-        final Page<Landlord> result = landlordDao.findAll(pageable, filters);
+        final Page<Landlord> result = landlordDao.findAll(pageable, filter);
         assertEquals(landlords.stream().filter(t -> t.getStatus() == ConsumerStatus.ACTIVE).count(), result.getTotalElements());
 //        assertEquals(landlords.stream().filter(t -> t.getStatus() == ConsumerStatus.ACTIVE).count(), result.size());
         result.forEach(t -> assertSame(t.getStatus(), ConsumerStatus.ACTIVE));
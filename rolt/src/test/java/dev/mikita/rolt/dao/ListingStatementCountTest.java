@@ -0,0 +1,152 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.StatementCounter;
+import dev.mikita.rolt.environment.TestConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Statements needed for a page of each listing must not grow with the page size.
+ * Every listing is run on a small and a large page, each row referencing its own landlord, city and tenant.
+ */
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class ListingStatementCountTest {
+    private static final int ROWS = 12;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Autowired
+    private ContractDao contractDao;
+
+    @Autowired
+    private ReviewDao reviewDao;
+
+    @Autowired
+    private TenantDao tenantDao;
+
+    @Autowired
+    private LandlordDao landlordDao;
+
+    private Tenant favoritesOwner;
+
+    @BeforeEach
+    public void setUp() {
+        favoritesOwner = Generator.generateTenant();
+        em.persist(favoritesOwner);
+        for (int i = 0; i < ROWS; i++) {
+            final Landlord owner = Generator.generateLandlord();
+            em.persist(owner);
+            final City city = Generator.generateCity();
+            em.persist(city);
+            final Property property = Generator.generateProperty();
+            property.setOwner(owner);
+            property.setCity(city);
+            em.persist(property);
+            favoritesOwner.addFavorite(property);
+
+            final Tenant tenant = Generator.generateTenant();
+            em.persist(tenant);
+            final Contract contract = Generator.generateContract();
+            contract.setProperty(property);
+            contract.setTenant(tenant);
+            em.persist(contract);
+
+            final Review review = Generator.generateReview();
+            review.setContract(contract);
+            review.setAuthor(i % 2 == 0 ? tenant : owner);
+            em.persist(review);
+        }
+        em.flush();
+    }
+
+    @Test
+    public void propertyListingsUseConstantStatements() {
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+        assertConstant(1, pageable -> propertyDao.findAll(pageable, filter, CountMode.WINDOW).getContent());
+        assertConstant(2, pageable -> propertyDao.findAll(pageable, filter, CountMode.QUERY).getContent());
+        assertConstant(1, pageable -> propertyDao.findSlice(pageable, filter).getContent());
+        assertConstant(1, pageable -> propertyDao.findAll(pageable, null, filter).getContent());
+        assertConstant(1, pageable -> propertyDao.findAllPublic(pageable, filter, CountMode.WINDOW).getContent());
+        assertConstant(1, pageable -> propertyDao.findSlicePublic(pageable, filter).getContent());
+    }
+
+    @Test
+    public void contractListingsUseConstantStatements() {
+        final ContractFilter filter = ContractFilter.builder().build();
+        assertConstant(1, pageable -> contractDao.findAll(pageable, filter, CountMode.WINDOW).getContent());
+        assertConstant(1, pageable -> contractDao.findSlice(pageable, filter).getContent());
+        assertConstant(1, pageable -> contractDao.findAll(pageable, null, filter).getContent());
+        assertConstant(1, pageable -> contractDao.findAllPublic(pageable, filter, CountMode.WINDOW).getContent());
+    }
+
+    @Test
+    public void reviewListingsUseConstantStatements() {
+        final ReviewFilter filter = ReviewFilter.builder().status(PublicationStatus.PUBLISHED).build();
+        assertConstant(1, pageable -> reviewDao.findAll(pageable, filter, CountMode.WINDOW).getContent());
+        assertConstant(1, pageable -> reviewDao.findSlice(pageable, filter).getContent());
+        assertConstant(1, pageable -> reviewDao.findAll(pageable, null, filter).getContent());
+        assertConstant(1, pageable -> reviewDao.findAllPublic(pageable, filter, CountMode.WINDOW).getContent());
+    }
+
+    @Test
+    public void consumerListingsUseConstantStatements() {
+        assertConstant(1, pageable -> tenantDao.findAll(pageable, TenantFilter.builder().build(), CountMode.WINDOW).getContent());
+        assertConstant(1, pageable -> landlordDao.findAll(pageable, LandlordFilter.builder().build(), CountMode.WINDOW).getContent());
+    }
+
+    @Test
+    public void favoritesLoadAssociationsInBatches() {
+        em.clear();
+        evictSharedCache();
+        try (StatementCounter counter = StatementCounter.start(em.getEntityManager())) {
+            final List<Property> favorites = propertyDao.findFavorites(favoritesOwner.getId());
+            favorites.forEach(property -> {
+                property.getOwner().getId();
+                property.getCity().getId();
+            });
+            assertEquals(ROWS, favorites.size());
+            // The favorites, their owners and their cities
+            assertEquals(3, counter.getCount());
+        }
+    }
+
+    private void assertConstant(int expected, Function<Pageable, Collection<?>> listing) {
+        assertEquals(expected, count(PageRequest.of(0, 2), listing), "statements for a page of 2");
+        assertEquals(expected, count(PageRequest.of(0, ROWS), listing), "statements for a page of " + ROWS);
+    }
+
+    private int count(Pageable pageable, Function<Pageable, Collection<?>> listing) {
+        em.clear();
+        evictSharedCache();
+        try (StatementCounter counter = StatementCounter.start(em.getEntityManager())) {
+            listing.apply(pageable);
+            return counter.getCount();
+        }
+    }
+
+    private void evictSharedCache() {
+        em.getEntityManager().getEntityManagerFactory().getCache().evictAll();
+    }
+}
@@ -1,9 +1,16 @@
 package dev.mikita.rolt.dao;
 
 import dev.mikita.rolt.App;
+import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.environment.Generator;
 import dev.mikita.rolt.environment.TestConfiguration;
+import dev.mikita.rolt.exception.ValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.jpa.JpaEntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -13,10 +20,18 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.HashMap;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -32,6 +47,12 @@ public class PropertyDaoTest {
     @Autowired
     private PropertyDao propertyDao;
 
+    @Autowired
+    private QueryPlanCache planCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void findAllReturnsOnlyPublishedProperties() {
         final City city = Generator.generateCity();
@@ -54,12 +75,11 @@ public class PropertyDaoTest {
         properties.add(deletedProperty);
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("status", PublicationStatus.PUBLISHED);
+        PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
 
         properties.forEach(em::persist);
 
-        final Page<Property> result = propertyDao.findAll(pageable, filters);
+        final Page<Property> result = propertyDao.findAll(pageable, filter);
         assertEquals(properties.stream().filter(p -> p.getStatus() == PublicationStatus.PUBLISHED).count(), result.getTotalElements());
         result.forEach(p -> assertSame(p.getStatus(), PublicationStatus.PUBLISHED));
     }
@@ -93,14 +113,258 @@ public class PropertyDaoTest {
         properties.add(unavailableProperty);
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("status", PublicationStatus.PUBLISHED);
-        filters.put("isAvailable", true);
+        PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).isAvailable(true).build();
 
         properties.forEach(em::persist);
 
-        final Page<Property> result = propertyDao.findAll(pageable, filters);
+        final Page<Property> result = propertyDao.findAll(pageable, filter);
         assertEquals(properties.stream().filter(p -> p.getStatus() == PublicationStatus.PUBLISHED && p.getAvailable()).count(), result.getTotalElements());
         result.forEach(p -> assertTrue(p.getStatus() == PublicationStatus.PUBLISHED && p.getAvailable()));
     }
+
+    @Test
+    public void findAllByCursorWalksAllPagesInSortOrderAndBack() {
+        final City city = Generator.generateCity();
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        em.persist(city);
+        final List<Property> properties = IntStream.range(0, 25).mapToObj(i -> {
+                    Property p = Generator.generateProperty();
+                    // Few distinct values, so the id has to break ties
+                    p.setSquare((double) (i % 4) * 10);
+                    p.setCity(city);
+                    p.setOwner(owner);
+                    return em.persist(p);
+                })
+                .collect(Collectors.toList());
+        em.flush();
+
+        final Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Order.desc("square")));
+        final PropertyFilter filter = PropertyFilter.builder().ownerId(owner.getId()).build();
+
+        final List<Integer> expected = properties.stream()
+                .sorted(Comparator.comparing(Property::getSquare).reversed().thenComparing(Property::getId))
+                .map(Property::getId)
+                .collect(Collectors.toList());
+
+        final CursorPage<Property> first = propertyDao.findAll(pageable, null, filter);
+        final CursorPage<Property> second = propertyDao.findAll(pageable, Cursor.decode(first.getNextCursor()), filter);
+        final CursorPage<Property> third = propertyDao.findAll(pageable, Cursor.decode(second.getNextCursor()), filter);
+
+        final List<Integer> walked = new ArrayList<>();
+        List.of(first, second, third).forEach(page -> page.getContent().forEach(p -> walked.add(p.getId())));
+        assertEquals(expected, walked);
+        assertFalse(first.hasPrevious());
+        assertFalse(third.hasNext());
+
+        final CursorPage<Property> back = propertyDao.findAll(pageable, Cursor.decode(third.getPreviousCursor()), filter);
+        assertEquals(second.getContent(), back.getContent());
+        assertTrue(back.hasNext());
+        assertTrue(back.hasPrevious());
+    }
+
+    @Test
+    public void findAllByCursorRejectsCursorOfAnotherSort() {
+        final PropertyFilter filter = PropertyFilter.builder().build();
+        final Cursor cursor = new Cursor(true, "square:ASC;id:ASC", List.of("10.0", "1"));
+
+        assertThrows(ValidationException.class,
+                () -> propertyDao.findAll(PageRequest.of(0, 10), cursor, filter));
+    }
+
+    @Test
+    public void findAllWithWindowCountReturnsSameRowsAndTotalAsSeparateCount() {
+        persistPublishedProperties(12);
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+
+        for (int page = 0; page < 4; page++) {
+            final Pageable pageable = PageRequest.of(page, 5, Sort.by(Sort.Direction.DESC, "square").and(Sort.by("id")));
+            final Page<Property> expected = propertyDao.findAll(pageable, filter, CountMode.QUERY);
+            final Page<Property> result = propertyDao.findAll(pageable, filter, CountMode.WINDOW);
+
+            assertEquals(expected.getContent(), result.getContent());
+            assertEquals(12, result.getTotalElements());
+        }
+    }
+
+    @Test
+    public void findSliceTellsWhetherThereIsNextSlice() {
+        persistPublishedProperties(10);
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+
+        final Slice<Property> first = propertyDao.findSlice(PageRequest.of(0, 5), filter);
+        final Slice<Property> second = propertyDao.findSlice(PageRequest.of(1, 5), filter);
+
+        assertEquals(5, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(5, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    public void findAllApproximateCountsExactlyWithoutPlannerStatistics() {
+        persistPublishedProperties(7);
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+
+        final CountedPage<Property> result = propertyDao.findAll(PageRequest.of(0, 5), filter, CountMode.APPROXIMATE);
+
+        assertEquals(7, result.getTotalElements());
+        assertTrue(result.isTotalExact());
+    }
+
+    @Test
+    public void findAllReusesQueryPlanForSameFiltersWithOtherValues() {
+        persistPublishedProperties(3);
+        final City otherCity = Generator.generateCity();
+        em.persist(otherCity);
+        em.flush();
+
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).cityId(-1).build();
+        assertEquals(0, propertyDao.findAll(PageRequest.of(0, 5), filter).getTotalElements());
+
+        final long hits = planCache.getHitCount();
+        final long misses = planCache.getMissCount();
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        final Page<Property> result;
+        try {
+            result = propertyDao.findAll(PageRequest.of(0, 5), filter.toBuilder().cityId(otherCity.getId()).build());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+
+        assertEquals(0, result.getTotalElements());
+        assertEquals(misses, planCache.getMissCount());
+        assertEquals(hits + 2, planCache.getHitCount());
+        assertEquals(1, registry.get("rolt.listing.query")
+                .tags("entity", "Property", "kind", "rows", "filters", "status,cityId")
+                .timer()
+                .count());
+
+        assertEquals(3, propertyDao.findAll(PageRequest.of(0, 5), filter.toBuilder().cityId(null).build())
+                .getTotalElements());
+    }
+
+    @Test
+    public void findAllPublicSelectsUnmanagedDtosWithReferencedIds() {
+        persistPublishedProperties(3);
+        em.clear();
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+
+        final List<Property> expected = propertyDao.findAll(PageRequest.of(0, 2), filter, CountMode.QUERY).getContent();
+        em.clear();
+        final CountedPage<ResponsePublicPropertyDto> result =
+                propertyDao.findAllPublic(PageRequest.of(0, 2), filter, CountMode.WINDOW);
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals(expected.size(), result.getContent().size());
+        for (int i = 0; i < expected.size(); i++) {
+            final Property property = expected.get(i);
+            final ResponsePublicPropertyDto dto = result.getContent().get(i);
+            assertEquals(property.getId(), dto.getId());
+            assertEquals(property.getOwner().getId(), dto.getOwnerId());
+            assertEquals(property.getCity().getId(), dto.getCityId());
+            assertEquals(property.getType(), dto.getPropertyType());
+            assertEquals(property.getSquare(), dto.getSquare());
+        }
+        final UnitOfWorkImpl unitOfWork = (UnitOfWorkImpl) em.getEntityManager()
+                .unwrap(JpaEntityManager.class).getActiveSession();
+        assertTrue(unitOfWork.getCloneMapping().isEmpty());
+    }
+
+    @Test
+    public void findAllPublicSkipsExcludedProperties() {
+        persistPublishedProperties(3);
+        final PropertyFilter filter = PropertyFilter.builder().status(PublicationStatus.PUBLISHED).build();
+        final List<Integer> ids = propertyDao.findAllPublic(PageRequest.of(0, 5), filter, CountMode.QUERY).getContent()
+                .stream().map(ResponsePublicPropertyDto::getId).collect(Collectors.toList());
+
+        final CountedPage<ResponsePublicPropertyDto> result = propertyDao.findAllPublic(PageRequest.of(0, 5),
+                filter.toBuilder().excludedIds(Set.of(ids.get(0), ids.get(2))).build(), CountMode.WINDOW);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals(ids.get(1), result.getContent().get(0).getId());
+    }
+
+    @Test
+    public void findIdsAndFindAllPublicKeepOnlyGivenProperties() {
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        persistPublishedProperties(owner, 3);
+        final PropertyFilter filter = PropertyFilter.builder().ownerId(owner.getId()).build();
+        final List<Integer> ids = propertyDao.findIds(filter);
+        assertEquals(3, ids.size());
+
+        final CountedPage<ResponsePublicPropertyDto> result = propertyDao.findAllPublic(PageRequest.of(0, 5),
+                filter.toBuilder().ids(Set.of(ids.get(1))).build(), CountMode.WINDOW);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals(ids.get(1), result.getContent().get(0).getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void listingsInReadOnlyTransactionDoNotRegisterEntities() {
+        // Read-only queries bypass the persistence context, so they only see committed rows
+        final TransactionTemplate writes = new TransactionTemplate(transactionManager);
+        final TransactionTemplate reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+
+        final Landlord owner = writes.execute(status -> {
+            final Landlord landlord = Generator.generateLandlord();
+            em.persist(landlord);
+            persistPublishedProperties(landlord, 3);
+            return landlord;
+        });
+        final PropertyFilter filter = PropertyFilter.builder().ownerId(owner.getId()).build();
+        try {
+            reads.executeWithoutResult(status -> {
+                final List<Property> first = propertyDao.findAll(PageRequest.of(0, 2), filter, CountMode.WINDOW).getContent();
+                final List<Property> second = propertyDao.findSlice(PageRequest.of(0, 2), filter).getContent();
+
+                assertEquals(2, first.size());
+                assertTrue(activeUnitOfWork().getCloneMapping().isEmpty());
+                // Both listings return the instances from the shared cache
+                assertSame(first.get(0), second.get(0));
+                assertEquals(owner.getId(), first.get(0).getOwner().getId());
+            });
+            writes.executeWithoutResult(status -> {
+                propertyDao.findSlice(PageRequest.of(0, 2), filter);
+                assertFalse(activeUnitOfWork().getCloneMapping().isEmpty());
+            });
+        } finally {
+            writes.executeWithoutResult(status -> {
+                final EntityManager manager = em.getEntityManager();
+                final List<City> cities = manager.createQuery(
+                                "SELECT DISTINCT p.city FROM Property p WHERE p.owner.id = :id", City.class)
+                        .setParameter("id", owner.getId()).getResultList();
+                manager.createQuery("DELETE FROM Property p WHERE p.owner.id = :id")
+                        .setParameter("id", owner.getId()).executeUpdate();
+                cities.forEach(manager::remove);
+                manager.remove(manager.find(Landlord.class, owner.getId()));
+            });
+        }
+    }
+
+    private UnitOfWorkImpl activeUnitOfWork() {
+        return (UnitOfWorkImpl) em.getEntityManager().unwrap(JpaEntityManager.class).getActiveSession();
+    }
+
+    private void persistPublishedProperties(int count) {
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        persistPublishedProperties(owner, count);
+    }
+
+    private void persistPublishedProperties(Landlord owner, int count) {
+        final City city = Generator.generateCity();
+        em.persist(city);
+        IntStream.range(0, count).forEach(i -> {
+            Property p = Generator.generateProperty();
+            p.setCity(city);
+            p.setOwner(owner);
+            em.persist(p);
+        });
+        em.flush();
+    }
 }
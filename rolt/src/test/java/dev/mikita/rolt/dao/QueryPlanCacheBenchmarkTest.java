@@ -0,0 +1,106 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.TestConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the CPU time a listing request spends with and without compiled query plans.
+ * <p>
+ * Only the plan cache hits are asserted, the CPU times are logged since they depend on the machine.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class QueryPlanCacheBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlanCacheBenchmarkTest.class);
+    private static final int WARMUP = 500;
+    private static final int REQUESTS = 2000;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Autowired
+    private QueryPlanCache planCache;
+
+    @Test
+    public void listingRequestsReuseCompiledPlans() {
+        final City city = Generator.generateCity();
+        final Landlord owner = Generator.generateLandlord();
+        em.persist(owner);
+        em.persist(city);
+        IntStream.range(0, 50).forEach(i -> {
+            Property p = Generator.generateProperty();
+            p.setCity(city);
+            p.setOwner(owner);
+            em.persist(p);
+        });
+        em.flush();
+        em.clear();
+
+        final Object target = AopTestUtils.getUltimateTargetObject(propertyDao);
+        final long hits = planCache.getHitCount();
+        final long cached = measure();
+        assertTrue(planCache.getHitCount() - hits >= REQUESTS);
+        ReflectionTestUtils.setField(target, "planCache", new QueryPlanCache(0, Duration.ZERO));
+        final long compiled;
+        try {
+            compiled = measure();
+        } finally {
+            ReflectionTestUtils.setField(target, "planCache", planCache);
+        }
+
+        LOG.info("Listing request CPU time: {} us with compiled plans, {} us compiling each query",
+                cached / 1000, compiled / 1000);
+    }
+
+    private long measure() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final PropertyFilter filter = PropertyFilter.builder()
+                .status(PublicationStatus.PUBLISHED)
+                .isAvailable(true)
+                .build();
+
+        long start = 0;
+        long misses = 0;
+        for (int i = 0; i < WARMUP + REQUESTS; i++) {
+            if (i == WARMUP) {
+                start = threads.getCurrentThreadCpuTime();
+                misses = planCache.getMissCount();
+            }
+            propertyDao.findAll(PageRequest.of(i % 3, 10, Sort.by("square")),
+                    filter.toBuilder().minSquare((double) (i % 100)).build());
+            em.clear();
+        }
+        final long cpuTime = (threads.getCurrentThreadCpuTime() - start) / REQUESTS;
+        // Requests differ only in parameters, so every plan is compiled during the warmup
+        assertEquals(misses, planCache.getMissCount());
+        return cpuTime;
+    }
+}
@@ -0,0 +1,120 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.TestConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the heap a listing request allocates in a read-only and in a read-write transaction.
+ * <p>
+ * Only that read-only listings register no entity in the persistence context is asserted, the allocations are
+ * logged since they depend on the JVM. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class ReadOnlyListingBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadOnlyListingBenchmarkTest.class);
+    private static final int WARMUP = 500;
+    private static final int REQUESTS = 2000;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void readOnlyTransactionsListWithoutManagingEntities() {
+        final TransactionTemplate writes = new TransactionTemplate(transactionManager);
+        final TransactionTemplate reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+
+        final Landlord owner = writes.execute(status -> {
+            final City city = Generator.generateCity();
+            final Landlord landlord = Generator.generateLandlord();
+            em.persist(landlord);
+            em.persist(city);
+            IntStream.range(0, 50).forEach(i -> {
+                Property p = Generator.generateProperty();
+                p.setCity(city);
+                p.setOwner(landlord);
+                em.persist(p);
+            });
+            return landlord;
+        });
+
+        try {
+            final PropertyFilter filter = PropertyFilter.builder().ownerId(owner.getId()).build();
+            assertEquals(0, countManaged(reads, filter));
+            assertEquals(10, countManaged(writes, filter));
+
+            final long readOnly = measure(reads, filter);
+            final long readWrite = measure(writes, filter);
+            LOG.info("Listing request heap allocation: {} KiB read-only, {} KiB read-write",
+                    readOnly / 1024, readWrite / 1024);
+        } finally {
+            writes.executeWithoutResult(status -> {
+                final EntityManager manager = em.getEntityManager();
+                final City city = manager.createQuery(
+                                "SELECT DISTINCT p.city FROM Property p WHERE p.owner.id = :id", City.class)
+                        .setParameter("id", owner.getId()).getSingleResult();
+                manager.createQuery("DELETE FROM Property p WHERE p.owner.id = :id")
+                        .setParameter("id", owner.getId()).executeUpdate();
+                manager.remove(city);
+                manager.remove(manager.find(Landlord.class, owner.getId()));
+            });
+        }
+    }
+
+    /**
+     * Lists a page and counts the properties registered in the persistence context of the transaction.
+     */
+    private long countManaged(TransactionTemplate transaction, PropertyFilter filter) {
+        return transaction.execute(status -> {
+            final List<Property> page = propertyDao.findAll(PageRequest.of(0, 10), filter, CountMode.WINDOW).getContent();
+            return page.stream().filter(em.getEntityManager()::contains).count();
+        });
+    }
+
+    private long measure(TransactionTemplate transaction, PropertyFilter filter) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long start = 0;
+        for (int i = 0; i < WARMUP + REQUESTS; i++) {
+            if (i == WARMUP) {
+                start = threads.getCurrentThreadAllocatedBytes();
+            }
+            final int page = i % 3;
+            transaction.executeWithoutResult(status -> propertyDao.findAll(PageRequest.of(page, 10), filter, CountMode.WINDOW));
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - start) / REQUESTS;
+    }
+}
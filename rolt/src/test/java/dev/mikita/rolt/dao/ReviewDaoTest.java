@@ -13,14 +13,18 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ComponentScan(basePackageClasses = App.class, excludeFilters = {
@@ -32,6 +36,12 @@ public class ReviewDaoTest {
     @Autowired
     private ReviewDao reviewDao;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void findByAuthorReturnsReviewsFromCertainConsumer() {
         final Tenant author = Generator.generateTenant();
@@ -67,11 +77,102 @@ public class ReviewDaoTest {
         em.flush();
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("authorId", author.getId());
+        ReviewFilter filter = ReviewFilter.builder().authorId(author.getId()).build();
 
-        Page<Review> result = reviewDao.findAll(pageable, filters);
+        Page<Review> result = reviewDao.findAll(pageable, filter);
         assertEquals(reviews.stream().filter(r -> r.getAuthor() == author).count(), result.getTotalElements());
         result.forEach(r -> assertSame(r.getAuthor(), author));
     }
+
+    @Test
+    public void findAllByReviewedIdReturnsReviewsAboutConsumerNewestFirst() {
+        final Contract contract = createContract();
+        final Tenant tenant = contract.getTenant();
+        final Landlord landlord = contract.getProperty().getOwner();
+
+        final Review byTenant = createReview(contract, tenant);
+        final Review byLandlord = createReview(contract, landlord);
+        assertSame(landlord, byTenant.getSubject());
+        assertSame(tenant, byLandlord.getSubject());
+
+        final Contract another = Generator.generateContract();
+        another.setStartDate(contract.getEndDate().plusDays(1));
+        another.setEndDate(another.getStartDate().plusDays(10));
+        another.setProperty(contract.getProperty());
+        another.setTenant(tenant);
+        em.persist(another);
+        final Review newer = createReview(another, tenant);
+        newer.setCreatedOn(byTenant.getCreatedOn().plusMinutes(1));
+        em.flush();
+
+        final Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Order.desc("createdOn"), Sort.Order.desc("id")));
+        final ReviewFilter filter = ReviewFilter.builder().reviewedId(landlord.getId()).build();
+
+        assertEquals(List.of(newer, byTenant), reviewDao.findAll(pageable, filter).getContent());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillSubjectsSetsPartyOtherThanAuthor() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Contract contract = transaction.execute(status -> {
+            final Contract created = createContract();
+            createReview(created, created.getTenant());
+            createReview(created, created.getProperty().getOwner());
+            return created;
+        });
+        try {
+            // Reviews stored before the subject column
+            transaction.executeWithoutResult(status -> entityManager
+                    .createQuery("UPDATE Review r SET r.subject = NULL WHERE r.contract.id = :id")
+                    .setParameter("id", contract.getId()).executeUpdate());
+
+            reviewDao.backfillSubjects();
+
+            final List<Object[]> rows = entityManager.createQuery(
+                            "SELECT r.author.id, r.subject.id FROM Review r WHERE r.contract.id = :id", Object[].class)
+                    .setParameter("id", contract.getId()).getResultList();
+            assertEquals(2, rows.size());
+            for (Object[] row : rows) {
+                assertEquals(row[0].equals(contract.getTenant().getId())
+                        ? contract.getProperty().getOwner().getId() : contract.getTenant().getId(), row[1]);
+            }
+        } finally {
+            transaction.executeWithoutResult(status -> {
+                entityManager.createQuery("DELETE FROM Review r WHERE r.contract.id = :id")
+                        .setParameter("id", contract.getId()).executeUpdate();
+                entityManager.remove(entityManager.find(Contract.class, contract.getId()));
+                entityManager.remove(entityManager.find(Property.class, contract.getProperty().getId()));
+                entityManager.remove(entityManager.find(City.class, contract.getProperty().getCity().getId()));
+                entityManager.remove(entityManager.find(Landlord.class, contract.getProperty().getOwner().getId()));
+                entityManager.remove(entityManager.find(Tenant.class, contract.getTenant().getId()));
+            });
+        }
+    }
+
+    private Contract createContract() {
+        final Tenant tenant = Generator.generateTenant();
+        entityManager.persist(tenant);
+        final Landlord landlord = Generator.generateLandlord();
+        entityManager.persist(landlord);
+        final City city = Generator.generateCity();
+        entityManager.persist(city);
+        final Property property = Generator.generateProperty();
+        property.setCity(city);
+        property.setOwner(landlord);
+        entityManager.persist(property);
+        final Contract contract = Generator.generateContract();
+        contract.setProperty(property);
+        contract.setTenant(tenant);
+        entityManager.persist(contract);
+        return contract;
+    }
+
+    private Review createReview(Contract contract, Consumer author) {
+        final Review review = Generator.generateReview();
+        review.setContract(contract);
+        review.setAuthor(author);
+        reviewDao.persist(review);
+        return review;
+    }
 }
@@ -4,7 +4,9 @@ import dev.mikita.rolt.App;
 import dev.mikita.rolt.entity.ConsumerStatus;
 import dev.mikita.rolt.entity.Tenant;
 import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.StatementCounter;
 import dev.mikita.rolt.environment.TestConfiguration;
+import dev.mikita.rolt.exception.ValidationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -14,10 +16,9 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -43,12 +44,11 @@ public class TenantDaoTest {
         tenants.add(bannedTenant);
 
         Pageable pageable = PageRequest.of(1, 10);
-        Map<String, Object> filters = new HashMap<>();
-        filters.put("status", ConsumerStatus.ACTIVE);
+        TenantFilter filter = TenantFilter.builder().status(ConsumerStatus.ACTIVE).build();
 
         tenants.forEach(em::persist);
 
-        final Page<Tenant> result = tenantDao.findAll(pageable, filters);
+        final Page<Tenant> result = tenantDao.findAll(pageable, filter);
         assertEquals(tenants.stream().filter(t -> t.getStatus() == ConsumerStatus.ACTIVE).count(), result.getTotalElements());
         result.forEach(t -> assertSame(t.getStatus(), ConsumerStatus.ACTIVE));
     }
@@ -75,4 +75,21 @@ public class TenantDaoTest {
         assertEquals(tenants.stream().filter(t -> t.getStatus() == ConsumerStatus.ACTIVE && t.getInSearch()).count(), result.size());
         result.forEach(t -> assertTrue(t.getStatus() == ConsumerStatus.ACTIVE && t.getInSearch()));
     }
+
+    @Test
+    public void findAllByCursorRejectsNullableSortBeforeQuerying() {
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        em.flush();
+        final TenantFilter filter = TenantFilter.builder().build();
+
+        try (StatementCounter counter = StatementCounter.start(em.getEntityManager())) {
+            assertThrows(ValidationException.class,
+                    () -> tenantDao.findAll(PageRequest.of(0, 10, Sort.by("inSearch")), null, filter));
+            assertThrows(ValidationException.class,
+                    () -> tenantDao.findAll(PageRequest.of(0, 10, Sort.by("lastLogin")), null, filter));
+            assertEquals(0, counter.getCount());
+        }
+        assertFalse(tenantDao.findAll(PageRequest.of(0, 10, Sort.by("lastName")), null, filter).getContent().isEmpty());
+    }
 }
@@ -0,0 +1,66 @@
+package dev.mikita.rolt.dao;
+
+import dev.mikita.rolt.App;
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Moderator;
+import dev.mikita.rolt.entity.Role;
+import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.TestConfiguration;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ComponentScan(basePackageClasses = App.class, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = TestConfiguration.class)})
+public class UserDaoTest {
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Test
+    public void findPrincipalByEmailReturnsConsumerPrincipal() {
+        final Tenant tenant = Generator.generateTenant();
+        tenant.setStatus(ConsumerStatus.BANNED);
+        em.persistAndFlush(tenant);
+
+        final CustomUserDetails result = userDao.findPrincipalByEmail(tenant.getEmail());
+
+        assertNotNull(result);
+        assertEquals(tenant.getId(), result.getId());
+        assertEquals(tenant.getEmail(), result.getUsername());
+        assertEquals(tenant.getPassword(), result.getPassword());
+        assertEquals(Role.TENANT, result.getRole());
+        assertEquals(ConsumerStatus.BANNED, result.getStatus());
+        assertFalse(result.isEnabled());
+    }
+
+    @Test
+    public void findPrincipalByEmailReturnsPrincipalWithoutStatusForModerator() {
+        final Moderator moderator = new Moderator();
+        moderator.setEmail("moderator" + Generator.randomInt() + "@gmail.com");
+        moderator.setPassword("password");
+        em.persistAndFlush(moderator);
+
+        final CustomUserDetails result = userDao.findPrincipalByEmail(moderator.getEmail());
+
+        assertNotNull(result);
+        assertEquals(Role.MODERATOR, result.getRole());
+        assertNull(result.getStatus());
+        assertTrue(result.isEnabled());
+    }
+
+    @Test
+    public void findPrincipalByEmailReturnsNullForUnknownEmail() {
+        assertNull(userDao.findPrincipalByEmail("unknown@gmail.com"));
+    }
+}
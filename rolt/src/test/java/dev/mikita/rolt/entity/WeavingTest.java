@@ -0,0 +1,71 @@
+package dev.mikita.rolt.entity;
+
+import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
+import org.eclipse.persistence.internal.weaving.PersistenceWeaved;
+import org.eclipse.persistence.internal.weaving.PersistenceWeavedLazy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entities are woven by the build, eclipselink.weaving=static makes EclipseLink trust that they are.
+ * Unwoven entities silently load lazy to-one associations eagerly and are dirty checked by comparing copies.
+ */
+public class WeavingTest {
+    @Test
+    public void entitiesAreWoven() {
+        final List<Class<?>> entities = findEntities();
+        assertFalse(entities.isEmpty());
+        for (Class<?> entity : entities) {
+            assertTrue(PersistenceWeaved.class.isAssignableFrom(entity), entity + " is not woven.");
+            assertTrue(ChangeTracker.class.isAssignableFrom(entity), entity + " is not woven for change tracking.");
+        }
+    }
+
+    @Test
+    public void entitiesWithLazyToOneAssociationsAreWovenForLazyLoading() {
+        for (Class<?> entity : findEntities()) {
+            final boolean lazy = Arrays.stream(entity.getDeclaredFields())
+                    .map(field -> field.getAnnotation(ManyToOne.class))
+                    .anyMatch(manyToOne -> manyToOne != null && manyToOne.fetch() == FetchType.LAZY);
+            if (lazy) {
+                assertTrue(PersistenceWeavedLazy.class.isAssignableFrom(entity), entity + " is not woven for lazy loading.");
+            }
+        }
+    }
+
+    @Test
+    public void toOneAssociationsAreLazy() {
+        for (Class<?> entity : List.of(Property.class, Review.class, Contract.class)) {
+            for (Field field : entity.getDeclaredFields()) {
+                final ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+                if (manyToOne != null) {
+                    assertTrue(manyToOne.fetch() == FetchType.LAZY, entity.getSimpleName() + "." + field.getName() + " is eager.");
+                }
+            }
+        }
+    }
+
+    private static List<Class<?>> findEntities() {
+        final ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        return scanner.findCandidateComponents(WeavingTest.class.getPackageName())
+                .stream()
+                .map(BeanDefinition::getBeanClassName)
+                .map(name -> ClassUtils.resolveClassName(name, WeavingTest.class.getClassLoader()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,56 @@
+package dev.mikita.rolt.environment;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts SQL statements executed through an entity manager.
+ */
+public class StatementCounter extends SessionEventAdapter implements AutoCloseable {
+    private final List<AbstractSession> sessions = new ArrayList<>();
+    private int count;
+
+    private StatementCounter() {
+    }
+
+    /**
+     * Starts counting statements executed by the active session of the entity manager and by its parents.
+     *
+     * @param em Entity manager
+     * @return Counter, closing it stops counting
+     */
+    public static StatementCounter start(EntityManager em) {
+        final StatementCounter counter = new StatementCounter();
+        AbstractSession session = (AbstractSession) em.unwrap(JpaEntityManager.class).getActiveSession();
+        while (session != null) {
+            session.getEventManager().addListener(counter);
+            counter.sessions.add(session);
+            session = session.getParent();
+        }
+        return counter;
+    }
+
+    @Override
+    public void postExecuteCall(SessionEvent event) {
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    @Override
+    public void close() {
+        sessions.forEach(session -> session.getEventManager().removeListener(this));
+    }
+}
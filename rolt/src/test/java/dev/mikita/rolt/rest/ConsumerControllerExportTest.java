@@ -0,0 +1,96 @@
+package dev.mikita.rolt.rest;
+
+import dev.mikita.rolt.entity.Consumer;
+import dev.mikita.rolt.entity.Landlord;
+import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.environment.Environment;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.service.ConsumerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MvcResult;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class ConsumerControllerExportTest extends BaseControllerTestRunner {
+    @Mock
+    private ConsumerService consumerServiceMock;
+
+    private Landlord landlord;
+    private Tenant tenant;
+
+    @BeforeEach
+    public void setUp() {
+        super.setUp(new ConsumerController(consumerServiceMock, null, null, Environment.getObjectMapper()));
+        landlord = Generator.generateLandlord();
+        landlord.setId(1);
+        tenant = Generator.generateTenant();
+        tenant.setId(2);
+        tenant.setLastName("O'Neil, \"Jr\"");
+    }
+
+    private void exportLandlordAndTenant() {
+        when(consumerServiceMock.forEach(any())).thenAnswer(invocation -> {
+            final java.util.function.Consumer<Consumer> action = invocation.getArgument(0);
+            action.accept(landlord);
+            action.accept(tenant);
+            return 2L;
+        });
+    }
+
+    @Test
+    public void exportWritesOneJsonObjectPerLineWithoutPasswords() throws Exception {
+        exportLandlordAndTenant();
+        final MvcResult mvcResult = mockMvc.perform(get("/rest/v1/consumers/export")).andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("application/x-ndjson;charset=UTF-8", mvcResult.getResponse().getContentType());
+        final String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        final Map<?, ?> first = objectMapper.readValue(lines[0], Map.class);
+        assertEquals(landlord.getEmail(), first.get("email"));
+        assertFalse(first.containsKey("password"));
+        assertEquals(tenant.getLastName(), objectMapper.readValue(lines[1], Map.class).get("lastName"));
+    }
+
+    @Test
+    public void exportWritesCsvWithHeaderAndEscapedFields() throws Exception {
+        exportLandlordAndTenant();
+        final MvcResult mvcResult = mockMvc.perform(get("/rest/v1/consumers/export").param("format", "csv"))
+                .andExpect(status().isOk()).andReturn();
+
+        final List<String> lines = List.of(mvcResult.getResponse().getContentAsString().split("\r\n"));
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("id,role,email,firstName,lastName,"));
+        // Fields without a value keep their column
+        assertEquals(lines.get(0).split(",").length, lines.get(1).split(",", -1).length);
+        assertTrue(lines.get(2).contains(",\"O'Neil, \"\"Jr\"\"\","));
+    }
+
+    @Test
+    public void exportPrefixesCsvFieldsStartingLikeFormula() throws Exception {
+        tenant.setFirstName("=HYPERLINK(\"http://example.com\")");
+        tenant.setLastName("@SUM(A1)");
+        exportLandlordAndTenant();
+        final MvcResult mvcResult = mockMvc.perform(get("/rest/v1/consumers/export").param("format", "csv"))
+                .andExpect(status().isOk()).andReturn();
+
+        final String tenantLine = mvcResult.getResponse().getContentAsString().split("\r\n")[2];
+        assertTrue(tenantLine.contains(",\"'=HYPERLINK(\"\"http://example.com\"\")\",'@SUM(A1),"));
+    }
+
+    @Test
+    public void exportRejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/rest/v1/consumers/export").param("format", "xml")).andExpect(status().isConflict());
+    }
+}
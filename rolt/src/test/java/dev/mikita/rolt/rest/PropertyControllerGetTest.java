@@ -1,5 +1,7 @@
 package dev.mikita.rolt.rest;
 
+import dev.mikita.rolt.dao.PropertyFilter;
+import dev.mikita.rolt.dto.property.ResponsePublicPropertyDto;
 import dev.mikita.rolt.entity.Property;
 import dev.mikita.rolt.environment.Generator;
 import dev.mikita.rolt.rest.handler.ErrorInfo;
@@ -10,12 +12,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -54,4 +64,19 @@ class PropertyControllerGetTest extends BaseControllerTestRunner {
         assertThat(result.getMessage(), containsString("Property identified by "));
         assertThat(result.getMessage(), containsString(Integer.toString(id)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getPropertiesWithoutTotalReturnsHasNextInsteadOfTotals() throws Exception {
+        final ResponsePublicPropertyDto property = new ResponsePublicPropertyDto();
+        property.setId(Generator.randomInt());
+        when(propertyServiceMock.findSlicePublic(any(Pageable.class), any(PropertyFilter.class)))
+                .thenReturn(new SliceImpl<>(List.of(property), PageRequest.of(0, 1), true));
+        final MvcResult mvcResult = mockMvc.perform(get("/rest/v1/properties").param("size", "1").param("total", "false"))
+                .andExpect(status().isOk()).andReturn();
+
+        final Map<?, ?> result = readValue(mvcResult, Map.class);
+        assertEquals(true, result.get("hasNext"));
+        assertFalse(result.containsKey("totalItems"));
+        verify(propertyServiceMock, never()).findAllPublic(any(Pageable.class), any(PropertyFilter.class), anyBoolean());
+    }
+}
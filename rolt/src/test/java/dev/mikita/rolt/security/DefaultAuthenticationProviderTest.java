@@ -0,0 +1,133 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.entity.ConsumerStatus;
+import dev.mikita.rolt.entity.Role;
+import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.exception.LoginRejectedException;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DefaultAuthenticationProviderTest {
+    private static final String PASSWORD = "password";
+
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    private CredentialCache credentialCache;
+    private DefaultAuthenticationProvider sut;
+    private Tenant tenant;
+
+    @BeforeEach
+    public void setUp() {
+        credentialCache = new CredentialCache(10, Duration.ofMinutes(1));
+        sut = new DefaultAuthenticationProvider(userDetailsService,
+                new PasswordVerifier(passwordEncoder, 1, 4, Duration.ofSeconds(5)),
+                credentialCache,
+                new LoginAttemptLimiter(Duration.ofMinutes(1), 3, 100, 100));
+
+        tenant = Generator.generateTenant();
+        tenant.setId(Generator.randomInt());
+        tenant.setRole(Role.TENANT);
+        final String hash = passwordEncoder.encode(PASSWORD);
+        when(userDetailsService.loadUserByUsername(tenant.getEmail())).thenAnswer(invocation -> {
+            tenant.setPassword(hash);
+            return new CustomUserDetails(tenant);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void authenticateLoadsUserOnlyOnceForRepeatedCredentials() {
+        final Authentication first = sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD));
+        final Authentication second = sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD));
+
+        assertTrue(second.isAuthenticated());
+        assertEquals(tenant.getId(), ((CustomUserDetails) first.getPrincipal()).getId());
+        assertEquals(tenant.getId(), ((CustomUserDetails) second.getPrincipal()).getId());
+        verify(userDetailsService, times(1)).loadUserByUsername(tenant.getEmail());
+        assertEquals(1, credentialCache.getCache().getHitCount());
+        assertEquals(1, credentialCache.getCache().getMissCount());
+    }
+
+    @Test
+    public void authenticateDoesNotCacheWrongPassword() {
+        final UsernamePasswordAuthenticationToken wrong = new UsernamePasswordAuthenticationToken(tenant.getEmail(), "wrong");
+
+        assertThrows(BadCredentialsException.class, () -> sut.authenticate(wrong));
+        assertThrows(BadCredentialsException.class, () -> sut.authenticate(wrong));
+        verify(userDetailsService, times(2)).loadUserByUsername(tenant.getEmail());
+        assertEquals(0, credentialCache.getCache().size());
+    }
+
+    @Test
+    public void authenticateThrottlesRepeatedWrongPasswords() {
+        final UsernamePasswordAuthenticationToken wrong = new UsernamePasswordAuthenticationToken(tenant.getEmail(), "wrong");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(BadCredentialsException.class, () -> sut.authenticate(wrong));
+        }
+
+        final LoginRejectedException e = assertThrows(LoginRejectedException.class, () -> sut.authenticate(wrong));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        verify(userDetailsService, times(3)).loadUserByUsername(tenant.getEmail());
+    }
+
+    @Test
+    public void userSecurityChangeInvalidatesCachedCredentials() {
+        sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD));
+        credentialCache.onUserSecurityChanged(new UserSecurityChangedEvent(tenant.getId()));
+        sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD));
+
+        verify(userDetailsService, times(2)).loadUserByUsername(tenant.getEmail());
+    }
+
+    @Test
+    public void invalidationDuringLoginKeepsLoadedCredentialsOutOfCache() {
+        final String hash = passwordEncoder.encode(PASSWORD);
+        when(userDetailsService.loadUserByUsername(tenant.getEmail())).thenAnswer(invocation -> {
+            tenant.setPassword(hash);
+            final CustomUserDetails loaded = new CustomUserDetails(tenant);
+            // A password change commits while the old hash is being verified
+            credentialCache.onUserSecurityChanged(new UserSecurityChangedEvent(tenant.getId()));
+            return loaded;
+        });
+
+        assertTrue(sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD)).isAuthenticated());
+        assertEquals(0, credentialCache.getCache().size());
+    }
+
+    @Test
+    public void authenticateRejectsInactiveUserWithoutCaching() {
+        tenant.setStatus(ConsumerStatus.BANNED);
+
+        assertThrows(DisabledException.class,
+                () -> sut.authenticate(new UsernamePasswordAuthenticationToken(tenant.getEmail(), PASSWORD)));
+        assertEquals(0, credentialCache.getCache().size());
+    }
+}
@@ -0,0 +1,73 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.entity.Role;
+import dev.mikita.rolt.entity.Tenant;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.security.jwt.JwtTokenService;
+import dev.mikita.rolt.security.jwt.TokenRevocationList;
+import dev.mikita.rolt.security.model.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenServiceTest {
+    private JwtTokenService sut;
+    private CustomUserDetails userDetails;
+
+    @BeforeEach
+    public void setUp() {
+        final Duration refreshTokenTtl = Duration.ofDays(1);
+        sut = new JwtTokenService("", Duration.ofMinutes(5), refreshTokenTtl, new TokenRevocationList(refreshTokenTtl));
+
+        final Tenant tenant = Generator.generateTenant();
+        tenant.setId(Generator.randomInt());
+        tenant.setRole(Role.TENANT);
+        userDetails = new CustomUserDetails(tenant);
+    }
+
+    @Test
+    public void accessTokenClaimsAuthenticateUserWithoutLoadingIt() {
+        final Claims claims = sut.parse(sut.createAccessToken(userDetails), JwtTokenService.ACCESS_TOKEN);
+        final CustomUserDetails result = sut.toUserDetails(claims);
+
+        assertEquals(userDetails.getId(), result.getId());
+        assertEquals(Role.TENANT, result.getRole());
+        assertEquals(userDetails.getUsername(), result.getUsername());
+        assertNull(result.getPassword());
+    }
+
+    @Test
+    public void parseRejectsTokenOfAnotherType() {
+        final String refreshToken = sut.createRefreshToken(userDetails);
+
+        assertThrows(JwtException.class, () -> sut.parse(refreshToken, JwtTokenService.ACCESS_TOKEN));
+        assertNotNull(sut.parse(refreshToken, JwtTokenService.REFRESH_TOKEN));
+    }
+
+    @Test
+    public void parseRejectsRevokedToken() {
+        final String token = sut.createAccessToken(userDetails);
+        sut.revoke(sut.parse(token, JwtTokenService.ACCESS_TOKEN));
+
+        assertThrows(JwtException.class, () -> sut.parse(token, JwtTokenService.ACCESS_TOKEN));
+    }
+
+    @Test
+    public void revokeSpendsTokenOnlyOnce() {
+        final Claims claims = sut.parse(sut.createRefreshToken(userDetails), JwtTokenService.REFRESH_TOKEN);
+
+        assertTrue(sut.revoke(claims));
+        assertFalse(sut.revoke(claims));
+    }
+
+    @Test
+    public void parseRejectsTamperedToken() {
+        final String token = sut.createAccessToken(userDetails);
+
+        assertThrows(JwtException.class, () -> sut.parse(token.substring(0, token.length() - 2), JwtTokenService.ACCESS_TOKEN));
+    }
+}
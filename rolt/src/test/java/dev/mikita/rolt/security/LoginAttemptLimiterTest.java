@@ -0,0 +1,59 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.exception.LoginRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginAttemptLimiterTest {
+    private final LoginAttemptLimiter sut = new LoginAttemptLimiter(Duration.ofMinutes(1), 2, 3, 100);
+
+    @Test
+    public void acquireThrottlesEmailAfterMaxAttempts() {
+        sut.acquire("a@rolt.dev", "10.0.0.1");
+        sut.acquire("a@rolt.dev", "10.0.0.2");
+
+        final LoginRejectedException e = assertThrows(LoginRejectedException.class,
+                () -> sut.acquire("a@rolt.dev", "10.0.0.3"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        assertEquals(Duration.ofMinutes(1), e.getRetryAfter());
+        assertDoesNotThrow(() -> sut.acquire("b@rolt.dev", "10.0.0.3"));
+    }
+
+    @Test
+    public void acquireThrottlesClientAcrossEmails() {
+        sut.acquire("a@rolt.dev", "10.0.0.1");
+        sut.acquire("b@rolt.dev", "10.0.0.1");
+        sut.acquire("c@rolt.dev", "10.0.0.1");
+
+        assertThrows(LoginRejectedException.class, () -> sut.acquire("d@rolt.dev", "10.0.0.1"));
+        assertDoesNotThrow(() -> sut.acquire("d@rolt.dev", "10.0.0.2"));
+    }
+
+    @Test
+    public void resetForgetsEmailAttempts() {
+        sut.acquire("a@rolt.dev", null);
+        sut.acquire("a@rolt.dev", null);
+        sut.reset("a@rolt.dev");
+
+        assertDoesNotThrow(() -> sut.acquire("a@rolt.dev", null));
+    }
+
+    @Test
+    public void acquireForgetsLeastRecentlyAttemptedEmailBeyondMaxKeys() {
+        final LoginAttemptLimiter limiter = new LoginAttemptLimiter(Duration.ofMinutes(1), 2, 1000, 3);
+        limiter.acquire("a@rolt.dev", null);
+        limiter.acquire("a@rolt.dev", null);
+        limiter.acquire("b@rolt.dev", null);
+        for (int i = 0; i < 10; i++) {
+            // Attacked email stays tracked while distinct ones flood the limiter
+            assertThrows(LoginRejectedException.class, () -> limiter.acquire("a@rolt.dev", null));
+            limiter.acquire("flood" + i + "@rolt.dev", null);
+        }
+
+        assertEquals(3, limiter.getTrackedEmails());
+        assertThrows(LoginRejectedException.class, () -> limiter.acquire("a@rolt.dev", null));
+    }
+}
@@ -0,0 +1,69 @@
+package dev.mikita.rolt.security;
+
+import dev.mikita.rolt.exception.LoginRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordVerifierTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    };
+
+    private final PasswordVerifier sut = new PasswordVerifier(blockingEncoder, 1, 1, Duration.ofSeconds(5));
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        sut.shutdown();
+    }
+
+    @Test
+    public void matchesRejectsWhenThreadsAndQueueAreFull() throws Exception {
+        callers.submit(() -> sut.matches("password", "password"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> sut.matches("password", "password"));
+        while (sut.getQueueDepth() < 1) {
+            Thread.onSpinWait();
+        }
+
+        final LoginRejectedException e = assertThrows(LoginRejectedException.class,
+                () -> sut.matches("password", "password"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+
+    @Test
+    public void matchesReturnsEncoderResult() {
+        release.countDown();
+
+        assertTrue(sut.matches("password", "password"));
+        assertFalse(sut.matches("wrong", "password"));
+    }
+}
@@ -0,0 +1,117 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.ContractDao;
+import dev.mikita.rolt.dao.event.ContractChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AvailabilityIndexTest {
+    private static final LocalDate JAN_1 = LocalDate.of(2030, 1, 1);
+
+    @Mock
+    private ContractDao contractDaoMock;
+
+    private AvailabilityIndex sut;
+
+    @BeforeEach
+    public void setUp() {
+        when(contractDaoMock.findAllDateRanges()).thenReturn(List.of(
+                new Object[]{1, 10, JAN_1, JAN_1.plusDays(30)},
+                new Object[]{2, 10, JAN_1.plusDays(60), JAN_1.plusDays(90)},
+                // Overlaps the first one, as updates are not checked
+                new Object[]{3, 10, JAN_1.plusDays(5), JAN_1.plusDays(10)},
+                new Object[]{4, 20, JAN_1.plusDays(20), JAN_1.plusDays(40)}));
+        sut = new AvailabilityIndex(contractDaoMock);
+        sut.rebuild();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void isFreeDetectsOverlapsIncludingBoundaryDays() {
+        assertFalse(sut.isFree(10, JAN_1.minusDays(3), JAN_1));
+        assertFalse(sut.isFree(10, JAN_1.plusDays(30), JAN_1.plusDays(40)));
+        assertFalse(sut.isFree(10, JAN_1.plusDays(40), JAN_1.plusDays(100)));
+        assertTrue(sut.isFree(10, JAN_1.plusDays(31), JAN_1.plusDays(59)));
+        assertTrue(sut.isFree(10, JAN_1.plusDays(91), JAN_1.plusDays(365)));
+        assertTrue(sut.isFree(30, JAN_1, JAN_1.plusDays(365)));
+    }
+
+    @Test
+    public void findBookedReturnsGivenPropertiesWithOverlappingContracts() {
+        final List<Integer> propertyIds = List.of(10, 20, 30);
+        assertEquals(Set.of(10, 20), sut.findBooked(propertyIds, JAN_1.plusDays(25), JAN_1.plusDays(35)));
+        assertEquals(Set.of(20), sut.findBooked(propertyIds, JAN_1.plusDays(35), JAN_1.plusDays(45)));
+        assertEquals(Set.of(), sut.findBooked(propertyIds, JAN_1.plusDays(91), JAN_1.plusDays(100)));
+        assertEquals(Set.of(10), sut.findBooked(List.of(10, 30), JAN_1.plusDays(25), JAN_1.plusDays(35)));
+    }
+
+    @Test
+    public void changesOutsideTransactionAreAppliedAtOnce() {
+        sut.onContractChanged(ContractChangedEvent.saved(1, 20, JAN_1.plusDays(100), JAN_1.plusDays(110)));
+        sut.onContractChanged(ContractChangedEvent.removed(3));
+
+        assertTrue(sut.isFree(10, JAN_1, JAN_1.plusDays(30)));
+        assertFalse(sut.isFree(20, JAN_1.plusDays(105), JAN_1.plusDays(105)));
+
+        sut.onContractChanged(ContractChangedEvent.removed(4));
+        sut.onContractChanged(ContractChangedEvent.removed(1));
+        assertEquals(Set.of(10), sut.findBooked(List.of(10, 20), JAN_1, JAN_1.plusDays(365)));
+    }
+
+    @Test
+    public void changesAreUndoneWhenTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        sut.onContractChanged(ContractChangedEvent.saved(5, 30, JAN_1, JAN_1.plusDays(10)));
+        sut.onContractChanged(ContractChangedEvent.saved(2, 10, JAN_1.plusDays(200), JAN_1.plusDays(210)));
+        sut.onContractChanged(ContractChangedEvent.removed(4));
+
+        // Pending changes are visible before the transaction completes
+        assertFalse(sut.isFree(30, JAN_1, JAN_1));
+        assertTrue(sut.isFree(10, JAN_1.plusDays(60), JAN_1.plusDays(90)));
+        assertTrue(sut.isFree(20, JAN_1, JAN_1.plusDays(365)));
+
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(sut.isFree(30, JAN_1, JAN_1.plusDays(365)));
+        assertFalse(sut.isFree(10, JAN_1.plusDays(60), JAN_1.plusDays(90)));
+        assertTrue(sut.isFree(10, JAN_1.plusDays(200), JAN_1.plusDays(210)));
+        assertFalse(sut.isFree(20, JAN_1.plusDays(20), JAN_1.plusDays(20)));
+    }
+
+    @Test
+    public void contractsCommittedWhileRebuildingAreReplayed() {
+        final AvailabilityIndex rebuilt = new AvailabilityIndex(contractDaoMock);
+        when(contractDaoMock.findAllDateRanges()).thenAnswer(invocation -> {
+            // Commits after the snapshot was read, before the index is ready
+            rebuilt.onContractChanged(ContractChangedEvent.saved(7, 40, JAN_1, JAN_1.plusDays(10)));
+            rebuilt.onContractChanged(ContractChangedEvent.removed(1));
+            return List.<Object[]>of(new Object[]{1, 10, JAN_1, JAN_1.plusDays(30)});
+        });
+
+        rebuilt.rebuild();
+
+        assertFalse(rebuilt.isFree(40, JAN_1.plusDays(5), JAN_1.plusDays(5)));
+        assertTrue(rebuilt.isFree(10, JAN_1, JAN_1.plusDays(30)));
+    }
+}
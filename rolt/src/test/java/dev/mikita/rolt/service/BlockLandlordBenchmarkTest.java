@@ -0,0 +1,128 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.PropertyDao;
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.StatementCounter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures blocking a landlord with 5,000 properties with a bulk update and entity by entity.
+ * <p>
+ * Only the statements are asserted, the times are logged. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class BlockLandlordBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(BlockLandlordBenchmarkTest.class);
+    private static final int PROPERTIES = 5000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private LandlordService landlordService;
+
+    @Autowired
+    private PropertyDao propertyDao;
+
+    @Test
+    public void bulkBlockUsesConstantStatements() {
+        // Warms up both paths
+        blockInBulk(createLandlord(PROPERTIES));
+        blockEntityByEntity(createLandlord(PROPERTIES));
+
+        final long[] bulk = blockInBulk(createLandlord(PROPERTIES));
+        final long[] entityByEntity = blockEntityByEntity(createLandlord(PROPERTIES));
+
+        LOG.info("Blocking a landlord with {} properties: {} statements and {} ms in bulk, "
+                        + "{} statements and {} ms entity by entity",
+                PROPERTIES, bulk[0], bulk[1] / 1_000_000, entityByEntity[0], entityByEntity[1] / 1_000_000);
+        assertEquals(blockInBulk(createLandlord(1))[0], bulk[0]);
+        assertTrue(bulk[0] * 10 < entityByEntity[0]);
+    }
+
+    /**
+     * Returns the statements executed and the elapsed nanoseconds.
+     */
+    private long[] blockInBulk(Integer landlordId) {
+        final long start = System.nanoTime();
+        final int statements;
+        try (StatementCounter counter = StatementCounter.start(em)) {
+            landlordService.block(em.find(Landlord.class, landlordId));
+            em.flush();
+            statements = counter.getCount();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        em.clear();
+        assertEquals(countProperties(landlordId), countDeleted(landlordId));
+        return new long[]{statements, elapsed};
+    }
+
+    /**
+     * Blocks the landlord as it used to be done, loading every property and updating it on its own.
+     */
+    private long[] blockEntityByEntity(Integer landlordId) {
+        final long start = System.nanoTime();
+        final int statements;
+        try (StatementCounter counter = StatementCounter.start(em)) {
+            final Landlord landlord = em.find(Landlord.class, landlordId);
+            landlord.setStatus(ConsumerStatus.BANNED);
+            landlord.getProperties().forEach(p -> {
+                p.setAvailable(false);
+                p.setStatus(PublicationStatus.DELETED);
+            });
+            em.flush();
+            statements = counter.getCount();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        em.clear();
+        assertEquals(PROPERTIES, countDeleted(landlordId));
+        return new long[]{statements, elapsed};
+    }
+
+    private Integer createLandlord(int properties) {
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+
+        propertyDao.persistInChunks(() -> IntStream.range(0, properties).mapToObj(i -> {
+            final Property property = Generator.generateProperty();
+            property.setCity(city);
+            property.setOwner(landlord);
+            return property;
+        }).iterator());
+        return landlord.getId();
+    }
+
+    private long countProperties(Integer landlordId) {
+        return em.createQuery("SELECT COUNT(p) FROM Property p WHERE p.owner.id = :id", Long.class)
+                .setParameter("id", landlordId)
+                .getSingleResult();
+    }
+
+    private long countDeleted(Integer landlordId) {
+        return em.createQuery("SELECT COUNT(p) FROM Property p WHERE p.owner.id = :id AND p.status = :status", Long.class)
+                .setParameter("id", landlordId)
+                .setParameter("status", PublicationStatus.DELETED)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,226 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ConsumerRatingServiceTest {
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private ConsumerRatingService consumerRatingService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void reviewChangesUpdateRatingOfReviewedParty() {
+        final Contract contract = createContract();
+        final Tenant tenant = contract.getTenant();
+        final Landlord landlord = contract.getProperty().getOwner();
+
+        final Review review = createReview(contract, tenant, 4);
+        createReview(contract, landlord, 2);
+        assertRating(landlord, 1, 4);
+        assertRating(tenant, 1, 2);
+
+        reviewService.moderate(review);
+        assertRating(landlord, 0, 0);
+        assertNull(consumerRatingService.find(landlord.getId()).getAverage());
+
+        reviewService.publish(review);
+        assertRating(landlord, 1, 4);
+
+        final Review changed = new Review();
+        changed.setId(review.getId());
+        changed.setContract(contract);
+        changed.setAuthor(tenant);
+        changed.setDescription(review.getDescription());
+        changed.setRating(5);
+        reviewService.update(changed);
+        final ConsumerRating rating = assertRating(landlord, 1, 5);
+        assertEquals(0, rating.getCount(4));
+        assertEquals(1, rating.getCount(5));
+
+        reviewService.remove(em.find(Review.class, review.getId()));
+        assertRating(landlord, 0, 0);
+    }
+
+    @Test
+    public void blockRemovesReviewsOfAuthorFromRatings() {
+        final Contract contract = createContract();
+        final Tenant tenant = contract.getTenant();
+        final Landlord landlord = contract.getProperty().getOwner();
+        createReview(contract, tenant, 3);
+        assertRating(landlord, 1, 3);
+
+        tenantService.block(tenant);
+        assertRating(landlord, 0, 0);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void repairRecomputesRatingsFromReviews() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Contract contract = transaction.execute(status -> createContract());
+        final Landlord landlord = contract.getProperty().getOwner();
+        try {
+            transaction.executeWithoutResult(status -> {
+                createReview(contract, contract.getTenant(), 5);
+                // Breaks the rating behind the back of the service
+                em.createQuery("UPDATE ConsumerRating r SET r.sum = 100, r.count = 7 WHERE r.consumerId = :id")
+                        .setParameter("id", landlord.getId()).executeUpdate();
+            });
+
+            assertTrue(consumerRatingService.repair() >= 2);
+
+            final ConsumerRating rating = consumerRatingService.find(landlord.getId());
+            assertEquals(1, rating.getCount());
+            assertEquals(5, rating.getSum());
+            assertEquals(1, rating.getCount(5));
+            assertEquals(0, consumerRatingService.find(contract.getTenant().getId()).getCount());
+        } finally {
+            remove(transaction, contract);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void startupSeedsRatingsOfConsumersWithoutOne() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Contract contract = transaction.execute(status -> {
+            final Contract created = createContract();
+            // Reviews stored before the ratings were kept
+            final Review review = Generator.generateReview();
+            review.setContract(created);
+            review.setAuthor(created.getTenant());
+            review.setRating(4);
+            em.persist(review);
+            return created;
+        });
+        final Landlord landlord = contract.getProperty().getOwner();
+        try {
+            assertNull(consumerRatingService.find(landlord.getId()));
+
+            consumerRatingService.afterSingletonsInstantiated();
+
+            final ConsumerRating rating = consumerRatingService.find(landlord.getId());
+            assertEquals(1, rating.getCount());
+            assertEquals(4, rating.getSum());
+            assertEquals(0, consumerRatingService.find(contract.getTenant().getId()).getCount());
+        } finally {
+            remove(transaction, contract);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentRemovesSubtractReviewOnce() throws Exception {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Contract contract = transaction.execute(status -> createContract());
+        final Landlord landlord = contract.getProperty().getOwner();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Integer reviewId = transaction.execute(status -> createReview(contract, contract.getTenant(), 4)).getId();
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final List<Future<Void>> removals = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                removals.add(executor.submit(() -> {
+                    // Both requests read the review as published before either removes it
+                    final Review review = reviewService.find(reviewId);
+                    barrier.await();
+                    reviewService.remove(review);
+                    return null;
+                }));
+            }
+            for (Future<Void> removal : removals) {
+                removal.get();
+            }
+
+            final ConsumerRating rating = consumerRatingService.find(landlord.getId());
+            assertEquals(0, rating.getCount());
+            assertEquals(0, rating.getSum());
+            assertEquals(0, rating.getCount(4));
+        } finally {
+            executor.shutdown();
+            remove(transaction, contract);
+        }
+    }
+
+    private void remove(TransactionTemplate transaction, Contract contract) {
+        final Landlord landlord = contract.getProperty().getOwner();
+        transaction.executeWithoutResult(status -> {
+            em.createQuery("DELETE FROM Review r WHERE r.contract.id = :id")
+                    .setParameter("id", contract.getId()).executeUpdate();
+            em.remove(em.find(Contract.class, contract.getId()));
+            em.remove(em.find(Property.class, contract.getProperty().getId()));
+            em.remove(em.find(City.class, contract.getProperty().getCity().getId()));
+            em.remove(em.find(Landlord.class, landlord.getId()));
+            em.remove(em.find(Tenant.class, contract.getTenant().getId()));
+            em.createQuery("DELETE FROM ConsumerRating r WHERE r.consumerId IN :ids")
+                    .setParameter("ids", List.of(landlord.getId(), contract.getTenant().getId())).executeUpdate();
+        });
+    }
+
+    private Contract createContract() {
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final Property property = Generator.generateProperty();
+        property.setCity(city);
+        property.setOwner(landlord);
+        em.persist(property);
+        final Contract contract = Generator.generateContract();
+        contract.setProperty(property);
+        contract.setTenant(tenant);
+        em.persist(contract);
+        return contract;
+    }
+
+    private Review createReview(Contract contract, Consumer author, int rating) {
+        final Review review = Generator.generateReview();
+        review.setContract(contract);
+        review.setAuthor(author);
+        review.setRating(rating);
+        reviewService.persist(review);
+        return review;
+    }
+
+    private ConsumerRating assertRating(Consumer consumer, long count, long sum) {
+        // Ratings are changed by bulk statements, managed instances would be stale
+        em.flush();
+        em.clear();
+        final ConsumerRating rating = consumerRatingService.find(consumer.getId());
+        assertNotNull(rating);
+        assertEquals(count, rating.getCount());
+        assertEquals(sum, rating.getSum());
+        return rating;
+    }
+}
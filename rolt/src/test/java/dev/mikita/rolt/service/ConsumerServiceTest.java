@@ -0,0 +1,62 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ConsumerServiceTest {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private ConsumerService consumerService;
+
+    @Test
+    public void blockLandlordRemovesProperties() {
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+        final Property property = Generator.generateProperty();
+        property.setCity(city);
+        property.setOwner(landlord);
+        em.persist(property);
+        em.flush();
+        em.clear();
+
+        consumerService.block(em.find(Consumer.class, landlord.getId()));
+        em.clear();
+
+        assertEquals(ConsumerStatus.BANNED, em.find(Landlord.class, landlord.getId()).getStatus());
+        assertEquals(PublicationStatus.DELETED, em.find(Property.class, property.getId()).getStatus());
+    }
+
+    @Test
+    public void blockTenantTakesTenantOutOfSearch() {
+        final Tenant tenant = Generator.generateTenant();
+        tenant.setInSearch(true);
+        em.persist(tenant);
+        em.flush();
+        em.clear();
+
+        consumerService.block(em.find(Consumer.class, tenant.getId()));
+        em.clear();
+
+        final Tenant result = em.find(Tenant.class, tenant.getId());
+        assertEquals(ConsumerStatus.BANNED, result.getStatus());
+        assertFalse(result.getInSearch());
+    }
+}
@@ -0,0 +1,114 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ContractServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int BOOKINGS_PER_THREAD = 40;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2031, 1, 1);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private ContractService contractService;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void concurrentBookingsNeverCommitOverlappingContracts() throws Exception {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Tenant tenant = Generator.generateTenant();
+        final Landlord landlord = Generator.generateLandlord();
+        final City city = Generator.generateCity();
+        final List<Property> properties = transaction.execute(status -> {
+            em.persist(tenant);
+            em.persist(landlord);
+            em.persist(city);
+            final List<Property> created = List.of(Generator.generateProperty(), Generator.generateProperty());
+            created.forEach(property -> {
+                property.setCity(city);
+                property.setOwner(landlord);
+                em.persist(property);
+            });
+            return created;
+        });
+
+        final AtomicInteger rejected = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CyclicBarrier start = new CyclicBarrier(THREADS);
+            final Callable<Void> task = () -> {
+                start.await();
+                for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    final Contract contract = Generator.generateContract();
+                    contract.setStartDate(FIRST_DAY.plusDays(random.nextInt(60)));
+                    contract.setEndDate(contract.getStartDate().plusDays(random.nextInt(1, 6)));
+                    contract.setProperty(properties.get(random.nextInt(properties.size())));
+                    contract.setTenant(tenant);
+                    try {
+                        contractService.persist(contract);
+                    } catch (ValidationException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            };
+            for (Future<Void> future : executor.invokeAll(Collections.nCopies(THREADS, task))) {
+                future.get();
+            }
+
+            final List<Contract> committed = transaction.execute(status -> em.createQuery(
+                            "SELECT c FROM Contract c WHERE c.property.owner = :owner", Contract.class)
+                    .setParameter("owner", landlord)
+                    .getResultList());
+            assertEquals(THREADS * BOOKINGS_PER_THREAD, committed.size() + rejected.get());
+            assertTrue(rejected.get() > 0);
+            for (Contract a : committed) {
+                for (Contract b : committed) {
+                    final boolean overlap = a != b
+                            && a.getProperty().getId().equals(b.getProperty().getId())
+                            && !a.getStartDate().isAfter(b.getEndDate())
+                            && !b.getStartDate().isAfter(a.getEndDate());
+                    assertFalse(overlap, "Contracts " + a.getId() + " and " + b.getId() + " overlap.");
+                }
+            }
+        } finally {
+            executor.shutdown();
+            transaction.executeWithoutResult(status -> {
+                em.createQuery("DELETE FROM Contract c WHERE c.tenant.id = :id")
+                        .setParameter("id", tenant.getId()).executeUpdate();
+                em.createQuery("DELETE FROM Property p WHERE p.owner.id = :id")
+                        .setParameter("id", landlord.getId()).executeUpdate();
+                em.remove(em.find(City.class, city.getId()));
+                em.remove(em.find(Landlord.class, landlord.getId()));
+                em.remove(em.find(Tenant.class, tenant.getId()));
+            });
+            availabilityIndex.rebuild();
+        }
+    }
+}
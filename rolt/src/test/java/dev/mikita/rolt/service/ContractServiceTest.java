@@ -40,8 +40,7 @@ public class ContractServiceTest {
         contract.setEndDate(LocalDate.of(2030, 11, 20));
         contract.setProperty(property);
         contract.setTenant(tenant);
-        em.persist(contract);
-        em.flush();
+        contractService.persist(contract);
 
         final Contract newContract = Generator.generateContract();
         newContract.setStartDate(LocalDate.of(2030, 11, 15));
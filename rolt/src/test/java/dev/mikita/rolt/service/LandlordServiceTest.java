@@ -1,10 +1,8 @@
 package dev.mikita.rolt.service;
 
-import dev.mikita.rolt.entity.City;
-import dev.mikita.rolt.entity.ConsumerStatus;
-import dev.mikita.rolt.entity.Landlord;
-import dev.mikita.rolt.entity.Property;
+import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.environment.StatementCounter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,6 +11,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +59,67 @@ public class LandlordServiceTest {
         assertEquals(ConsumerStatus.BANNED, landlord.getStatus());
     }
 
+    @Test
+    public void blockRemovesPropertiesAndReviewsOfLandlordWithConstantStatements() {
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+        final Landlord other = Generator.generateLandlord();
+        em.persist(other);
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+
+        final List<Property> properties = IntStream.range(0, 50).mapToObj(i -> {
+            final Property property = Generator.generateProperty();
+            property.setCity(city);
+            property.setOwner(landlord);
+            em.persist(property);
+            return property;
+        }).collect(Collectors.toList());
+        final Property otherProperty = Generator.generateProperty();
+        otherProperty.setCity(city);
+        otherProperty.setOwner(other);
+        em.persist(otherProperty);
+
+        final Contract contract = Generator.generateContract();
+        contract.setProperty(properties.get(0));
+        contract.setTenant(tenant);
+        em.persist(contract);
+        final Review review = Generator.generateReview();
+        review.setContract(contract);
+        review.setAuthor(landlord);
+        em.persist(review);
+        final Review otherReview = Generator.generateReview();
+        otherReview.setContract(contract);
+        otherReview.setAuthor(tenant);
+        em.persist(otherReview);
+        final ConsumerRating rating = new ConsumerRating(tenant.getId());
+        rating.add(review.getRating(), 1);
+        em.persist(rating);
+        em.flush();
+        em.clear();
+
+        final Landlord toBlock = em.find(Landlord.class, landlord.getId());
+        try (StatementCounter counter = StatementCounter.start(em)) {
+            landlordService.block(toBlock);
+            // The landlord, all of its properties, the ratings of its reviews and all of its reviews
+            assertEquals(5, counter.getCount());
+        }
+        em.clear();
+
+        assertEquals(ConsumerStatus.BANNED, em.find(Landlord.class, landlord.getId()).getStatus());
+        properties.forEach(p -> {
+            final Property result = em.find(Property.class, p.getId());
+            assertEquals(PublicationStatus.DELETED, result.getStatus());
+            assertFalse(result.getAvailable());
+        });
+        assertEquals(PublicationStatus.DELETED, em.find(Review.class, review.getId()).getStatus());
+        assertEquals(PublicationStatus.PUBLISHED, em.find(Property.class, otherProperty.getId()).getStatus());
+        assertEquals(PublicationStatus.PUBLISHED, em.find(Review.class, otherReview.getId()).getStatus());
+        assertEquals(0, em.find(ConsumerRating.class, tenant.getId()).getCount());
+    }
+
     @Test
     public void activeLandlordSetsActiveStatus() {
         final Landlord blockedLandlord = Generator.generateLandlord();
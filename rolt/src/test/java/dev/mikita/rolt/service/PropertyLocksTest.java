@@ -0,0 +1,61 @@
+package dev.mikita.rolt.service;
+
+import dev.mikita.rolt.dao.ContractDao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PropertyLocksTest {
+    private static final int STRIPES = 4;
+
+    private final ContractDao contractDao = mock(ContractDao.class);
+    private final PropertyLocks sut = new PropertyLocks(contractDao, STRIPES);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete();
+        }
+    }
+
+    @Test
+    public void lockBlocksSameStripeUntilTransactionCompletesAndNotOtherStripes() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        sut.lock(1);
+        verify(contractDao).lockProperty(1);
+
+        executor.submit(() -> lockAndComplete(2)).get(1, TimeUnit.SECONDS);
+
+        final Future<?> sameStripe = executor.submit(() -> lockAndComplete(1 + STRIPES));
+        assertThrows(TimeoutException.class, () -> sameStripe.get(200, TimeUnit.MILLISECONDS));
+
+        complete();
+        sameStripe.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lockOutsideTransactionThrowsIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> sut.lock(1));
+        verifyNoInteractions(contractDao);
+    }
+
+    private void lockAndComplete(int propertyId) {
+        TransactionSynchronizationManager.initSynchronization();
+        sut.lock(propertyId);
+        complete();
+    }
+
+    private static void complete() {
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -1,5 +1,7 @@
 package dev.mikita.rolt.service;
 
+import dev.mikita.rolt.dao.PropertyFilter;
+import dev.mikita.rolt.dao.event.ContractChangedEvent;
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.environment.Generator;
 import org.junit.jupiter.api.Test;
@@ -10,7 +12,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 
 @SpringBootTest
@@ -24,6 +29,9 @@ public class PropertyServiceTest {
     @Autowired
     private PropertyService propertyService;
 
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
     @Test
     public void publishedPropertySetsPublishedStatus() {
         final Landlord landlord = Generator.generateLandlord();
@@ -77,4 +85,43 @@ public class PropertyServiceTest {
 
         assertEquals(PublicationStatus.DELETED, property.getStatus());
     }
+
+    @Test
+    public void availableBetweenChecksOnlyPropertiesMatchingOtherFilters() {
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final City otherCity = Generator.generateCity();
+        em.persist(otherCity);
+        final Property first = persistProperty(landlord, city);
+        final Property second = persistProperty(landlord, city);
+        final Property third = persistProperty(landlord, city);
+        final Property elsewhere = persistProperty(landlord, otherCity);
+        em.flush();
+
+        // Undone when the test transaction rolls back
+        final LocalDate from = LocalDate.of(2030, 1, 1);
+        final LocalDate to = from.plusDays(10);
+        availabilityIndex.onContractChanged(ContractChangedEvent.saved(-1, first.getId(), from, to));
+        availabilityIndex.onContractChanged(ContractChangedEvent.saved(-2, elsewhere.getId(), from, to));
+        final PropertyFilter filter = PropertyFilter.builder().cityId(city.getId()).build();
+
+        final PropertyFilter fewBooked = propertyService.availableBetween(filter, from, to);
+        assertEquals(Set.of(first.getId()), fewBooked.getExcludedIds());
+        assertNull(fewBooked.getIds());
+
+        availabilityIndex.onContractChanged(ContractChangedEvent.saved(-3, second.getId(), from, to));
+        final PropertyFilter mostBooked = propertyService.availableBetween(filter, from, to);
+        assertEquals(Set.of(third.getId()), mostBooked.getIds());
+        assertNull(mostBooked.getExcludedIds());
+    }
+
+    private Property persistProperty(Landlord owner, City city) {
+        final Property property = Generator.generateProperty();
+        property.setCity(city);
+        property.setOwner(owner);
+        em.persist(property);
+        return property;
+    }
 }
@@ -2,10 +2,14 @@ package dev.mikita.rolt.service;
 
 import dev.mikita.rolt.entity.*;
 import dev.mikita.rolt.environment.Generator;
+import dev.mikita.rolt.exception.ValidationException;
+import dev.mikita.rolt.security.event.UserSecurityChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
@@ -17,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 @Transactional
 @TestPropertySource(locations = "classpath:application-test.properties")
+@RecordApplicationEvents
 public class TenantServiceTest {
 
     @PersistenceContext
@@ -25,6 +30,12 @@ public class TenantServiceTest {
     @Autowired
     private TenantService tenantService;
 
+    @Autowired
+    private EmailRegistry emailRegistry;
+
+    @Autowired
+    private ApplicationEvents events;
+
     @Test
     public void addFavorites() {
         final City city = Generator.generateCity();
@@ -83,4 +94,55 @@ public class TenantServiceTest {
         assertEquals(ConsumerStatus.DELETED, tenant.getStatus());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void persistThrowsValidationExceptionForKnownRegisteredEmail() {
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        em.flush();
+        emailRegistry.add(tenant.getEmail());
+
+        final Tenant duplicate = Generator.generateTenant();
+        duplicate.setEmail(tenant.getEmail());
+
+        assertThrows(ValidationException.class, () -> tenantService.persist(duplicate));
+    }
+
+    @Test
+    public void persistMapsUniqueConstraintViolationToValidationException() {
+        // Not recorded in the email registry, so only the unique constraint catches the duplicate
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        em.flush();
+
+        final Tenant duplicate = Generator.generateTenant();
+        duplicate.setEmail(tenant.getEmail());
+
+        assertThrows(ValidationException.class, () -> tenantService.persist(duplicate));
+    }
+
+    @Test
+    public void updateWithoutSecurityChangeKeepsSessions() {
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        em.flush();
+        em.detach(tenant);
+
+        tenant.setFirstName(tenant.getFirstName() + "x");
+        tenantService.update(tenant);
+
+        assertEquals(0, events.stream(UserSecurityChangedEvent.class).count());
+    }
+
+    @Test
+    public void updateOfPasswordEndsSessions() {
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        em.flush();
+        em.detach(tenant);
+
+        tenant.setPassword(tenant.getPassword() + "x");
+        tenantService.update(tenant);
+
+        assertEquals(1, events.stream(UserSecurityChangedEvent.class).count());
+    }
+}
@@ -0,0 +1,78 @@
+package dev.mikita.rolt.service.security;
+
+import dev.mikita.rolt.entity.*;
+import dev.mikita.rolt.environment.Generator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class OwnershipServiceTest {
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private OwnershipService ownershipService;
+
+    @Test
+    public void findPropertyOwnerIdReturnsOwnerOrNullForUnknownProperty() {
+        final Property property = persistProperty(persistLandlord());
+
+        assertEquals(property.getOwner().getId(), ownershipService.findPropertyOwnerId(property.getId()));
+        assertNull(ownershipService.findPropertyOwnerId(-1));
+    }
+
+    @Test
+    public void isContractPartyAcceptsTenantAndLandlordOnly() {
+        final Property property = persistProperty(persistLandlord());
+        final Tenant tenant = Generator.generateTenant();
+        em.persist(tenant);
+        final Contract contract = Generator.generateContract();
+        contract.setProperty(property);
+        contract.setTenant(tenant);
+        em.persist(contract);
+        em.flush();
+
+        assertTrue(ownershipService.isContractParty(tenant.getId(), contract.getId()));
+        assertTrue(ownershipService.isContractParty(property.getOwner().getId(), contract.getId()));
+        assertFalse(ownershipService.isContractParty(persistLandlord().getId(), contract.getId()));
+        assertFalse(ownershipService.isContractParty(tenant.getId(), -1));
+    }
+
+    @Test
+    public void findPropertyOwnerIdSeesOwnerChangedInCurrentTransaction() {
+        final Property property = persistProperty(persistLandlord());
+        ownershipService.findPropertyOwnerId(property.getId());
+
+        final Landlord newOwner = persistLandlord();
+        property.setOwner(newOwner);
+        em.flush();
+
+        assertEquals(newOwner.getId(), ownershipService.findPropertyOwnerId(property.getId()));
+    }
+
+    private Landlord persistLandlord() {
+        final Landlord landlord = Generator.generateLandlord();
+        em.persist(landlord);
+        return landlord;
+    }
+
+    private Property persistProperty(Landlord owner) {
+        final City city = Generator.generateCity();
+        em.persist(city);
+        final Property property = Generator.generateProperty();
+        property.setCity(city);
+        property.setOwner(owner);
+        em.persist(property);
+        em.flush();
+        return property;
+    }
+}